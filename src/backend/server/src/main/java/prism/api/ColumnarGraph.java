@@ -0,0 +1,171 @@
+package prism.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.*;
+
+/**
+ * Column-wise form of a {@link Graph}. Every variable, reward, property, label and scheduler is named once and holds one
+ * value per node, instead of repeating the names in every node. Edges are left out, they follow from the sources and
+ * distributions of the transitions.
+ */
+@Schema(description="Graph with the nodes stored column by column")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ColumnarGraph {
+
+    @Schema(description = "states of the graph")
+    @JsonProperty
+    public final States states = new States();
+
+    @Schema(description = "transitions of the graph")
+    @JsonProperty
+    public final Transitions transitions = new Transitions();
+
+    @Schema(description = "Information about the MC process")
+    @JsonProperty
+    public Info info;
+
+    @Schema(description = "Cursor of the next page, if the graph was requested in pages and more pages follow")
+    @JsonProperty
+    public String next;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class States {
+        @JsonProperty
+        public final List<String> id = new ArrayList<>();
+
+        @JsonProperty
+        public final List<String> name = new ArrayList<>();
+
+        @JsonProperty
+        public final Map<String, List<Object>> variables = new TreeMap<>();
+
+        @JsonProperty
+        public final Map<String, List<Double>> rewards = new TreeMap<>();
+
+        @JsonProperty
+        public final Map<String, List<Double>> results = new TreeMap<>();
+
+        @Schema(description = "for each atomic proposition, the states (by position) satisfying it")
+        @JsonProperty
+        public final Map<String, List<Integer>> labels = new TreeMap<>();
+
+        @Schema(description = "states grouped into each node, only for graphs grouped by views")
+        @JsonProperty
+        public List<List<Long>> members = null;
+
+        private int size = 0;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Transitions {
+        @JsonProperty
+        public final List<String> id = new ArrayList<>();
+
+        @JsonProperty
+        public final List<String> source = new ArrayList<>();
+
+        @Schema(description = "dictionary of the actions")
+        @JsonProperty
+        public final List<String> actions = new ArrayList<>();
+
+        @Schema(description = "action of each transition, as position in the dictionary")
+        @JsonProperty
+        public final List<Integer> action = new ArrayList<>();
+
+        @Schema(description = "the distribution of transition i are the targets and probabilities from offsets[i] to offsets[i+1]-1")
+        @JsonProperty
+        public final List<Integer> offsets = new ArrayList<>(Collections.singletonList(0));
+
+        @JsonProperty
+        public final List<String> targets = new ArrayList<>();
+
+        @JsonProperty
+        public final List<Double> probabilities = new ArrayList<>();
+
+        @JsonProperty
+        public final Map<String, List<Double>> rewards = new TreeMap<>();
+
+        @JsonProperty
+        public final Map<String, List<Double>> results = new TreeMap<>();
+
+        @JsonProperty
+        public final Map<String, List<Double>> scheduler = new TreeMap<>();
+
+        private final Map<String, Integer> actionCodes = new HashMap<>();
+
+        private int size = 0;
+    }
+
+    public static ColumnarGraph of(Graph graph) {
+        ColumnarGraph columnar = new ColumnarGraph();
+        columnar.info = graph.getInfo();
+        columnar.next = graph.getNext();
+        for (Node node : graph.getNodes()) {
+            if (node instanceof State) {
+                columnar.add((State) node);
+            } else if (node instanceof Transition) {
+                columnar.add((Transition) node);
+            }
+        }
+        return columnar;
+    }
+
+    private void add(State state) {
+        int row = states.size++;
+        states.id.add(state.getId());
+        states.name.add(state.getName());
+        put(states.variables, state.getParameters(), row);
+        put(states.rewards, state.getRewards(), row);
+        put(states.results, state.getProperties(), row);
+        if (state.getAtomicPropositions() != null) {
+            for (Map.Entry<String, AP> e : state.getAtomicPropositions().entrySet()) {
+                List<Integer> satisfying = states.labels.computeIfAbsent(e.getKey(), k -> new ArrayList<>());
+                if (e.getValue() != null) satisfying.add(row);
+            }
+        }
+        if (state.getClusters() != null) {
+            if (states.members == null) {
+                states.members = new ArrayList<>(Collections.nCopies(row, null));
+            }
+            states.members.add(state.getClusteredNodes());
+        } else if (states.members != null) {
+            states.members.add(null);
+        }
+    }
+
+    private void add(Transition transition) {
+        int row = transitions.size++;
+        transitions.id.add(transition.getId());
+        transitions.source.add(transition.viewForm(transition.getSource()));
+        transitions.action.add(transitions.actionCodes.computeIfAbsent(transition.getAction(), a -> {
+            transitions.actions.add(a);
+            return transitions.actions.size() - 1;
+        }));
+        for (Map.Entry<String, Double> e : transition.getProbabilityDistribution().entrySet()) {
+            transitions.targets.add(transition.viewForm(e.getKey()));
+            transitions.probabilities.add(e.getValue());
+        }
+        transitions.offsets.add(transitions.targets.size());
+        put(transitions.rewards, transition.getRewards(), row);
+        put(transitions.results, transition.getResults(), row);
+        put(transitions.scheduler, transition.getScheduler(), row);
+    }
+
+    /**
+     * Sets the values of one row. Columns seen for the first time are filled with null for the rows before, columns
+     * the row has no value for get null.
+     */
+    private static <T> void put(Map<String, List<T>> columns, Map<String, ? extends T> values, int row) {
+        if (values != null) {
+            for (Map.Entry<String, ? extends T> e : values.entrySet()) {
+                columns.computeIfAbsent(e.getKey(), k -> new ArrayList<>(Collections.nCopies(row, null))).add(e.getValue());
+            }
+        }
+        for (List<T> column : columns.values()) {
+            if (column.size() == row) column.add(null);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package prism.api;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.v3.oas.annotations.media.Schema;
 import prism.core.Project;
@@ -19,6 +20,8 @@ public class Graph {
 
     private Info info;
 
+    private String next;
+
     public Graph(){
         // Jackson deserialization
     }
@@ -50,4 +53,15 @@ public class Graph {
     public Info getInfo() {
         return info;
     }
+
+    @Schema(description = "Cursor of the next page, if the graph was requested in pages and more pages follow")
+    @JsonProperty
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
 }
\ No newline at end of file
@@ -118,7 +118,17 @@ public class Transition implements Node{
     }
 
     @JsonIgnore
-    private String viewForm(String id){
+    public Map<String, Double> getRewards() {
+        return rewards;
+    }
+
+    @JsonIgnore
+    public List<String> getViews() {
+        return views;
+    }
+
+    @JsonIgnore
+    String viewForm(String id){
         return viewsInactive() ? id : String.format("%s_%s", String.join("_", views), id);
     }
 
@@ -10,7 +10,7 @@ public class VariableInfo implements Namespace {
 
     public enum Type {TYPE_BLANK, TYPE_NUMBER, TYPE_BOOL, TYPE_OTHER};
 
-    public enum Status {missing, ready, computing}
+    public enum Status {missing, ready, computing, failed}
 
     private final String variableName;
 
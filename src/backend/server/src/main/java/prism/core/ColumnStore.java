@@ -0,0 +1,153 @@
+package prism.core;
+
+import prism.db.Database;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Decides where the derived columns of a table (property results, schedulers, views) are stored. Either they are added
+ * to the table itself, or every column gets a narrow side table of its own, holding the key of the table and the value.
+ * Side tables keep the rows of the base tables small and are removed with a cheap table drop; readers join only the
+ * columns they need, see {@link #source(String, String, Collection)}.
+ *
+ * Reading works for both layouts regardless of the current mode, so that databases written in either mode stay usable.
+ */
+public class ColumnStore implements Namespace {
+
+    private final Database database;
+
+    private boolean sideTables;
+
+    // Names of the existing side tables, read lazily from the schema
+    private Set<String> existing = null;
+
+    public ColumnStore(Database database, boolean sideTables) {
+        this.database = database;
+        this.sideTables = sideTables;
+    }
+
+    public boolean usesSideTables() {
+        return sideTables;
+    }
+
+    public void setSideTables(boolean sideTables) {
+        this.sideTables = sideTables;
+    }
+
+    public static String sideTable(String table, String collumn) {
+        return String.format(TABLE_SIDE_GEN, table, collumn);
+    }
+
+    private synchronized Set<String> existing() {
+        if (existing == null) {
+            existing = new HashSet<>(database.executeCollectionQuery("SELECT name FROM sqlite_schema WHERE type='table'", String.class));
+        }
+        return existing;
+    }
+
+    /**
+     * Forgets the known side tables, to be called whenever tables are created or dropped outside of this class
+     */
+    public synchronized void invalidate() {
+        existing = null;
+    }
+
+    public boolean isSideTable(String table, String collumn) {
+        return existing().contains(sideTable(table, collumn));
+    }
+
+    /**
+     * @return table to read and update the column in
+     */
+    public String getTable(String table, String collumn) {
+        return isSideTable(table, collumn) ? sideTable(table, collumn) : table;
+    }
+
+    public boolean exists(String table, String collumn) {
+        return isSideTable(table, collumn) || database.question(String.format("SELECT name FROM pragma_table_info('%s') WHERE name = '%s'", table, collumn));
+    }
+
+    /**
+     * Adds a column to the table. A side table is filled with the keys of all rows, so that the column can be set with
+     * UPDATE statements in both layouts.
+     *
+     * @param definition type and constraints of the column, as in ALTER TABLE ADD COLUMN
+     */
+    public void add(String table, String key, String collumn, String definition) throws SQLException {
+        if (!sideTables) {
+            database.execute(String.format("ALTER TABLE %s ADD COLUMN %s %s", table, collumn, definition));
+            return;
+        }
+        String side = sideTable(table, collumn);
+        database.write(handle -> {
+            database.execute(String.format("CREATE TABLE %s (%s INTEGER PRIMARY KEY, %s %s)", side, key, collumn, definition));
+            database.execute(String.format("INSERT INTO %s (%s) SELECT %s FROM %s", side, key, key, table));
+            return null;
+        });
+        // Inside a surrounding write the new table is not committed yet, so reloading the set cannot find it
+        synchronized (this) {
+            existing().add(side);
+        }
+    }
+
+    public void drop(String table, String collumn) throws SQLException {
+        if (isSideTable(table, collumn)) {
+            String side = sideTable(table, collumn);
+            database.execute(String.format("DROP TABLE %s", side));
+            synchronized (this) {
+                existing().remove(side);
+            }
+        } else {
+            database.execute(String.format("ALTER TABLE %s DROP COLUMN %s", table, collumn));
+        }
+    }
+
+    /**
+     * Drops all side tables of a table, to be called before the table itself is dropped
+     */
+    public void dropAll(String table) throws SQLException {
+        invalidate();
+        String prefix = sideTable(table, "");
+        for (String name : new ArrayList<>(existing())) {
+            if (name.startsWith(prefix)) {
+                database.execute(String.format("DROP TABLE IF EXISTS %s", name));
+                synchronized (this) {
+                    existing().remove(name);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return derived columns of the table stored in side tables
+     */
+    public List<String> sideColumns(String table) {
+        String prefix = sideTable(table, "");
+        return new ArrayList<>(existing()).stream().filter(name -> name.startsWith(prefix)).map(name -> name.substring(prefix.length())).collect(Collectors.toList());
+    }
+
+    /**
+     * @param table base table
+     * @param key primary key of the base table
+     * @param collumns derived columns the query reads
+     * @return expression to use in place of the table in FROM and JOIN clauses, providing all columns of the table and
+     * the given derived columns under the name of the table
+     */
+    public String source(String table, String key, Collection<String> collumns) {
+        List<String> sides = collumns.stream()
+                .distinct()
+                .filter(c -> isSideTable(table, c))
+                .map(c -> sideTable(table, c))
+                .collect(Collectors.toList());
+        if (sides.isEmpty()) {
+            return table;
+        }
+        StringBuilder source = new StringBuilder(String.format("(SELECT * FROM %s", table));
+        for (String side : sides) {
+            source.append(String.format(" LEFT JOIN %s USING (%s)", side, key));
+        }
+        return source.append(String.format(") AS %s", table)).toString();
+    }
+}
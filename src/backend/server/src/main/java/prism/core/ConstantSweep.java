@@ -0,0 +1,170 @@
+package prism.core;
+
+import explicit.ConstructModel;
+import explicit.StateModelChecker;
+import parser.Values;
+import parser.ast.Expression;
+import parser.ast.ModulesFile;
+import prism.Prism;
+import prism.PrismException;
+import prism.Result;
+import prism.UndefinedConstants;
+import prism.core.Property.Property;
+import prism.core.Utility.Timer;
+import prism.db.Batch;
+import prism.server.Task;
+import simulator.ModulesFileModelGenerator;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Checks properties of a project for every assignment of a grid of values to the undefined constants of its model.
+ *
+ * The model is parsed once, by the project, and copied for every assignment. Assignments are built and checked on the
+ * explicit engine by up to a given number of workers, each of which holds a single model at a time. The value in the
+ * initial state of every property is written to the sweep table of the project as soon as an assignment is done, one
+ * row per assignment and property.
+ */
+public class ConstantSweep implements Task, Namespace {
+
+    private final Project project;
+
+    private final Prism prism;
+
+    private final ModulesFile modulesFile;
+
+    private final List<Values> assignments;
+
+    private final List<Property> properties;
+
+    private final int workers;
+
+    /**
+     * @param constants grid of values in the syntax of the -const switch of PRISM, e.g. "N=1:5,p=0.1:0.1:0.5"
+     */
+    public ConstantSweep(Project project, String constants, List<Property> properties, int workers) throws PrismException {
+        this.project = project;
+        this.prism = project.getPrism();
+        this.modulesFile = project.getModulesFile();
+        this.properties = properties;
+        this.workers = Math.max(1, workers);
+
+        UndefinedConstants undefined = new UndefinedConstants(modulesFile, null);
+        undefined.defineUsingConstSwitch(constants);
+        this.assignments = new ArrayList<>();
+        for (int i = 0; i < undefined.getNumModelIterations(); i++) {
+            assignments.add(new Values(undefined.getMFConstantValues()));
+            undefined.iterateModel();
+        }
+    }
+
+    public int size() {
+        return assignments.size();
+    }
+
+    @Override
+    public void run() {
+        String table = project.getSweepTableName();
+        try {
+            project.getDatabase().execute(String.format("DROP TABLE IF EXISTS %s", table));
+            project.getDatabase().execute(String.format("CREATE TABLE %s (%s INTEGER NOT NULL, %s TEXT, %s TEXT, %s REAL, %s TEXT)", table, ENTRY_SW_ID, ENTRY_SW_CONSTANTS, ENTRY_SW_PROPERTY, ENTRY_SW_VALUE, ENTRY_SW_ERROR));
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(workers, Math.max(1, assignments.size())));
+        try (Timer sweep = new Timer(String.format("Sweep over %d assignments", assignments.size()), project.getLog())) {
+            List<Future<?>> done = new ArrayList<>();
+            for (int i = 0; i < assignments.size(); i++) {
+                int assignment = i;
+                done.add(pool.submit(() -> check(assignment)));
+            }
+            for (Future<?> future : done) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Builds the model for one assignment and writes the value of every property. Errors of the assignment, like a
+     * model that cannot be built with it, are written instead of the values.
+     */
+    private void check(int assignment) {
+        Values values = assignments.get(assignment);
+        List<Object> results = new ArrayList<>();
+        String error = null;
+        try {
+            ModulesFile model = (ModulesFile) modulesFile.deepCopy();
+            model.setSomeUndefinedConstants(values);
+            ModulesFileModelGenerator generator = new ModulesFileModelGenerator(model, prism);
+            explicit.Model explicitModel = new ConstructModel(prism).constructModel(generator);
+            for (Property property : properties) {
+                StateModelChecker checker = StateModelChecker.createModelChecker(explicitModel.getModelType(), prism);
+                checker.setModelCheckingInfo(generator, property.getPropertiesFile(), generator);
+                try {
+                    // Checking rewrites parts of the expression, which is shared by all workers
+                    Result result = checker.check(explicitModel, (Expression) property.getExpression().deepCopy());
+                    results.add(result.getResult());
+                } catch (PrismException e) {
+                    results.add(e);
+                }
+            }
+        } catch (PrismException e) {
+            error = e.getMessage();
+        }
+
+        try (Batch rows = project.getDatabase().createBatch(String.format("INSERT INTO %s (%s, %s, %s, %s, %s) VALUES (?,?,?,?,?)", project.getSweepTableName(), ENTRY_SW_ID, ENTRY_SW_CONSTANTS, ENTRY_SW_PROPERTY, ENTRY_SW_VALUE, ENTRY_SW_ERROR), 5)) {
+            for (int i = 0; i < properties.size(); i++) {
+                rows.setLong(assignment).setString(values.toString()).setString(properties.get(i).getName());
+                Object result = error == null ? results.get(i) : null;
+                if (result instanceof Number) {
+                    rows.setDouble(((Number) result).doubleValue()).setNull();
+                } else if (result instanceof Boolean) {
+                    rows.setDouble((Boolean) result ? 1.0 : 0.0).setNull();
+                } else if (result instanceof Exception) {
+                    rows.setNull().setString(((Exception) result).getMessage());
+                } else {
+                    rows.setNull().setString(error != null ? error : String.valueOf(result));
+                }
+                rows.addRow();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public String status() {
+        return String.format("Sweeping %s over %d assignments in Project %s", properties.stream().map(Property::getName).collect(Collectors.joining(", ")), assignments.size(), project.getID());
+    }
+
+    @Override
+    public String name() {
+        return "Sweep_" + project.getID();
+    }
+
+    @Override
+    public Type type() {
+        return Type.Check;
+    }
+
+    @Override
+    public String projectID() {
+        return project.getID();
+    }
+}
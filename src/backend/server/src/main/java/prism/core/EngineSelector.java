@@ -0,0 +1,142 @@
+package prism.core;
+
+import jdd.JDD;
+import parser.ast.ModulesFile;
+import prism.Prism;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Picks the engine a project checks its properties with, once the model has been built symbolically.
+ *
+ * Models are described by the number of variables and the orders of magnitude of their states and of the nodes of
+ * their transition BDD. How long each check took is appended to a log shared by all projects, so that a model similar
+ * to one checked before gets the engine that was faster on average. Without such experience, the explicit engine is
+ * used unless the model is too large for it or its BDD is much smaller than its state space. If only one of the two
+ * engines has been timed on similar models, the other one is tried, so that both can be compared from then on.
+ */
+public class EngineSelector {
+
+    // Log lines: description of the model, engine, milliseconds of one check
+    private static final String SEPARATOR = ",";
+
+    // States per BDD node from which the symbolic engine is expected to be faster
+    private static final double SYMBOLIC_COMPRESSION = 100.0;
+
+    // Projects share the log
+    private static final Object LOCK = new Object();
+
+    private final File log;
+
+    private final long maxExplicitStates;
+
+    private final boolean debug;
+
+    private String description = null;
+
+    public EngineSelector(File log, long maxExplicitStates, boolean debug) {
+        this.log = log;
+        this.maxExplicitStates = maxExplicitStates;
+        this.debug = debug;
+    }
+
+    /**
+     * @param model symbolic model as built by PRISM
+     * @param symbolicEngine engine the model was built with
+     * @return engine to check properties of the model with
+     */
+    public int select(ModulesFile modulesFile, prism.Model model, int symbolicEngine) {
+        double states = model.getNumStates();
+        long nodes = JDD.GetNumNodes(model.getTrans());
+        return select(String.format("%d:%d:%d", modulesFile.getNumVars(), magnitude(states), magnitude(nodes)), states, nodes, symbolicEngine);
+    }
+
+    /**
+     * @param description description of the model, under which its checks are logged
+     * @return engine to check properties of a model with the given number of states and BDD nodes
+     */
+    int select(String description, double states, long nodes, int symbolicEngine) {
+        this.description = description;
+
+        int engine;
+        Map<Integer, double[]> past = past(description);
+        double[] symbolic = past.get(symbolicEngine);
+        double[] explicit = past.get(Prism.EXPLICIT);
+        if (states > maxExplicitStates) {
+            engine = symbolicEngine;
+        } else if (symbolic != null && explicit != null) {
+            engine = symbolic[0] / symbolic[1] < explicit[0] / explicit[1] ? symbolicEngine : Prism.EXPLICIT;
+        } else if (symbolic != null) {
+            engine = Prism.EXPLICIT;
+        } else if (explicit != null) {
+            engine = symbolicEngine;
+        } else if (states / Math.max(1, nodes) > SYMBOLIC_COMPRESSION) {
+            engine = symbolicEngine;
+        } else {
+            engine = Prism.EXPLICIT;
+        }
+        if (debug) {
+            System.out.printf("Selected engine %d for model %s (%.0f states, %d nodes)%n", engine, description, states, nodes);
+        }
+        return engine;
+    }
+
+    /**
+     * Adds the duration of a check of the model of the last {@link #select} to the log.
+     */
+    public void record(int engine, long millis) {
+        if (description == null) {
+            return;
+        }
+        synchronized (LOCK) {
+            try (BufferedWriter write = new BufferedWriter(new FileWriter(log, true))) {
+                write.write(String.join(SEPARATOR, description, String.valueOf(engine), String.valueOf(millis)));
+                write.newLine();
+            } catch (IOException e) {
+                if (debug) System.out.println("Could not log engine timing: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return for every engine used on models with the given description, the sum of milliseconds and number of checks
+     */
+    Map<Integer, double[]> past(String description) {
+        Map<Integer, double[]> past = new HashMap<>();
+        synchronized (LOCK) {
+            if (!log.isFile()) {
+                return past;
+            }
+            try (BufferedReader read = new BufferedReader(new FileReader(log))) {
+                String line;
+                while ((line = read.readLine()) != null) {
+                    String[] entry = line.split(SEPARATOR);
+                    if (entry.length != 3 || !entry[0].equals(description)) continue;
+                    try {
+                        int engine = Integer.parseInt(entry[1]);
+                        long millis = Long.parseLong(entry[2]);
+                        double[] times = past.computeIfAbsent(engine, e -> new double[2]);
+                        times[0] += millis;
+                        times[1]++;
+                    } catch (NumberFormatException e) {
+                        // Skip lines that were not written completely
+                    }
+                }
+            } catch (IOException e) {
+                if (debug) System.out.println("Could not read engine timings: " + e.getMessage());
+            }
+        }
+        return past;
+    }
+
+    private static int magnitude(double value) {
+        return value < 1 ? 0 : (int) Math.floor(Math.log10(value));
+    }
+}
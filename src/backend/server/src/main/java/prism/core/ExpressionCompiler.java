@@ -0,0 +1,182 @@
+package prism.core;
+
+import parser.ast.*;
+import prism.PrismLangException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.ToIntFunction;
+
+/**
+ * Translates state expressions into SQL predicates over the state table, so that filtering states does not require
+ * loading them. Variables are read from their typed columns, labels from the label bits written during the build.
+ *
+ * Supported are literals, variables, labels, boolean connectives, comparisons, arithmetic, if-then-else, min and max.
+ * Divisions are only supported by non-zero constants, as PRISM divides by zero to infinity and SQLite to NULL.
+ * Anything else yields no predicate and has to be evaluated in memory.
+ */
+public class ExpressionCompiler implements Namespace {
+
+    private final boolean variables;
+
+    private final boolean labels;
+
+    // Index of a label in the label list of the model, or -1 if there is none
+    private final ToIntFunction<String> labelIndex;
+
+    private static class UnsupportedExpression extends Exception {
+        UnsupportedExpression(Object expression) {
+            super("Can not translate " + expression);
+        }
+    }
+
+    public ExpressionCompiler(Project project) {
+        this(project.hasVariableColumns(), project.hasLabelColumn(), name -> project.getModulesFile().getLabelList().getLabelIndex(name));
+    }
+
+    ExpressionCompiler(boolean variables, boolean labels, ToIntFunction<String> labelIndex) {
+        this.variables = variables;
+        this.labels = labels;
+        this.labelIndex = labelIndex;
+    }
+
+    /**
+     * @param expression expression as returned by {@link ModelParser#parseStateExpression(String)}
+     * @return SQL predicate selecting the states satisfying the expression, if it could be translated
+     */
+    public Optional<String> compile(Expression expression) {
+        try {
+            return Optional.of(translate(expression));
+        } catch (UnsupportedExpression | PrismLangException e) {
+            return Optional.empty();
+        }
+    }
+
+    private String translate(Expression expression) throws UnsupportedExpression, PrismLangException {
+        if (expression instanceof ExpressionLiteral) {
+            return literal(expression.evaluate());
+        }
+        if (expression instanceof ExpressionVar) {
+            if (!variables) {
+                throw new UnsupportedExpression(expression);
+            }
+            return ENTRY_S_VAR + ((ExpressionVar) expression).getIndex();
+        }
+        if (expression instanceof ExpressionLabel) {
+            return label((ExpressionLabel) expression);
+        }
+        if (expression instanceof ExpressionUnaryOp) {
+            ExpressionUnaryOp unary = (ExpressionUnaryOp) expression;
+            String operand = translate(unary.getOperand());
+            switch (unary.getOperator()) {
+                case ExpressionUnaryOp.NOT:
+                    return String.format("(NOT %s)", operand);
+                case ExpressionUnaryOp.MINUS:
+                    return String.format("(-%s)", operand);
+                case ExpressionUnaryOp.PARENTH:
+                    return String.format("(%s)", operand);
+            }
+            throw new UnsupportedExpression(expression);
+        }
+        if (expression instanceof ExpressionBinaryOp) {
+            ExpressionBinaryOp binary = (ExpressionBinaryOp) expression;
+            String left = translate(binary.getOperand1());
+            String right = translate(binary.getOperand2());
+            switch (binary.getOperator()) {
+                case ExpressionBinaryOp.IMPLIES:
+                    return String.format("(NOT %s OR %s)", left, right);
+                case ExpressionBinaryOp.IFF:
+                    return String.format("(%s = %s)", left, right);
+                case ExpressionBinaryOp.OR:
+                    return String.format("(%s OR %s)", left, right);
+                case ExpressionBinaryOp.AND:
+                    return String.format("(%s AND %s)", left, right);
+                case ExpressionBinaryOp.EQ:
+                    return String.format("(%s = %s)", left, right);
+                case ExpressionBinaryOp.NE:
+                    return String.format("(%s <> %s)", left, right);
+                case ExpressionBinaryOp.GT:
+                    return String.format("(%s > %s)", left, right);
+                case ExpressionBinaryOp.GE:
+                    return String.format("(%s >= %s)", left, right);
+                case ExpressionBinaryOp.LT:
+                    return String.format("(%s < %s)", left, right);
+                case ExpressionBinaryOp.LE:
+                    return String.format("(%s <= %s)", left, right);
+                case ExpressionBinaryOp.PLUS:
+                    return String.format("(%s + %s)", left, right);
+                case ExpressionBinaryOp.MINUS:
+                    return String.format("(%s - %s)", left, right);
+                case ExpressionBinaryOp.TIMES:
+                    return String.format("(%s * %s)", left, right);
+                case ExpressionBinaryOp.DIVIDE:
+                    if (!isNonZeroConstant(binary.getOperand2())) {
+                        throw new UnsupportedExpression(expression);
+                    }
+                    // Division in PRISM is always real valued, SQLite would truncate integers
+                    return String.format("(CAST(%s AS REAL) / %s)", left, right);
+            }
+            throw new UnsupportedExpression(expression);
+        }
+        if (expression instanceof ExpressionITE) {
+            ExpressionITE ite = (ExpressionITE) expression;
+            return String.format("(CASE WHEN %s THEN %s ELSE %s END)", translate(ite.getOperand1()), translate(ite.getOperand2()), translate(ite.getOperand3()));
+        }
+        if (expression instanceof ExpressionFunc) {
+            ExpressionFunc func = (ExpressionFunc) expression;
+            List<String> operands = new ArrayList<>();
+            for (int i = 0; i < func.getNumOperands(); i++) {
+                operands.add(translate(func.getOperand(i)));
+            }
+            switch (func.getNameCode()) {
+                case ExpressionFunc.MIN:
+                    return operands.size() == 1 ? operands.get(0) : String.format("MIN(%s)", String.join(", ", operands));
+                case ExpressionFunc.MAX:
+                    return operands.size() == 1 ? operands.get(0) : String.format("MAX(%s)", String.join(", ", operands));
+            }
+            throw new UnsupportedExpression(expression);
+        }
+        throw new UnsupportedExpression(expression);
+    }
+
+    private static boolean isNonZeroConstant(Expression expression) throws PrismLangException {
+        if (!expression.isConstant()) {
+            return false;
+        }
+        Object value = expression.evaluate();
+        return value instanceof Number && ((Number) value).doubleValue() != 0;
+    }
+
+    private String literal(Object value) throws UnsupportedExpression {
+        if (value instanceof Boolean) {
+            return (Boolean) value ? "1" : "0";
+        }
+        if (value instanceof Integer || value instanceof Long) {
+            return value.toString();
+        }
+        if (value instanceof Double && Double.isFinite((Double) value)) {
+            return value.toString();
+        }
+        throw new UnsupportedExpression(value);
+    }
+
+    private String label(ExpressionLabel label) throws UnsupportedExpression {
+        if (!labels) {
+            throw new UnsupportedExpression(label);
+        }
+        int bit;
+        if (label.isInitLabel()) {
+            bit = 0;
+        } else if (label.isDeadlockLabel()) {
+            bit = 1;
+        } else {
+            int index = labelIndex.applyAsInt(label.getName());
+            if (index < 0) {
+                throw new UnsupportedExpression(label);
+            }
+            bit = index + 2;
+        }
+        return String.format("((%s >> %s) & 1)", ENTRY_S_LABELS, bit);
+    }
+}
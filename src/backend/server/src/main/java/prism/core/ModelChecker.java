@@ -1,5 +1,7 @@
 package prism.core;
 
+import explicit.ConstructModel;
+import explicit.StateModelChecker;
 import parser.ast.Expression;
 import parser.ast.ModulesFile;
 import parser.ast.PropertiesFile;
@@ -8,19 +10,20 @@ import prism.api.VariableInfo;
 import prism.core.Property.Property;
 import prism.core.Utility.Prism.Updater;
 import prism.core.Utility.Timer;
-import prism.db.Batch;
+import simulator.ModulesFileModelGenerator;
 import prism.db.Database;
 import prism.server.Task;
-import simulator.Choice;
-import simulator.TransitionList;
 
 import java.io.*;
 import java.math.BigInteger;
+import java.nio.file.Files;
 import java.sql.SQLException;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 public class ModelChecker implements Namespace {
@@ -33,18 +36,30 @@ public class ModelChecker implements Namespace {
 
     private final String stateTable;
     private final String transTable;
+    private final String distTable;
 
     private final String schedTable;
 
-    public ModelChecker(Project project, File modelFile, String stateTable, String transTable, String schedTable, String cuddMaxMem, int numIterations, boolean debug) throws Exception {
+    //Number of properties checked at the same time, each on its own model checker of the explicit engine
+    private int checkWorkers = 1;
+
+    // Engine the model is built with, the database is filled from the symbolic model
+    private final int symbolicEngine;
+
+    // Picks the engine for checking after every build, null to always check with the engine of the build
+    private EngineSelector engineSelector = null;
+
+    public ModelChecker(Project project, File modelFile, String stateTable, String transTable, String distTable, String schedTable, String cuddMaxMem, int numIterations, boolean debug) throws Exception {
         this.project = project;
         this.stateTable = stateTable;
         this.transTable = transTable;
+        this.distTable = distTable;
         this.schedTable = schedTable;
         if (debug) this.prism = new Prism(new PrismPrintStreamLog(System.out));
         else this.prism = new Prism(new PrismDevNullLog());
         prism.setCUDDMaxMem(cuddMaxMem);
         prism.setEngine(1);
+        this.symbolicEngine = prism.getEngine();
         prism.setMaxIters(numIterations);
 
         prism.initialise();
@@ -104,8 +119,9 @@ public class ModelChecker implements Namespace {
         for (File file : modelDir.listFiles()) {
             String stateTable = String.format("%s_%s", project.getStateTableName(), i);
             String transTable = String.format("%s_%s", project.getTransitionTableName(), i);
+            String distTable = String.format("%s_%s", project.getDistributionTableName(), i);
             String schedTable = String.format("%s_%s", project.getSchedulerTableName(), i);
-            ModelChecker instance = new ModelChecker(project, file, stateTable, transTable, schedTable, cuddMem, numIterations, debug);
+            ModelChecker instance = new ModelChecker(project, file, stateTable, transTable, distTable, schedTable, cuddMem, numIterations, debug);
             instances.add(instance);
             i++;
         }
@@ -188,9 +204,14 @@ public class ModelChecker implements Namespace {
         this.model = null;
         Database database = project.getDatabase();
 
+        project.getColumnStore().dropAll(stateTable);
+        project.getColumnStore().dropAll(transTable);
         database.execute(String.format("DROP TABLE IF EXISTS %s", stateTable));
         database.execute(String.format("DROP TABLE IF EXISTS %s", transTable));
+        database.execute(String.format("DROP TABLE IF EXISTS %s", distTable));
         database.execute(String.format("DROP TABLE IF EXISTS %s", schedTable));
+        database.execute(String.format("DROP TABLE IF EXISTS %s", project.getSweepTableName()));
+        Files.deleteIfExists(project.getGraphSnapshot().toPath());
 
         project.setBuilt(false);
     }
@@ -205,6 +226,7 @@ public class ModelChecker implements Namespace {
         @Override
         public void run() {
             try (prism.core.Utility.Timer build = new prism.core.Utility.Timer("Build Project", project.getLog())) {
+                prism.setEngine(symbolicEngine);
                 prism.buildModelIfRequired();
             } catch (Exception e) {
                 throw new RuntimeException(e);
@@ -212,6 +234,7 @@ public class ModelChecker implements Namespace {
 
             model = prism.getBuiltModel();
             if (model == null || isBuilt()) {
+                selectEngine();
                 project.setBuilt(true);
                 return;
             }
@@ -224,14 +247,19 @@ public class ModelChecker implements Namespace {
 
             try (prism.core.Utility.Timer build = new Timer("Build Database", project.getLog())) {
                 int numRewards = modulesFile.getNumRewardStructs();
+                int numVars = project.writesVariableColumns() ? modulesFile.getNumVars() : 0;
                 try {
-                    database.execute(String.format("CREATE TABLE %s (%s TEXT PRIMARY KEY NOT NULL, %s TEXT, %s BOOLEAN)", stateTable, ENTRY_S_ID, ENTRY_S_NAME, ENTRY_S_INIT));
-                    database.execute(String.format("CREATE TABLE %s (%s TEXT PRIMARY KEY NOT NULL, %s TEXT NOT NULL, %s TEXT, %s INTEGER);", transTable, ENTRY_T_ID, ENTRY_T_OUT, ENTRY_T_ACT, ENTRY_T_PROB));
+                    database.execute(String.format("CREATE TABLE %s (%s INTEGER PRIMARY KEY NOT NULL, %s TEXT, %s BOOLEAN, %s INTEGER)", stateTable, ENTRY_S_ID, ENTRY_S_NAME, ENTRY_S_INIT, ENTRY_S_LABELS));
+                    database.execute(String.format("CREATE TABLE %s (%s INTEGER PRIMARY KEY NOT NULL, %s INTEGER NOT NULL, %s TEXT);", transTable, ENTRY_T_ID, ENTRY_T_OUT, ENTRY_T_ACT));
+                    database.execute(String.format("CREATE TABLE %s (%s INTEGER NOT NULL, %s INTEGER NOT NULL, %s REAL NOT NULL, PRIMARY KEY (%s, %s)) WITHOUT ROWID", distTable, ENTRY_T_ID, ENTRY_D_TARGET, ENTRY_D_PROB, ENTRY_T_ID, ENTRY_D_TARGET));
                     database.execute(String.format("CREATE TABLE %s (%s TEXT, %s TEXT)", schedTable, ENTRY_SCH_ID, ENTRY_SCH_NAME));
 
+                    for (int i = 0; i < numVars; i++) {
+                        database.execute(String.format("ALTER TABLE %s ADD COLUMN %s INTEGER", stateTable, ENTRY_S_VAR + i));
+                    }
                     for (int i = 0; i < numRewards; i++) {
-                        database.execute(String.format("ALTER TABLE %s ADD COLUMN %s TEXT", stateTable, ENTRY_REW + i));
-                        database.execute(String.format("ALTER TABLE %s ADD COLUMN %s TEXT", transTable, ENTRY_REW + i));
+                        database.execute(String.format("ALTER TABLE %s ADD COLUMN %s REAL", stateTable, ENTRY_REW + i));
+                        database.execute(String.format("ALTER TABLE %s ADD COLUMN %s REAL", transTable, ENTRY_REW + i));
                     }
 
                 } catch (SQLException e) {
@@ -240,8 +268,19 @@ public class ModelChecker implements Namespace {
 
                 List<String> stateList = model.getReachableStates().exportToStringList();
 
-                String stateInsertCall = String.format("INSERT INTO %s (%s,%s,%s) VALUES(?,?,?)", stateTable, ENTRY_S_ID, ENTRY_S_NAME, ENTRY_S_INIT);
-                String transitionInsertCall = String.format("INSERT INTO %s(%s,%s,%s,%s) VALUES (?,?,?,?)", transTable, ENTRY_T_ID, ENTRY_T_OUT, ENTRY_T_ACT, ENTRY_T_PROB);
+                String stateInsertCall = String.format("INSERT INTO %s (%s,%s,%s,%s) VALUES(?,?,?,?)", stateTable, ENTRY_S_ID, ENTRY_S_NAME, ENTRY_S_INIT, ENTRY_S_LABELS);
+                String transitionInsertCall = String.format("INSERT INTO %s(%s,%s,%s) VALUES (?,?,?)", transTable, ENTRY_T_ID, ENTRY_T_OUT, ENTRY_T_ACT);
+                String distributionInsertCall = String.format("INSERT INTO %s(%s,%s,%s) VALUES (?,?,?)", distTable, ENTRY_T_ID, ENTRY_D_TARGET, ENTRY_D_PROB);
+                if (numVars + numRewards > 0) {
+                    // Variables first, then rewards, in the order ModelIngestion writes them
+                    String[] stateHeader = new String[numVars + numRewards];
+                    String[] stateQuestionHeader = new String[numVars + numRewards];
+                    for (int i = 0; i < numVars + numRewards; i++) {
+                        stateHeader[i] = i < numVars ? ENTRY_S_VAR + i : ENTRY_REW + (i - numVars);
+                        stateQuestionHeader[i] = "?";
+                    }
+                    stateInsertCall = String.format("INSERT INTO %s (%s,%s,%s,%s,%s) VALUES(?,?,?,?,%s)", stateTable, ENTRY_S_ID, ENTRY_S_NAME, ENTRY_S_INIT, ENTRY_S_LABELS, String.join(",", stateHeader), String.join(",", stateQuestionHeader));
+                }
                 if (numRewards > 0) {
                     String[] rewardHeader = new String[numRewards];
                     String[] questionHeader = new String[numRewards];
@@ -249,90 +288,30 @@ public class ModelChecker implements Namespace {
                         rewardHeader[i] = ENTRY_REW + i;
                         questionHeader[i] = "?";
                     }
-                    stateInsertCall = String.format("INSERT INTO %s (%s,%s,%s,%s) VALUES(?,?,?,%s)", stateTable, ENTRY_S_ID, ENTRY_S_NAME, ENTRY_S_INIT, String.join(",", rewardHeader), String.join(",", questionHeader));
-                    transitionInsertCall = String.format("INSERT INTO %s(%s,%s,%s,%s,%s) VALUES (?,?,?,?,%s)", transTable, ENTRY_T_ID, ENTRY_T_OUT, ENTRY_T_ACT, ENTRY_T_PROB, String.join(",", rewardHeader), String.join(",", questionHeader));
-                }
-
-                try (Batch toExecute = database.createBatch(stateInsertCall, 3 + numRewards)) {
-                    for (int i = 0; i < stateList.size(); i++) {
-                        String stateName = project.getModelParser().normalizeStateName(stateList.get(i));
-                        parser.State s = project.getModelParser().parseState(stateName);
-                        String s_id = project.getModelParser().stateIdentifier(s).toString();
-
-                        //Determine whether this is an initial state or not
-                        Expression initialExpression = modulesFile.getInitialStates();
-                        boolean initial;
-                        if (initialExpression == null) {
-                            initial = modulesFile.getDefaultInitialState().equals(s);
-                        } else {
-                            initial = initialExpression.evaluateBoolean(s);
-                        }
-
-                        //Create State in table
-                        if (numRewards > 0) {
-                            double[] rewards = new double[numRewards];
-                            updater.calculateStateRewards(s, rewards);
-                            String[] inputs = new String[numRewards + 3];
-                            inputs[0] = s_id;
-                            inputs[1] = stateName;
-                            inputs[2] = initial ? "1" : "0";
-                            for (int j = 0; j < numRewards; j++) {
-                                inputs[j + 3] = String.valueOf(rewards[j]);
-                            }
-                            toExecute.addToBatch(inputs);
-                        } else {
-                            toExecute.addToBatch(s_id, stateName, initial ? "1" : "0");
-                        }
-                    }
-                } catch (SQLException e) {
-                    throw new RuntimeException(e);
+                    transitionInsertCall = String.format("INSERT INTO %s(%s,%s,%s,%s) VALUES (?,?,?,%s)", transTable, ENTRY_T_ID, ENTRY_T_OUT, ENTRY_T_ACT, String.join(",", rewardHeader), String.join(",", questionHeader));
                 }
 
-                try (Batch toExecute = database.createBatch(transitionInsertCall, 4 + numRewards)) {
-                    for (int i = 0; i < stateList.size(); i++) {
-                        String stateName = project.getModelParser().normalizeStateName(stateList.get(i));
-                        parser.State s = project.getModelParser().parseState(stateName);
-                        String s_id = project.getModelParser().stateIdentifier(s).toString();
-
-                        TransitionList<Double> transitionList = new TransitionList<>(Evaluator.forDouble());
-                        updater.calculateTransitions(s, transitionList);
-                        for (int j = 0; j < transitionList.getNumChoices(); j++) {
-                            Choice<Double> choice = transitionList.getChoice(j);
-                            String actionName = choice.getModuleOrAction();
-
-                            String t_id = project.getModelParser().transitionIdentifier(s, j).toString();
-
-                            Map<String, Double> probabilities = new HashMap<>();
-
-                            for (int l = 0; l < choice.size(); l++) {
-                                double probability = choice.getProbability(l);
-                                parser.State target = choice.computeTarget(l, s, modulesFile.createVarList());
-                                probabilities.put(project.getModelParser().stateIdentifier(target).toString(), probability);
-                            }
-                            if (numRewards > 0) {
-                                double[] rewards = new double[numRewards];
-                                updater.calculateTransitionRewards(s, choice.getModuleOrActionIndex(), rewards);
-                                String[] inputs = new String[numRewards + 4];
-                                inputs[0] =  t_id;
-                                inputs[1] =  s_id;
-                                inputs[2] = actionName;
-                                inputs[3] = probabilities.entrySet().stream().map(e -> String.format("%s:%s", e.getKey(), e.getValue())).collect(Collectors.joining(";"));
-                                for (int l = 0; l < numRewards; l++) {
-                                    inputs[l + 4] = String.valueOf(rewards[l]);
-                                }
-                                toExecute.addToBatch(inputs);
-                            } else {
-                                toExecute.addToBatch(t_id, s_id, actionName, probabilities.entrySet().stream().map(e -> String.format("%s:%s", e.getKey(), e.getValue())).collect(Collectors.joining(";")));
-                            }
-                        }
+                new ModelIngestion(project, modulesFile, prism, numVars > 0).ingest(stateList, stateInsertCall, transitionInsertCall, distributionInsertCall);
+                database.execute(String.format("CREATE INDEX %s_%s ON %s (%s)", transTable, ENTRY_T_OUT, transTable, ENTRY_T_OUT));
+                database.execute(String.format("CREATE INDEX %s_%s ON %s (%s)", distTable, ENTRY_D_TARGET, distTable, ENTRY_D_TARGET));
+                for (int i = 0; i < numVars; i++) {
+                    if (project.getIndexedVariables().contains(modulesFile.getVarName(i))) {
+                        database.execute(String.format("CREATE INDEX %s_%s ON %s (%s)", stateTable, ENTRY_S_VAR + i, stateTable, ENTRY_S_VAR + i));
                     }
-                }  catch (SQLException e) {
-                    throw new RuntimeException(e);
                 }
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
             project.setBuilt(true);
+
+            // Snapshot of the graph structure, so that opening the project later does not read the tables again
+            try (prism.core.Utility.Timer snapshot = new Timer("Write Graph Snapshot", project.getLog())) {
+                Files.deleteIfExists(project.getGraphSnapshot().toPath());
+                project.buildMdpGraph();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            selectEngine();
         }
 
         @Override
@@ -367,11 +346,7 @@ public class ModelChecker implements Namespace {
         public void run() {
             try {
                 prism.buildModelIfRequired();
-                VariableInfo newInfo = property.modelCheck();
-                Map<String, VariableInfo> info = (Map<String, VariableInfo>) project.getInfo().getStateEntry(OUTPUT_RESULTS);
-                info.replace(property.getName(), newInfo);
-                project.getInfo().setStateEntry(OUTPUT_RESULTS, info);
-                project.getInfo().setTransitionEntry(OUTPUT_RESULTS, info);
+                recordResult(property, property.modelCheck());
             } catch (PrismException e) {
                 throw new RuntimeException(e);
             }
@@ -398,6 +373,94 @@ public class ModelChecker implements Namespace {
         }
     }
 
+    private class modelCheckAllTask implements Task {
+
+        List<Property> properties;
+
+        public modelCheckAllTask(List<Property> properties) {
+            this.properties = properties;
+        }
+
+        public void run() {
+            try {
+                if (model == null || !isBuilt()) {
+                    new modelBuildTask().run();
+                }
+                checkParallel(properties);
+            } catch (PrismException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public String status() {
+            return "Checking " + properties.stream().map(Property::getName).collect(Collectors.joining(", ")) + " in Project " + project.getID();
+        }
+
+        @Override
+        public String name() {
+            return "Check_" + properties.stream().map(Property::getName).collect(Collectors.joining("_")) + "_" + project.getID();
+        }
+
+        @Override
+        public Type type() {
+            return Type.Check;
+        }
+
+        @Override
+        public String projectID() {
+            return project.getID();
+        }
+    }
+
+    /**
+     * Switches to the engine picked for the built model. Needs the symbolic model, so it runs after the database is
+     * filled from it.
+     */
+    private void selectEngine() {
+        if (engineSelector == null || model == null) {
+            return;
+        }
+        try {
+            prism.setEngine(engineSelector.select(modulesFile, model, symbolicEngine));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Logs how long a check with the given engine took, for the selection of engines of later builds.
+     */
+    public void recordCheck(int engine, long millis) {
+        if (engineSelector != null) {
+            engineSelector.record(engine, millis);
+        }
+    }
+
+    public EngineSelector getEngineSelector() {
+        return engineSelector;
+    }
+
+    public void setEngineSelector(EngineSelector engineSelector) {
+        this.engineSelector = engineSelector;
+    }
+
+    private void recordResult(Property property, VariableInfo newInfo) {
+        Map<String, VariableInfo> info = (Map<String, VariableInfo>) project.getInfo().getStateEntry(OUTPUT_RESULTS);
+        info.replace(property.getName(), newInfo);
+        project.getInfo().setStateEntry(OUTPUT_RESULTS, info);
+        project.getInfo().setTransitionEntry(OUTPUT_RESULTS, info);
+        project.dataChanged();
+    }
+
+    public int getCheckWorkers() {
+        return checkWorkers;
+    }
+
+    public void setCheckWorkers(int checkWorkers) {
+        this.checkWorkers = Math.max(1, checkWorkers);
+    }
+
     public void buildModel() throws PrismException {
         //Check whether model has been build or is already queued to build
         if (this.model != null && this.isBuilt()) {
@@ -418,10 +481,141 @@ public class ModelChecker implements Namespace {
             info.get(propertyName).setStatus(VariableInfo.Status.computing);
             project.getInfo().setStateEntry(OUTPUT_RESULTS, info);
             project.getInfo().setTransitionEntry(OUTPUT_RESULTS, info);
+            project.dataChanged();
             project.getTaskManager().execute(new modelCheckTask(property));
         }
     }
 
+    /**
+     * Starts checking the given properties. With more than one worker they are checked in one task on the explicit
+     * engine, see {@link #checkParallel(List)}, otherwise each in its own task.
+     */
+    public void checkModels(List<String> propertyNames) throws PrismException {
+        List<Property> pending = propertyNames.stream().map(project::getProperty).flatMap(Optional::stream).filter(p -> !p.isChecked()).distinct().collect(Collectors.toList());
+        if (checkWorkers <= 1 || pending.size() <= 1) {
+            for (String propertyName : propertyNames) {
+                checkModel(propertyName);
+            }
+            return;
+        }
+        buildModel();
+        setStatus(pending, VariableInfo.Status.computing);
+        project.getTaskManager().execute(new modelCheckAllTask(pending));
+    }
+
+    /**
+     * Checks the properties at the same time on up to {@link #getCheckWorkers()} threads. The model is constructed once
+     * for the explicit engine and shared read-only by all workers, each of which checks with its own model checker and
+     * model generator. The results are written one after another on the calling thread, in the order of the
+     * properties, so all writes still go through the single writer of the database. Properties found in the result
+     * cache are restored instead of checked.
+     *
+     * The workers do not use the shared instance of PRISM: each gets its own log and its own copy of the settings taken
+     * when checking starts, see {@link #workerComponent(PrismSettings)}.
+     *
+     * A property that cannot be checked is marked as failed and does not stop the others. If any failed, an exception
+     * naming them is thrown once all results are written.
+     */
+    private void checkParallel(List<Property> pending) throws PrismException {
+        List<Property> properties = new ArrayList<>();
+        for (Property property : pending) {
+            VariableInfo cached = property.restore(Prism.EXPLICIT);
+            if (cached != null) {
+                recordResult(property, cached);
+            } else {
+                properties.add(property);
+            }
+        }
+        if (properties.isEmpty()) {
+            return;
+        }
+        PrismSettings settings = new PrismSettings(prism.getSettings());
+        explicit.Model explicitModel;
+        try {
+            explicitModel = buildExplicitModel(workerComponent(settings));
+        } catch (PrismException | RuntimeException e) {
+            setStatus(properties, VariableInfo.Status.failed);
+            throw e;
+        }
+        List<String> failed = new ArrayList<>();
+        ExecutorService workers = Executors.newFixedThreadPool(Math.min(checkWorkers, properties.size()));
+        try {
+            List<Future<Result>> results = new ArrayList<>();
+            for (Property property : properties) {
+                PrismComponent component = workerComponent(settings);
+                results.add(workers.submit(() -> checkExplicit(explicitModel, property, component)));
+            }
+            for (int i = 0; i < properties.size(); i++) {
+                Property property = properties.get(i);
+                try {
+                    recordResult(property, property.modelCheck(results.get(i).get(), Prism.EXPLICIT));
+                } catch (InterruptedException e) {
+                    // Unchecked properties can be started again
+                    setStatus(properties.subList(i, properties.size()), VariableInfo.Status.missing);
+                    Thread.currentThread().interrupt();
+                    throw new PrismException("Interrupted while checking " + property.getName());
+                } catch (ExecutionException | RuntimeException e) {
+                    Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                    failed.add(String.format("%s: %s", property.getName(), cause.getMessage()));
+                    setStatus(List.of(property), VariableInfo.Status.failed);
+                }
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        if (!failed.isEmpty()) {
+            throw new PrismException("Could not check " + String.join("; ", failed));
+        }
+    }
+
+    private void setStatus(List<Property> properties, VariableInfo.Status status) {
+        Map<String, VariableInfo> info = (Map<String, VariableInfo>) project.getInfo().getStateEntry(OUTPUT_RESULTS);
+        for (Property property : properties) {
+            info.get(property.getName()).setStatus(status);
+        }
+        project.getInfo().setStateEntry(OUTPUT_RESULTS, info);
+        project.getInfo().setTransitionEntry(OUTPUT_RESULTS, info);
+        project.dataChanged();
+    }
+
+    /**
+     * @return component with a log of its own and a copy of the given settings. PRISM logs are not safe to share between
+     * threads, and the settings of the shared instance change, for example when {@link #selectEngine()} picks another
+     * engine.
+     */
+    private PrismComponent workerComponent(PrismSettings settings) {
+        PrismComponent component = new PrismComponent();
+        component.setLog(project.debug ? new PrismPrintStreamLog(System.out) : new PrismDevNullLog());
+        component.setSettings(new PrismSettings(settings));
+        return component;
+    }
+
+    private explicit.Model buildExplicitModel(PrismComponent component) throws PrismException {
+        try (Timer build = new Timer("Build explicit model", project.getLog())) {
+            ConstructModel constructModel = new ConstructModel(component);
+            return constructModel.constructModel(new ModulesFileModelGenerator(modulesFile, component));
+        } catch (PrismException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Result checkExplicit(explicit.Model explicitModel, Property property, PrismComponent component) throws PrismException {
+        try (Timer time = new Timer(String.format("Checking %s", property.getName()), project.getLog())) {
+            // Model generators evaluate expressions with internal state, so every worker needs its own
+            ModulesFileModelGenerator generator = new ModulesFileModelGenerator(modulesFile, component);
+            StateModelChecker checker = StateModelChecker.createModelChecker(explicitModel.getModelType(), component);
+            checker.setModelCheckingInfo(generator, property.getPropertiesFile(), generator);
+            // Checking rewrites parts of the expression, which the workers must not share
+            return checker.check(explicitModel, (Expression) property.getExpression().deepCopy());
+        } catch (PrismException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     public void checkModelDirectly(String propertyName) throws PrismException {
         if (this.model == null || !this.isBuilt()) {
             new modelBuildTask().run();
@@ -444,9 +638,17 @@ public class ModelChecker implements Namespace {
     }
 
     public void modelCheckAll() throws PrismException {
-        for (Property p : project.getProperties()) {
-            checkModelDirectly(p.getName());
+        List<Property> pending = project.getProperties().stream().filter(p -> !p.isChecked()).collect(Collectors.toList());
+        if (checkWorkers <= 1 || pending.size() <= 1) {
+            for (Property p : project.getProperties()) {
+                checkModelDirectly(p.getName());
+            }
+            return;
+        }
+        if (this.model == null || !this.isBuilt()) {
+            new modelBuildTask().run();
         }
+        checkParallel(pending);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,290 @@
+package prism.core;
+
+import parser.VarList;
+import parser.ast.Expression;
+import parser.ast.ModulesFile;
+import prism.Evaluator;
+import prism.Prism;
+import prism.PrismException;
+import prism.core.Utility.Prism.Updater;
+import prism.db.Batch;
+import prism.db.Database;
+import simulator.Choice;
+import simulator.TransitionList;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.stream.IntStream;
+
+/**
+ * Single pass ingestion of a built model into the database.
+ *
+ * The reachable states are split into chunks that are expanded in parallel on a ForkJoinPool. Every state is parsed
+ * exactly once, and its state row is computed together with the rows of all its outgoing choices. Finished chunks are
+ * passed through a bounded queue to the calling thread, which fills the batches of the tables with their rows. The
+ * batches are flushed by the single writer of the database, see {@link Database#write}.
+ *
+ * States are identified by their compact encoding of {@link ModelParser#stateIdentifier(parser.State)} if available,
+ * otherwise by their position in the list of reachable states. Transitions are identified by
+ * {@link ModelParser#transitionIdentifier(parser.State, int)} if the model has compact transition identifiers, so that
+ * they are the same as before the build, otherwise they are numbered in the order they are written. Every choice
+ * additionally yields one row per target in the distribution table. If requested, the values of the variables are
+ * written into one column each, booleans as 0 and 1.
+ */
+public class ModelIngestion implements Namespace {
+
+    private static final int CHUNK_SIZE = 2048;
+
+    private final Project project;
+    private final ModulesFile modulesFile;
+    private final Prism prism;
+    private final int numThreads;
+
+    private final int numRewards;
+    private final int numVars;
+
+    // Only used if the model has no compact identifiers
+    private parser.State[] reachable;
+    private Map<parser.State, Long> reachableIndex;
+
+    // Only used if the model has no compact transition identifiers
+    private long nextTransitionId = 0;
+
+    public ModelIngestion(Project project, ModulesFile modulesFile, Prism prism, boolean variableColumns) {
+        this(project, modulesFile, prism, variableColumns, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ModelIngestion(Project project, ModulesFile modulesFile, Prism prism, boolean variableColumns, int numThreads) {
+        this.project = project;
+        this.modulesFile = modulesFile;
+        this.prism = prism;
+        this.numThreads = Math.max(1, numThreads);
+        this.numRewards = modulesFile.getNumRewardStructs();
+        this.numVars = variableColumns ? modulesFile.getNumVars() : 0;
+    }
+
+    /**
+     * Rows computed for a consecutive range of the reachable state list.
+     */
+    private static class Chunk {
+        final List<StateRow> states = new ArrayList<>();
+        final List<TransitionRow> transitions = new ArrayList<>();
+    }
+
+    private static class StateRow {
+        long id;
+        String name;
+        boolean initial;
+        Long labels;
+        Object[] values;
+        double[] rewards;
+    }
+
+    private static class TransitionRow {
+        // Null if numbered when written
+        Long id;
+        long origin;
+        String action;
+        double[] rewards;
+        Map<Long, Double> distribution;
+    }
+
+    /**
+     * Expands all given states and writes them into the given state and transition tables.
+     *
+     * @param stateList reachable states as exported by PRISM
+     * @param stateInsertCall prepared insert into the state table (id, name, initial, label bits, variables..., rewards...)
+     * @param transitionInsertCall prepared insert into the transition table (id, origin, action, rewards...)
+     * @param distributionInsertCall prepared insert into the distribution table (transition id, target, probability)
+     */
+    public void ingest(List<String> stateList, String stateInsertCall, String transitionInsertCall, String distributionInsertCall) throws Exception {
+        Database database = project.getDatabase();
+        int numChunks = (stateList.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        if (!project.getModelParser().hasCompactIdentifiers()) {
+            indexStates(stateList, pool);
+        }
+
+        // Updaters keep internal state while computing transitions, so every worker needs its own copy
+        BlockingQueue<Updater> updaters = new ArrayBlockingQueue<>(numThreads);
+        for (int i = 0; i < numThreads; i++) {
+            updaters.add(new Updater(modulesFile, prism));
+        }
+
+        BlockingQueue<Chunk> finished = new ArrayBlockingQueue<>(2 * numThreads);
+        try {
+            Future<?> producer = pool.submit(() -> IntStream.range(0, numChunks).parallel().forEach(c -> {
+                try {
+                    Updater updater = updaters.take();
+                    try {
+                        int from = c * CHUNK_SIZE;
+                        int to = Math.min(stateList.size(), from + CHUNK_SIZE);
+                        finished.put(expand(stateList, from, to, updater));
+                    } finally {
+                        updaters.put(updater);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                } catch (PrismException e) {
+                    throw new RuntimeException(e);
+                }
+            }));
+
+            try (Batch states = database.createBatch(stateInsertCall, 4 + numVars + numRewards);
+                 Batch transitions = database.createBatch(transitionInsertCall, 3 + numRewards);
+                 Batch distributions = database.createBatch(distributionInsertCall, 3)) {
+                int written = 0;
+                while (written < numChunks) {
+                    Chunk chunk = finished.poll(100, TimeUnit.MILLISECONDS);
+                    if (chunk == null) {
+                        // Surfaces exceptions of the workers instead of waiting forever
+                        if (producer.isDone()) producer.get();
+                        continue;
+                    }
+                    write(chunk, states, transitions, distributions);
+                    written++;
+                }
+            }
+            producer.get();
+        } catch (ExecutionException e) {
+            throw new Exception(e.getCause());
+        } finally {
+            pool.shutdownNow();
+            reachable = null;
+            reachableIndex = null;
+        }
+    }
+
+    /**
+     * Assigns every reachable state its position in the state list as identifier.
+     */
+    private void indexStates(List<String> stateList, ForkJoinPool pool) throws Exception {
+        ModelParser modelParser = project.getModelParser();
+        reachable = new parser.State[stateList.size()];
+        try {
+            pool.submit(() -> IntStream.range(0, stateList.size()).parallel().forEach(i -> {
+                try {
+                    reachable[i] = modelParser.parseState(modelParser.normalizeStateName(stateList.get(i)));
+                } catch (PrismException e) {
+                    throw new RuntimeException(e);
+                }
+            })).get();
+        } catch (ExecutionException e) {
+            pool.shutdownNow();
+            throw new Exception(e.getCause());
+        }
+        reachableIndex = new HashMap<>(2 * reachable.length);
+        for (int i = 0; i < reachable.length; i++) {
+            reachableIndex.put(reachable[i], (long) i);
+        }
+    }
+
+    private long identifier(parser.State state) {
+        if (reachableIndex == null) {
+            return project.getModelParser().stateIdentifier(state);
+        }
+        Long index = reachableIndex.get(state);
+        if (index == null) {
+            throw new RuntimeException("Unreachable state: " + state);
+        }
+        return index;
+    }
+
+    private void write(Chunk chunk, Batch states, Batch transitions, Batch distributions) throws SQLException {
+        for (StateRow row : chunk.states) {
+            states.setLong(row.id).setString(row.name).setBoolean(row.initial);
+            if (row.labels == null) {
+                states.setNull();
+            } else {
+                states.setLong(row.labels);
+            }
+            for (int i = 0; i < numVars; i++) {
+                Object value = row.values[i];
+                if (value instanceof Boolean) {
+                    states.setBoolean((Boolean) value);
+                } else {
+                    states.setLong(((Number) value).longValue());
+                }
+            }
+            for (double reward : row.rewards) {
+                states.setDouble(reward);
+            }
+            states.addRow();
+        }
+        for (TransitionRow row : chunk.transitions) {
+            long t_id = row.id != null ? row.id : nextTransitionId++;
+            transitions.setLong(t_id).setLong(row.origin).setString(row.action);
+            for (double reward : row.rewards) {
+                transitions.setDouble(reward);
+            }
+            transitions.addRow();
+            for (Map.Entry<Long, Double> target : row.distribution.entrySet()) {
+                distributions.setLong(t_id).setLong(target.getKey()).setDouble(target.getValue()).addRow();
+            }
+        }
+    }
+
+    private Chunk expand(List<String> stateList, int from, int to, Updater updater) throws PrismException {
+        ModelParser modelParser = project.getModelParser();
+        VarList varList = modulesFile.createVarList();
+        Expression initialExpression = modulesFile.getInitialStates();
+        parser.State defaultInitial = initialExpression == null ? modulesFile.getDefaultInitialState() : null;
+
+        boolean labelBits = project.hasLabelBits();
+        Chunk chunk = new Chunk();
+        boolean transitionIds = modelParser.hasCompactTransitionIdentifiers();
+
+        for (int i = from; i < to; i++) {
+            String stateName = modelParser.normalizeStateName(stateList.get(i));
+            parser.State s = reachable == null ? modelParser.parseState(stateName) : reachable[i];
+            long s_id = reachable == null ? modelParser.stateIdentifier(s) : i;
+
+            //Determine whether this is an initial state or not
+            boolean initial = initialExpression == null ? defaultInitial.equals(s) : initialExpression.evaluateBoolean(s);
+
+            TransitionList<Double> transitionList = new TransitionList<>(Evaluator.forDouble());
+            updater.calculateTransitions(s, transitionList);
+
+            StateRow stateRow = new StateRow();
+            stateRow.id = s_id;
+            stateRow.name = stateName;
+            stateRow.initial = initial;
+            // Labels are evaluated once here, so that reading states only has to decode them
+            stateRow.labels = labelBits ? project.getLabelBits(s, initial, transitionList.isDeadlock()) : null;
+            stateRow.values = s.varValues;
+            stateRow.rewards = new double[numRewards];
+            if (numRewards > 0) {
+                updater.calculateStateRewards(s, stateRow.rewards);
+            }
+            chunk.states.add(stateRow);
+            for (int j = 0; j < transitionList.getNumChoices(); j++) {
+                Choice<Double> choice = transitionList.getChoice(j);
+
+                Map<Long, Double> probabilities = new LinkedHashMap<>();
+                for (int l = 0; l < choice.size(); l++) {
+                    parser.State target = choice.computeTarget(l, s, varList);
+                    probabilities.put(identifier(target), choice.getProbability(l));
+                }
+
+                TransitionRow transitionRow = new TransitionRow();
+                transitionRow.id = transitionIds ? modelParser.transitionIdentifier(s, j) : null;
+                transitionRow.origin = s_id;
+                transitionRow.action = choice.getModuleOrAction();
+                transitionRow.distribution = probabilities;
+                transitionRow.rewards = new double[numRewards];
+                if (numRewards > 0) {
+                    updater.calculateTransitionRewards(s, choice.getModuleOrActionIndex(), transitionRow.rewards);
+                }
+                chunk.transitions.add(transitionRow);
+            }
+        }
+        return chunk;
+    }
+}
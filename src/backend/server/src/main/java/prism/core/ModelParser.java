@@ -1,6 +1,5 @@
 package prism.core;
 
-import com.google.common.math.BigIntegerMath;
 import parser.State;
 import parser.Values;
 import parser.VarList;
@@ -17,8 +16,6 @@ import prism.core.Utility.Prism.Updater;
 import simulator.Choice;
 import simulator.TransitionList;
 
-import java.math.BigInteger;
-import java.math.RoundingMode;
 import java.util.*;
 
 public class ModelParser {
@@ -30,7 +27,7 @@ public class ModelParser {
     private final Updater updater;
 
     private final VarList varList;
-    private final BigInteger maxStateIndex;
+    private final StateEncoding encoding;
     private List<parser.State> initials;
 
     public ModelParser(Project project, ModulesFile modulesFile, boolean debug) {
@@ -42,12 +39,26 @@ public class ModelParser {
         try {
             this.updater = new Updater(modulesFile, prism);
             this.varList = modulesFile.createVarList();
-            BigInteger index = BigInteger.ONE;
-            for (int i = 0; i < varList.getNumVars(); i++) {
-                int range = varList.getRange(i);
-                index = index.multiply(BigInteger.valueOf(range));
+            int numVars = varList.getNumVars();
+            int[] positions = new int[numVars];
+            int[] lows = new int[numVars];
+            int[] ranges = new int[numVars];
+            boolean[] bools = new boolean[numVars];
+            for (int i = 0; i < numVars; i++) {
+                positions[i] = modulesFile.getVarIndex(varList.getName(i));
+                lows[i] = varList.getLow(i);
+                ranges[i] = (varList.getHigh(i) - lows[i]) + 1;
+                switch (varList.getType(i).getTypeString()) {
+                    case "int":
+                        break;
+                    case "bool":
+                        bools[i] = true;
+                        break;
+                    default:
+                        throw new RuntimeException("Unknown type: " + varList.getType(i).getTypeString());
+                }
             }
-            this.maxStateIndex = index;
+            this.encoding = new StateEncoding(positions, lows, ranges, bools);
         }catch (PrismException e){
             throw new RuntimeException(e);
         }
@@ -72,7 +83,7 @@ public class ModelParser {
             throw new RuntimeException(e);
         }
         if(debug){
-            System.out.println("Parsed Model with " + this.maxStateIndex + " possible states");
+            System.out.println("Parsed Model with " + encoding.getNumValuations() + " possible states");
         }
     }
 
@@ -184,7 +195,10 @@ public class ModelParser {
     }
 
     public Map<String, Object> parseParameters(String stringValues) throws PrismLangException {
-        parser.State state = parseState(stringValues);
+        return parseParameters(parseState(stringValues));
+    }
+
+    public Map<String, Object> parseParameters(parser.State state) {
         Map<String, Object> variables = new HashMap<>();
         for (int i = 0; i < state.varValues.length; i++) {
             variables.put(modulesFile.getVarName(i), state.varValues[i]);
@@ -208,6 +222,21 @@ public class ModelParser {
         return Prism.parseSingleExpressionString(expression);
     }
 
+    /**
+     * Parses an expression over the variables of the model, with formulas and constants expanded and types checked,
+     * so that it can be evaluated on many states.
+     */
+    public Expression parseStateExpression(String expression) throws PrismLangException {
+        Expression expr = parseSingleExpressionString(expression);
+        expr = (Expression) expr.findAllFormulas(modulesFile.getFormulaList());
+        expr = (Expression) expr.expandFormulas(modulesFile.getFormulaList(), false);
+        expr = (Expression) expr.findAllConstants(modulesFile.getConstantList());
+        expr = (Expression) expr.expandConstants(modulesFile.getConstantList());
+        expr = (Expression) expr.findAllVars(modulesFile.getVarNames(), modulesFile.getVarTypes());
+        expr.typeCheck();
+        return expr;
+    }
+
     public void buildInitialStateObjects() throws Exception {
         List<parser.State> initials = new ArrayList<>();
 
@@ -224,105 +253,41 @@ public class ModelParser {
         this.initials = initials;
     }
 
-    public BigInteger stateIdentifier(parser.State state) {
-        BigInteger index = BigInteger.ZERO;
-        BigInteger prevRange = BigInteger.ONE;
-
-        for (int i = varList.getNumVars()-1; i >= 0; i--) {
-
-            int minValue = varList.getLow(i);
-            int maxValue = varList.getHigh(i);
-
-            int range = (maxValue - minValue) + 1;
-            int value;
-
-            int position = modulesFile.getVarIndex(varList.getName(i));
-
-            switch(varList.getType(i).getTypeString()){
-                case "int":
-                    value = (int) state.varValues[position];
-                    break;
-                case "bool":
-                    boolean bool = (boolean) state.varValues[position];
-                    value = bool ? 1 : 0;
-                    break;
-                default:
-                    throw new RuntimeException("Unknown type: " + varList.getType(i).getTypeString());
-            }
-
-            index = index.add(prevRange.multiply(BigInteger.valueOf(value - minValue)));
-            prevRange = prevRange.multiply(BigInteger.valueOf(range));
-        }
-
-        return index;
+    /**
+     * Whether every possible valuation of the variables can be encoded into a single long. If not, states are
+     * identified by their position in the list of reachable states, which is only known after building the model.
+     */
+    public boolean hasCompactIdentifiers() {
+        return encoding.isCompact();
     }
 
-    public BigInteger stateIdentifier(int[] values) {
-        BigInteger index = BigInteger.ZERO;
-        BigInteger prevRange = BigInteger.ONE;
-
-        for (int i = varList.getNumVars()-1; i >= 0; i--) {
-
-            int minValue = varList.getLow(i);
-            int maxValue = varList.getHigh(i);
-
-            int range = (maxValue - minValue) + 1;
-            int position = modulesFile.getVarIndex(varList.getName(i));
-
-            int value = values[position];
-
-            if (value < minValue || value > maxValue) {
-                System.out.println("Value " + value + " is out of range");
-                throw new RuntimeException("Value " + value + " is out of range");}
-
-            index = index.add(prevRange.multiply(BigInteger.valueOf(value - minValue)));
-            prevRange = prevRange.multiply(BigInteger.valueOf(range));
-        }
-
-        return index;
+    public long stateIdentifier(parser.State state) {
+        return encoding.stateIdentifier(state);
     }
 
-    public parser.State translateStateIdentifier(BigInteger stateIdentifier) {
-        parser.State state = new State(varList.getNumVars());
-
-        BigInteger prevRange = BigInteger.ONE;
-
-        for (int i = varList.getNumVars()-1; i >= 0; i--) {
-            int minValue = varList.getLow(i);
-            int maxValue = varList.getHigh(i);
-
-            int position = modulesFile.getVarIndex(varList.getName(i));
-
-            BigInteger range = BigInteger.valueOf((maxValue - minValue) + 1);
-            int value = BigIntegerMath.divide(stateIdentifier, prevRange, RoundingMode.DOWN).mod(range).intValue();
-            value += minValue;
-
-            switch(varList.getType(i).getTypeString()){
-                case "int":
-                    state.setValue(position, value);
-                    break;
-                case "bool":
-                    boolean bool = value > 0;
-                    state.setValue(position, bool);
-                    break;
-                default:
-                    throw new RuntimeException("Unknown type: " + varList.getType(i).getTypeString());
-            }
-
-            prevRange = prevRange.multiply(range);
-        }
+    public long stateIdentifier(int[] values) {
+        return encoding.stateIdentifier(values);
+    }
 
-        return state;
+    public parser.State translateStateIdentifier(long stateIdentifier) {
+        return encoding.translateStateIdentifier(stateIdentifier);
     }
 
-    public BigInteger transitionIdentifier(parser.State outState, int choice_identifier) {
-        BigInteger index = stateIdentifier(outState);
+    /**
+     * Whether {@link #transitionIdentifier(parser.State, int)} is defined for every choice of a state, see
+     * {@link StateEncoding#hasCompactTransitionIdentifiers()}. Only then the built model uses the same transition
+     * identifiers.
+     */
+    public boolean hasCompactTransitionIdentifiers() {
+        return encoding.hasCompactTransitionIdentifiers();
+    }
 
-        return index.add(this.maxStateIndex.multiply(BigInteger.valueOf(choice_identifier)));
+    public long transitionIdentifier(parser.State outState, int choice_identifier) {
+        return encoding.transitionIdentifier(outState, choice_identifier);
     }
 
     private prism.api.State convertApiState(parser.State state) throws Exception {
-        BigInteger stateidentifier = stateIdentifier(state);
+        String stateidentifier = encoding.apiIdentifier(state);
 
         int numRewards = modulesFile.getNumRewardStructs();
         List<String> rewardNames = modulesFile.getRewardStructNames();
@@ -340,11 +305,11 @@ public class ModelParser {
             rewards.put(rewardNames.get(i), rewardValues[i]);
         }
 
-        return new prism.api.State(stateidentifier.toString(), state.toString(), variables, project.getLabelMap(state), rewards, new TreeMap<>());
+        return new prism.api.State(stateidentifier, state.toString(), variables, project.getLabelMap(state), rewards, new TreeMap<>());
     }
 
     private Transition convertApiTransition(parser.State out, int choice_index, Choice<Double> choice, Map<parser.State, Double> distribution) throws Exception {
-        BigInteger identifier = transitionIdentifier(out, choice_index);
+        String identifier = encoding.apiTransitionIdentifier(out, choice_index);
 
         int numRewards = modulesFile.getNumRewardStructs();
         List<String> rewardNames = modulesFile.getRewardStructNames();
@@ -355,7 +320,7 @@ public class ModelParser {
 
         Map<String, Double> outDistribution = new HashMap<>();
         for (parser.State state : distribution.keySet()) {
-            outDistribution.put(stateIdentifier(state).toString(), distribution.get(state));
+            outDistribution.put(encoding.apiIdentifier(state), distribution.get(state));
         }
 
         Map<String, Double> rewards = new TreeMap<>();
@@ -363,7 +328,7 @@ public class ModelParser {
             rewards.put(rewardNames.get(i), rewardValues[i]);
         }
 
-        return new Transition(identifier.toString(), stateIdentifier(out).toString(), choice.getModuleOrAction(), outDistribution, rewards, null, null, null, null);
+        return new Transition(identifier, encoding.apiIdentifier(out), choice.getModuleOrAction(), outDistribution, rewards, null, null, null, null);
     }
 
     // Output Functions
@@ -420,7 +385,7 @@ public class ModelParser {
         List<Transition> transitions = new ArrayList<>();
 
         for (String stateID : stateIDs) {
-            states.add(translateStateIdentifier(new BigInteger(stateID)));
+            states.add(encoding.apiState(stateID));
         }
 
         for (parser.State state : states) {
@@ -455,7 +420,7 @@ public class ModelParser {
         List<Transition> transitions = new ArrayList<>();
 
         for (String stateID : stateIDs) {
-            states.add(translateStateIdentifier(new BigInteger(stateID)));
+            states.add(encoding.apiState(stateID));
         }
 
         for (parser.State state : states) {
@@ -488,7 +453,7 @@ public class ModelParser {
         List<Transition> transitions = new ArrayList<>();
 
         for (String stateID : stateIDs) {
-            states.add(translateStateIdentifier(new BigInteger(stateID)));
+            states.add(encoding.apiState(stateID));
         }
 
         for (parser.State state : states) {
@@ -514,7 +479,7 @@ public class ModelParser {
 
         for (String stateID : unexploredStateIDs) {
             if (outStates.stream().noneMatch(s -> s.getId().equals(stateID))){
-                parser.State state = translateStateIdentifier(new BigInteger(stateID));
+                parser.State state = encoding.apiState(stateID);
                 outStates.add(convertApiState(state));
             }
         }
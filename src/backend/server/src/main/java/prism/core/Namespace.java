@@ -12,6 +12,8 @@ public interface Namespace {
     String ENTRY_S_ID = "state_id";
     String ENTRY_S_NAME = "state_name";
     String ENTRY_S_INIT = "initials";
+    String ENTRY_S_LABELS = "labels";
+    String ENTRY_S_VAR = "var_";
     String ENTRY_REW = "reward_";
     String ENTRY_PROP = "property_";
     String ENTRY_SCHED = "scheduler_";
@@ -19,6 +21,8 @@ public interface Namespace {
     String ENTRY_T_OUT = "origin";
     String ENTRY_T_PROB = "probabilityDistribution";
     String ENTRY_T_ACT = "action";
+    String ENTRY_D_TARGET = "target_id";
+    String ENTRY_D_PROB = "probability";
 
     String ENTRY_R_ID = "id";
     String ENTRY_R_NAME = "name";
@@ -34,11 +38,24 @@ public interface Namespace {
 
     String ENTRY_SCH_ID = "id";
 
+    String ENTRY_SW_ID = "assignment";
+    String ENTRY_SW_CONSTANTS = "constants";
+    String ENTRY_SW_PROPERTY = "property";
+    String ENTRY_SW_VALUE = "value";
+    String ENTRY_SW_ERROR = "error";
+
     String TABLE_STATES_GEN = "STATES_%s";
     String TABLE_TRANS_GEN = "TRANSITION_%s";
+    String TABLE_DIST_GEN = "DISTRIBUTION_%s";
+    // Side table of a derived column: base table, column
+    String TABLE_SIDE_GEN = "%s_%s";
+
+    // Set of values bound as one JSON array parameter, usable in IN clauses
+    String BOUND_SET = "(SELECT value FROM json_each(?))";
 
     String TABLE_SCHED_GEN = "SCHEDULER_INFO_%s";
     String TABLE_RES_GEN = "INFORMATION_%s";
+    String TABLE_SWEEP_GEN = "SWEEP_%s";
 
     String TABLE_PANES = "PANES";
 
@@ -56,11 +73,19 @@ public interface Namespace {
 
     String LOG_FILE = "time.log";
 
+    String GRAPH_FILE = "graph.bin";
+
     String STYLE_FILE = "style.csv";
 
-    Set<String> FILES_RESERVED = new HashSet<>(Arrays.asList(PROJECT_MODEL, PROFEAT_MODEL, SCHEDULER_FILE, TEMP_FILE, STYLE_FILE, LOG_FILE, DATABASE_FILE, DATABASE_FILE + "-shm", DATABASE_FILE + "-wal"));
+    // Directory of the result cache, beside the projects
+    String RESULT_CACHE = ".results";
+
+    // Durations of checks by engine, beside the projects
+    String ENGINE_LOG = "engines.csv";
+
+    Set<String> FILES_RESERVED = new HashSet<>(Arrays.asList(PROJECT_MODEL, PROFEAT_MODEL, SCHEDULER_FILE, TEMP_FILE, STYLE_FILE, LOG_FILE, GRAPH_FILE, DATABASE_FILE, DATABASE_FILE + "-shm", DATABASE_FILE + "-wal"));
 
-    Set<String> FILES_INVISIBLE = new HashSet<>(Arrays.asList(TEMP_FILE, STYLE_FILE, LOG_FILE, DATABASE_FILE, DATABASE_FILE + "-shm", DATABASE_FILE + "-wal"));
+    Set<String> FILES_INVISIBLE = new HashSet<>(Arrays.asList(TEMP_FILE, STYLE_FILE, LOG_FILE, GRAPH_FILE, DATABASE_FILE, DATABASE_FILE + "-shm", DATABASE_FILE + "-wal"));
 
     String OUTPUT_RESULTS = "Model Checking Results";
 
@@ -1,6 +1,10 @@
 package prism.core;
 
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import org.jdbi.v3.core.result.ResultIterator;
 import parser.ast.Expression;
 import parser.ast.ModulesFile;
 import parser.ast.PropertiesFile;
@@ -10,15 +14,21 @@ import prism.core.Property.Property;
 import prism.core.Scheduler.Criteria;
 import prism.core.Scheduler.CriteriaSort;
 import prism.core.Scheduler.Scheduler;
-import prism.core.Utility.BaseState;
+import prism.core.Utility.Cursor;
 import prism.core.Utility.Prism.Updater;
+import prism.core.Utility.ResultCache;
+import prism.core.mdpgraph.CsrGraph;
+import prism.core.mdpgraph.Direction;
 import prism.core.mdpgraph.MdpGraph;
 import prism.core.View.*;
 import prism.db.Database;
+import prism.db.PersistentQuery;
+import prism.db.mappers.DistributionEntryMapper;
 import prism.db.mappers.PairMapper;
 import prism.db.mappers.PaneMapper;
 import prism.db.mappers.StateMapper;
 import prism.db.mappers.TransitionMapper;
+import prism.db.mappers.VariableMapper;
 import prism.server.PRISMServerConfiguration;
 import prism.server.TaskManager;
 import simulator.TransitionList;
@@ -27,8 +37,12 @@ import java.io.*;
 import java.nio.file.Files;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 /**
@@ -36,6 +50,8 @@ import java.util.stream.Collectors;
  */
 public class Project implements Namespace{
 
+    private static final Pattern ID_PATTERN = Pattern.compile("-?\\d+");
+
     private final String id;
 
     private final ModulesFile modulesFile;
@@ -47,13 +63,19 @@ public class Project implements Namespace{
     private final TaskManager taskManager;
 
     private final Database database;
+    //Storage of property, scheduler and view columns
+    private final ColumnStore columnStore;
     //Name of the associated table for states in the database
     private final String TABLE_STATES;
     //Name of the associated table for transitions in the database
     private final String TABLE_TRANS;
+    //Name of the associated table for the distributions of transitions in the database
+    private final String TABLE_DIST;
 
     private final String TABLE_SCHED;
 
+    private final String TABLE_SWEEP;
+
     public final boolean debug;
     public final long cuddMaxMem;
     public final int numIterations;
@@ -73,16 +95,54 @@ public class Project implements Namespace{
     private final Map<String, AP> APs;
 
     private MdpGraph mdpGraph = null;
+
+    // Results of earlier checks, shared by all projects, null if disabled
+    private ResultCache resultCache = null;
     private final File outLog;
 
     private boolean built = false;
 
+    //Whether the build writes one column per variable into the state table, and which of them are indexed
+    private boolean variableColumns = true;
+    private Set<String> indexedVariables = new HashSet<>();
+
+    //Whether the existing state table has the variable columns, determined on first use
+    private Boolean hasVariableColumns = null;
+    private Boolean hasLabelColumn = null;
+
+    //Graphs grouped by views, by the ids of the views. Only entries of the current data version are valid
+    private static final int QUOTIENT_CACHE_SIZE = 8;
+    private final Map<List<Long>, QuotientGraph> quotients = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Long>, QuotientGraph> eldest) {
+            return size() > QUOTIENT_CACHE_SIZE;
+        }
+    });
+    private final AtomicLong dataVersion = new AtomicLong();
+    //Distinguishes data versions of different instances of the project, e.g. after a reset or restart
+    private final long instance = System.currentTimeMillis();
+
     public static Project reset(Project original) throws Exception {
-        return new Project(original.id, original.rootDir, original.taskManager, original.database, original.cuddMaxMem, original.numIterations, original.debug);
+        Project project = new Project(original.id, original.rootDir, original.taskManager, original.database, original.cuddMaxMem, original.numIterations, original.debug);
+        project.setVariableColumns(original.variableColumns, original.indexedVariables);
+        project.columnStore.setSideTables(original.columnStore.usesSideTables());
+        project.modelChecker.setCheckWorkers(original.modelChecker.getCheckWorkers());
+        project.resultCache = original.resultCache;
+        project.modelChecker.setEngineSelector(original.modelChecker.getEngineSelector());
+        return project;
     }
 
     public Project(String id, String rootDir, TaskManager taskManager, Database database, PRISMServerConfiguration config) throws Exception {
         this(id, rootDir, taskManager, database, config.getCUDDMaxMem(), config.getIterations(), config.getDebug());
+        this.setVariableColumns(config.getVariableColumns(), config.getIndexedVariables());
+        this.columnStore.setSideTables(config.getSideTables());
+        this.modelChecker.setCheckWorkers(config.getCheckWorkers());
+        if (config.getResultCache()) {
+            this.resultCache = new ResultCache(new File(rootDir, RESULT_CACHE), config.getResultCacheBytes(), debug);
+        }
+        if (config.getEngineSelection()) {
+            this.modelChecker.setEngineSelector(new EngineSelector(new File(rootDir, ENGINE_LOG), config.getMaxExplicitStates(), debug));
+        }
     }
 
     public Project(String id, String rootDir, TaskManager taskManager, Database database, long cuddMaxMem, int numIterations, boolean debug) throws Exception {
@@ -107,13 +167,16 @@ public class Project implements Namespace{
 
         TABLE_STATES = String.format(TABLE_STATES_GEN, 0);
         TABLE_TRANS = String.format(TABLE_TRANS_GEN, 0);
+        TABLE_DIST = String.format(TABLE_DIST_GEN, 0);
         TABLE_SCHED = String.format(TABLE_SCHED_GEN, 0);
+        TABLE_SWEEP = String.format(TABLE_SWEEP_GEN, 0);
 
-        this.modelChecker = new ModelChecker(this, file, TABLE_STATES, TABLE_TRANS, TABLE_SCHED, String.format("%dm", cuddMaxMem), numIterations, debug);
+        this.modelChecker = new ModelChecker(this, file, TABLE_STATES, TABLE_TRANS, TABLE_DIST, TABLE_SCHED, String.format("%dm", cuddMaxMem), numIterations, debug);
         this.modulesFile = modelChecker.getModulesFile();
         this.modelParser = new ModelParser(this, modulesFile, debug);
 
         this.database = database;
+        this.columnStore = new ColumnStore(database, false);
 
         this.properties = new ArrayList<>();
         this.views = new ArrayList<>();
@@ -204,6 +267,105 @@ public class Project implements Namespace{
 
     public void setBuilt(boolean built) {
         this.built = built;
+        this.hasVariableColumns = null;
+        this.hasLabelColumn = null;
+        this.columnStore.invalidate();
+        this.dataChanged();
+    }
+
+    /**
+     * Marks everything derived from the project data as outdated. Has to be called whenever the model is built, a
+     * property is added or checked, a scheduler is added, a view column is written or dropped, or the ids of the views
+     * change.
+     */
+    public void dataChanged() {
+        dataVersion.incrementAndGet();
+        quotients.clear();
+    }
+
+    public long getDataVersion() {
+        return dataVersion.get();
+    }
+
+    /**
+     * @return tag of the current data of the project, changes whenever {@link #dataChanged()} is called
+     */
+    public String getDataTag() {
+        return String.format("%s-%x-%x", id, instance, dataVersion.get());
+    }
+
+    /**
+     * @return graph grouped by the given views, from the cache if it was read since the last change
+     */
+    private QuotientGraph getQuotient(List<View> activeViews) {
+        long version = dataVersion.get();
+        List<Long> key = activeViews.stream().map(View::getId).sorted().collect(Collectors.toList());
+        QuotientGraph quotient = quotients.get(key);
+        if (quotient != null && quotient.getVersion() == version) {
+            return quotient;
+        }
+        quotient = QuotientGraph.load(this, activeViews, version);
+        // A change during loading makes the result outdated already
+        if (dataVersion.get() == version) {
+            quotients.put(key, quotient);
+        }
+        return quotient;
+    }
+
+    public void setVariableColumns(boolean variableColumns, Collection<String> indexedVariables) {
+        this.variableColumns = variableColumns;
+        this.indexedVariables = new HashSet<>(indexedVariables);
+    }
+
+    public boolean writesVariableColumns() {
+        return variableColumns && modulesFile.getNumVars() > 0;
+    }
+
+    public Set<String> getIndexedVariables() {
+        return indexedVariables;
+    }
+
+    /**
+     * Whether the state table stores the label bits of {@link #getLabelBits(parser.State, boolean, boolean)}
+     */
+    public boolean hasLabelColumn() {
+        if (hasLabelColumn == null) {
+            hasLabelColumn = hasLabelBits() && database.question(String.format("SELECT name FROM pragma_table_info('%s') WHERE name = '%s'", TABLE_STATES, ENTRY_S_LABELS));
+        }
+        return hasLabelColumn;
+    }
+
+    /**
+     * Whether the state table stores the values of the variables in their own columns
+     */
+    public boolean hasVariableColumns() {
+        if (hasVariableColumns == null) {
+            hasVariableColumns = modulesFile.getNumVars() > 0 && database.question(String.format("SELECT name FROM pragma_table_info('%s') WHERE name = '%s'", TABLE_STATES, ENTRY_S_VAR + 0));
+        }
+        return hasVariableColumns;
+    }
+
+    /**
+     * Variable values of all states, read from the variable columns if available and parsed from the state names otherwise
+     */
+    public Map<Long, Map<String, Object>> getStateVariables() {
+        Map<Long, Map<String, Object>> variables = new HashMap<>();
+        VariableMapper variableMapper = new VariableMapper(this);
+        try (PersistentQuery query = database.openQuery(String.format("SELECT * FROM %s", TABLE_STATES));
+             ResultIterator<Pair<Long, Map<String, Object>>> it = query.iterator((rs, ctx) -> {
+                 parser.State state = variableMapper.map(rs, ctx);
+                 try {
+                     return new Pair<>(rs.getLong(ENTRY_S_ID), state != null ? modelParser.parseParameters(state) : modelParser.parseParameters(rs.getString(ENTRY_S_NAME)));
+                 } catch (PrismLangException e) {
+                     throw new RuntimeException(e);
+                 }
+             })) {
+            while (it.hasNext()) {
+                Pair<Long, Map<String, Object>> entry = it.next();
+                variables.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return variables;
     }
 
     public Info getInfo() {
@@ -242,10 +404,12 @@ public class Project implements Namespace{
 
         Scheduler custom = Scheduler.createScheduler(this, description.getName(), schedulers.size(), criterias);
         this.schedulers.add(custom);
+        dataChanged();
     }
 
     public void addScheduler(Scheduler scheduler){
         schedulers.add(scheduler);
+        dataChanged();
     }
 
     public void printScheduler(String pathName, boolean limit) throws Exception {
@@ -283,6 +447,34 @@ public class Project implements Namespace{
     }
 
     // internal functionality
+    public ColumnStore getColumnStore() {
+        return columnStore;
+    }
+
+    /**
+     * @return source of state rows with the results of all properties, to be used in place of the state table
+     */
+    public String getStateSource() {
+        return columnStore.source(TABLE_STATES, ENTRY_S_ID, properties.stream().map(Property::getPropertyCollumn).collect(Collectors.toList()));
+    }
+
+    /**
+     * @return source of state rows with the columns of the given views, to be used in place of the state table
+     */
+    public String getStateSource(Collection<View> views) {
+        return columnStore.source(TABLE_STATES, ENTRY_S_ID, views.stream().map(View::getCollumn).collect(Collectors.toList()));
+    }
+
+    /**
+     * @return source of transition rows with the results of all properties and all schedulers, to be used in place of
+     * the transition table
+     */
+    public String getTransitionSource() {
+        List<String> collumns = properties.stream().map(Property::getPropertyCollumn).collect(Collectors.toList());
+        schedulers.forEach(s -> collumns.add(s.getCollumnName()));
+        return columnStore.source(TABLE_TRANS, ENTRY_T_ID, collumns);
+    }
+
     public String getStateTableName() {
         return TABLE_STATES;
     }
@@ -291,6 +483,14 @@ public class Project implements Namespace{
         return TABLE_TRANS;
     }
 
+    public String getDistributionTableName() {
+        return TABLE_DIST;
+    }
+
+    public String getSweepTableName() {
+        return TABLE_SWEEP;
+    }
+
     public MdpGraph getMdpGraph() {
         return mdpGraph;
     }
@@ -299,8 +499,34 @@ public class Project implements Namespace{
         return modelParser;
     }
 
+    /**
+     * Maps the graph snapshot of the project, or builds the graph from the database and writes the snapshot if there is none
+     */
     public void buildMdpGraph() {
-        this.mdpGraph = new MdpGraph(this);
+        File snapshot = getGraphSnapshot();
+        if (snapshot.exists()) {
+            try {
+                this.mdpGraph = new MdpGraph(CsrGraph.map(snapshot));
+                return;
+            } catch (IOException e) {
+                if (debug) System.out.println("Rebuilding graph: " + e.getMessage());
+            }
+        }
+        CsrGraph csr = CsrGraph.load(this);
+        try {
+            csr.write(snapshot);
+        } catch (IOException e) {
+            if (debug) System.out.println("Could not write graph snapshot: " + e.getMessage());
+        }
+        this.mdpGraph = new MdpGraph(csr);
+    }
+
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    public File getGraphSnapshot() {
+        return new File(String.format("%s/%s/", rootDir, id) + GRAPH_FILE);
     }
 
     public boolean existsProperty(String name) {
@@ -316,6 +542,7 @@ public class Project implements Namespace{
         String name = prismProperty.getName() != null ? prismProperty.getName() : prismProperty.getExpression().toString();
         if (existsProperty(name)) return name;
         properties.add(Property.createProperty(this, properties.size(), propertiesFile, prismProperty));
+        dataChanged();
         return name;
     }
 
@@ -352,33 +579,63 @@ public class Project implements Namespace{
     }
 
     public List<String> getStatesByExpression(String expression) {
-        List<String> members = new ArrayList<>();
-        if (modulesFile.getLabelList().getLabelNames().contains(expression)) {
-            for (String stateDescription : this.modelChecker.getModel().getReachableStates().exportToStringList()) {
-                try {
-                    String id = this.getStateID(stateDescription);
-                    BaseState state = new BaseState(id, stateDescription, this);
-                    if (state.getLabels().contains(expression)) {
-                        members.add(id);
-                    }
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
-            }
-            return members;
+        return getStateIdsByExpression(expression).stream().map(String::valueOf).collect(Collectors.toList());
+    }
+
+    /**
+     * Identifiers of all states satisfying the expression. Expressions the {@link ExpressionCompiler} can translate are
+     * filtered by SQLite, all others are evaluated in parallel on the states read from the database.
+     *
+     * @param expression PRISM expression over the variables, or the name of a label
+     */
+    public List<Long> getStateIdsByExpression(String expression) {
+        if (!built) {
+            throw new RuntimeException("Model has to be built to filter states");
         }
-        for (String stateDescription : this.modelChecker.getModel().getReachableStates().exportToStringList()) {
-            try {
-                String id = this.getStateID(stateDescription);
-                BaseState state = new BaseState(id, stateDescription, this);
-                if (state.checkForProperty(expression)) {
-                    members.add(id);
-                }
-            } catch (prism.PrismLangException e) {
-                throw new RuntimeException(e);
+        // Plain label names refer to the label, not to an identifier
+        if (modulesFile.getLabelList().getLabelIndex(expression) >= 0) {
+            expression = String.format("\"%s\"", expression);
+        }
+        try {
+            Expression expr = modelParser.parseStateExpression(expression);
+            Optional<String> predicate = new ExpressionCompiler(this).compile(expr);
+            if (predicate.isPresent()) {
+                return database.executeCollectionQuery(String.format("SELECT %s FROM %s WHERE %s", ENTRY_S_ID, TABLE_STATES, predicate.get()), Long.class);
             }
+            Expression evaluable = (Expression) expr.expandLabels(modulesFile.getLabelList());
+            return readStates().parallelStream()
+                    .filter(state -> {
+                        try {
+                            return evaluable.evaluateBoolean(state.getValue());
+                        } catch (PrismLangException e) {
+                            throw new RuntimeException(e);
+                        }
+                    })
+                    .map(Pair::getKey)
+                    .collect(Collectors.toList());
+        } catch (PrismLangException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * All states of the state table with their identifiers. Names are only parsed if there are no variable columns.
+     */
+    private List<Pair<Long, parser.State>> readStates() {
+        if (hasVariableColumns()) {
+            VariableMapper variableMapper = new VariableMapper(this);
+            return database.executeCollectionQuery(String.format("SELECT * FROM %s", TABLE_STATES), (rs, ctx) -> new Pair<>(rs.getLong(ENTRY_S_ID), variableMapper.map(rs, ctx)));
         }
-        return members;
+        return database.executeCollectionQuery(String.format("SELECT %s, %s FROM %s", ENTRY_S_ID, ENTRY_S_NAME, TABLE_STATES), new PairMapper<>(ENTRY_S_ID, ENTRY_S_NAME, Long.class, String.class))
+                .parallelStream()
+                .map(state -> {
+                    try {
+                        return new Pair<>(state.getKey(), modelParser.parseState(state.getValue()));
+                    } catch (PrismLangException e) {
+                        throw new RuntimeException(e);
+                    }
+                })
+                .collect(Collectors.toList());
     }
 
     // access to Model Checker
@@ -391,6 +648,36 @@ public class Project implements Namespace{
         modelChecker.checkModel(propertyName);
     }
 
+    public void checkProperties(List<String> propertyNames) throws PrismException {
+        modelChecker.checkModels(propertyNames);
+    }
+
+    public void recordCheck(int engine, long millis) {
+        modelChecker.recordCheck(engine, millis);
+    }
+
+    /**
+     * Starts checking the given properties for every assignment of the grid to the undefined constants of the model.
+     * Results are collected in the sweep table, see {@link #getSweepResults()}.
+     *
+     * @param constants grid of values in the syntax of the -const switch of PRISM, e.g. "N=1:5,p=0.1:0.1:0.5"
+     * @param propertyNames properties to check, all if empty
+     * @return number of assignments in the grid
+     */
+    public int sweep(String constants, List<String> propertyNames) throws PrismException {
+        List<Property> swept = propertyNames.isEmpty() ? new ArrayList<>(properties) : propertyNames.stream().map(this::getProperty).flatMap(Optional::stream).collect(Collectors.toList());
+        ConstantSweep sweep = new ConstantSweep(this, constants, swept, modelChecker.getCheckWorkers());
+        taskManager.execute(sweep);
+        return sweep.size();
+    }
+
+    public List<Map<String, Object>> getSweepResults() {
+        if (!database.question(String.format("SELECT name FROM sqlite_schema WHERE type='table' AND name='%s'", TABLE_SWEEP))) {
+            return new ArrayList<>();
+        }
+        return database.executeCollectionQuery(String.format("SELECT * FROM %s ORDER BY %s, rowid", TABLE_SWEEP, ENTRY_SW_ID));
+    }
+
     public void loadPropertyFiles() throws Exception {
         boolean fileForModelCheckingFound = false;
         for (File file : Objects.requireNonNull(new File(String.format("%s/%s", rootDir, id)).listFiles())) {
@@ -497,17 +784,26 @@ public class Project implements Namespace{
 
     public String getStateID(String stateDescription) {
         String stateName = modelParser.normalizeStateName(stateDescription);
-        Optional<String> results = database.executeLookupQuery(String.format("SELECT %s FROM %s WHERE %s = '%s';", ENTRY_S_ID, TABLE_STATES, ENTRY_S_NAME, stateName), String.class);
+        Optional<String> results = database.executePreparedLookup(String.format("SELECT %s FROM %s WHERE %s = ?", ENTRY_S_ID, TABLE_STATES, ENTRY_S_NAME), String.class, stateName);
         if (results.isEmpty()) return "-1";
         return results.get();
     }
 
     public String getStateName(String stateID) {
-        Optional<String> results = database.executeLookupQuery(String.format("SELECT %s FROM %s WHERE %s = '%s';", ENTRY_S_NAME, TABLE_STATES, ENTRY_S_ID, stateID), String.class);
+        Optional<String> results = database.executePreparedLookup(String.format("SELECT %s FROM %s WHERE %s = ?", ENTRY_S_NAME, TABLE_STATES, ENTRY_S_ID), String.class, Long.parseLong(stateID));
         if (results.isEmpty()) return null;
         return results.get();
     }
 
+    /**
+     * Encodes state identifiers as a JSON array, to be bound to {@link Namespace#BOUND_SET}. The SQL text then does not
+     * depend on the number of states requested, so its prepared statement is reused. Identifiers are stored as
+     * integers, anything else can never match and is dropped.
+     */
+    private static String idSet(Collection<String> stateIDs) {
+        return stateIDs.stream().filter(s -> ID_PATTERN.matcher(s).matches()).collect(Collectors.joining(",", "[", "]"));
+    }
+
     /**
      *
      * @return List of stateIDs of all States
@@ -522,8 +818,8 @@ public class Project implements Namespace{
      * @return List of actual state objects
      */
     public List<State> getStates(List<Long> stateIDs) {
-        String stateString = stateIDs.stream().map(l -> Long.toString(l)).collect(Collectors.joining(","));
-        return database.executeCollectionQuery(String.format("SELECT * FROM %s WHERE %s in (%s)", TABLE_STATES, ENTRY_S_ID, stateString), new StateMapper(this, null));
+        String stateString = stateIDs.stream().map(l -> Long.toString(l)).collect(Collectors.joining(",", "[", "]"));
+        return database.executePreparedCollection(String.format("SELECT * FROM %s WHERE %s IN %s", getStateSource(), ENTRY_S_ID, BOUND_SET), new StateMapper(this, null), stateString);
     }
 
     /**
@@ -532,17 +828,50 @@ public class Project implements Namespace{
      * @return List of IDs of transitions
      */
     public List<Transition> getOutgoingList(String stateID) {
-        return database.executeCollectionQuery(String.format("SELECT * FROM %s WHERE %s == %s ", TABLE_TRANS, ENTRY_T_OUT, stateID), new TransitionMapper(this));
+        return getTransitions(String.format("%s = %s", ENTRY_T_OUT, Long.parseLong(stateID)));
 
     }
 
-    /*
-    public List<Transition> getIncomingList(long stateID) {
-        return database.executeCollectionQuery(String.format("SELECT *, GROUP_CONCAT(%s || ':' || %s, ';') as %s FROM %s WHERE %s == %s GROUP BY %s, %s",ENTRY_T_IN, ENTRY_T_PROB, ENTRY_T_MAP, TABLE_TRANS, ENTRY_T_IN, stateID, ENTRY_T_OUT, ENTRY_T_ACT), new TransitionMapper());
-    }*/
+    /**
+     *
+     * @param stateID is ID of state
+     * @return List of transitions that reach the state with positive probability
+     */
+    public List<Transition> getIncomingList(String stateID) {
+        return getTransitions(String.format("%s IN (SELECT %s FROM %s WHERE %s = %s)", ENTRY_T_ID, ENTRY_T_ID, TABLE_DIST, ENTRY_D_TARGET, Long.parseLong(stateID)));
+    }
 
     public List<Transition> getAllTransitions() {
-        return database.executeCollectionQuery(String.format("SELECT * FROM %s", TABLE_TRANS), new TransitionMapper(this));
+        return getTransitions("1");
+    }
+
+    /**
+     * Reads all transitions matching the condition, including their distributions.
+     *
+     * @param condition WHERE clause on the transition table
+     * @param params values bound to the parameters of the condition
+     */
+    private List<Transition> getTransitions(String condition, Object... params) {
+        Map<String, Map<String, Double>> distributions = getDistributions(condition, params);
+        return database.executePreparedCollection(String.format("SELECT * FROM %s WHERE %s", getTransitionSource(), condition), new TransitionMapper(this, distributions), params);
+    }
+
+    /**
+     * Reads the distributions of all transitions matching the condition, by transition id.
+     *
+     * @param condition WHERE clause on the transition table
+     * @param params values bound to the parameters of the condition
+     */
+    private Map<String, Map<String, Double>> getDistributions(String condition, Object... params) {
+        Map<String, Map<String, Double>> distributions = new HashMap<>();
+        String query = String.format("SELECT %s, %s, %s FROM %s WHERE %s IN (SELECT %s FROM %s WHERE %s)", ENTRY_T_ID, ENTRY_D_TARGET, ENTRY_D_PROB, TABLE_DIST, ENTRY_T_ID, ENTRY_T_ID, TABLE_TRANS, condition);
+        try (PersistentQuery q = database.openQuery(query).bind(params); ResultIterator<DistributionEntryMapper.Entry> it = q.iterator(new DistributionEntryMapper())) {
+            while (it.hasNext()) {
+                DistributionEntryMapper.Entry e = it.next();
+                distributions.computeIfAbsent(Long.toString(e.transition), k -> new HashMap<>()).put(Long.toString(e.target), e.probability);
+            }
+        }
+        return distributions;
     }
 
     // Output Functions
@@ -555,7 +884,7 @@ public class Project implements Namespace{
             }
         }
         try {
-            List<State> initials = database.executeCollectionQuery(String.format("SELECT * FROM %s WHERE %s = 1", TABLE_STATES, ENTRY_S_INIT), new StateMapper(this, null));
+            List<State> initials = database.executeCollectionQuery(String.format("SELECT * FROM %s WHERE %s = 1", getStateSource(), ENTRY_S_INIT), new StateMapper(this, null));
 
             return new Graph(this, initials, new ArrayList<>());
         } catch (Exception e) {
@@ -588,7 +917,7 @@ public class Project implements Namespace{
             identifierStates.append(String.format("|| CASE WHEN %s THEN %s ELSE '+' END", blankStates.toString(), ENTRY_S_ID));
             groupStates.append(String.format(", CASE WHEN %s THEN %s ELSE 1 END", blankStates.toString(), ENTRY_S_ID));
 
-            List<State> initials = database.executeCollectionQuery(String.format("SELECT %s as %s, GROUP_CONCAT(%s,';') AS %s FROM %s WHERE %s = 1 GROUP BY %s", identifierStates.toString(), ENTRY_C_NAME, ENTRY_S_ID, ENTRY_C_SUB, TABLE_STATES, ENTRY_S_INIT, groupStates.toString()), new StateMapper(this, activeViews));
+            List<State> initials = database.executeCollectionQuery(String.format("SELECT %s as %s, GROUP_CONCAT(%s,';') AS %s FROM %s WHERE %s = 1 GROUP BY %s", identifierStates.toString(), ENTRY_C_NAME, ENTRY_S_ID, ENTRY_C_SUB, getStateSource(activeViews), ENTRY_S_INIT, groupStates.toString()), new StateMapper(this, activeViews));
 
             return new Graph(this, initials, new ArrayList<>());
         } catch (Exception e) {
@@ -604,42 +933,167 @@ public class Project implements Namespace{
                 throw new RuntimeException(e);
             }
         }
-        List<State> states = database.executeCollectionQuery(String.format("SELECT * FROM %s", TABLE_STATES), new StateMapper(this, null));
-        List<Transition> transitions = database.executeCollectionQuery(String.format("SELECT * FROM %s", TABLE_TRANS), new TransitionMapper(this));
+        List<State> states = database.executeCollectionQuery(String.format("SELECT * FROM %s", getStateSource()), new StateMapper(this, null));
+        List<Transition> transitions = getAllTransitions();
         return new Graph(this, states, transitions);
     }
 
-    public Graph getGraph(List<Integer> viewIDs) {
-        List<View> activeViews = this.getViews(viewIDs);
-        if (views == null || views.isEmpty() || activeViews.isEmpty()) return this.getGraph();
+    /**
+     * Reads one page of the entire graph: the states following the cursor in order of their id, and the transitions
+     * leaving them. Before the model is built, the graph is returned in one page.
+     *
+     * @param after last state id of the previous page, {@link Cursor#START} for the first page
+     * @param limit maximal number of states in the page
+     */
+    public Graph getGraph(long after, int limit) {
+        if (!built) return getGraph();
+        List<State> states = database.executePreparedCollection(String.format("SELECT * FROM %s WHERE %s > ? ORDER BY %s LIMIT ?", getStateSource(), ENTRY_S_ID, ENTRY_S_ID), new StateMapper(this, null), after, limit);
+        List<String> page = states.stream().map(State::getId).collect(Collectors.toList());
+        List<Transition> transitions = getTransitions(String.format("%s IN %s", ENTRY_T_OUT, BOUND_SET), idSet(page));
+        Graph graph = new Graph(this, states, transitions);
+        if (states.size() == limit) {
+            graph.setNext(Cursor.encode(Long.parseLong(page.get(page.size() - 1))));
+        }
+        return graph;
+    }
+
+    /**
+     * Selects one page of the requested states, in order of their id. Returns one state more than the page holds if
+     * further pages follow.
+     */
+    private static List<String> page(Collection<String> stateIDs, long after, int limit) {
+        return stateIDs.stream()
+                .filter(s -> ID_PATTERN.matcher(s).matches())
+                .map(Long::parseLong)
+                .filter(id -> id > after)
+                .distinct()
+                .sorted()
+                .limit(limit + 1L)
+                .map(String::valueOf)
+                .collect(Collectors.toList());
+    }
+
+    private static void setNext(Graph graph, List<String> page, int limit) {
+        if (page.size() > limit) {
+            graph.setNext(Cursor.encode(Long.parseLong(page.get(limit - 1))));
+        }
+    }
+
+    /**
+     * Writes the entire graph in the JSON form of {@link Graph}, without holding it in memory as a whole. The graph is
+     * read in one snapshot and spooled to temporary files, nodes and edges separately, so that transitions are read only
+     * once. The snapshot is released before the files are copied to the client, so a slow client does not keep the WAL
+     * of the database from being checkpointed.
+     *
+     * @param generator generator with a codec that can write states, transitions, edges and info
+     */
+    public void writeGraph(JsonGenerator generator) throws IOException {
+        if (!built) {
+            generator.writeObject(getGraph());
+            generator.flush();
+            return;
+        }
+        File nodes = Files.createTempFile("nodes", ".json").toFile();
+        File edges = Files.createTempFile("edges", ".json").toFile();
         try {
-            StringBuilder identifierStates = null;
-            StringBuilder groupStates = null;
-            StringBuilder blankStates = null;
-            for (View c : activeViews){
-                if (identifierStates == null){
-                    identifierStates = new StringBuilder();
-                    groupStates = new StringBuilder();
-                    blankStates = new StringBuilder();
-                }else{
-                    identifierStates.append(" || '" + C_CONCAT_SYMBOL + "' || ");
-                    groupStates.append(", ");
-                    blankStates.append(" AND ");
+            Info info;
+            try (JsonGenerator nodeGenerator = spool(nodes, generator); JsonGenerator edgeGenerator = spool(edges, generator)) {
+                info = database.inSnapshot(() -> {
+                    try {
+                        nodeGenerator.writeStartArray();
+                        edgeGenerator.writeStartArray();
+                        database.forEach(String.format("SELECT * FROM %s", getStateSource()), new StateMapper(this, null), state -> write(nodeGenerator, state));
+                        forEachTransition(transition -> {
+                            write(nodeGenerator, transition);
+                            transition.createEdges().forEach(edge -> write(edgeGenerator, edge));
+                        });
+                        nodeGenerator.writeEndArray();
+                        edgeGenerator.writeEndArray();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return getInformation();
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            generator.writeStartObject();
+            generator.writeFieldName("nodes");
+            copy(nodes, generator);
+            generator.writeFieldName("edges");
+            copy(edges, generator);
+            generator.writeObjectField("info", info);
+            generator.writeEndObject();
+            generator.flush();
+        } finally {
+            nodes.delete();
+            edges.delete();
+        }
+    }
+
+    /**
+     * Passes all transitions with their distributions to the consumer, in order of their id. Distributions are read in
+     * the same query, joined with the transitions, one row per entry.
+     */
+    private void forEachTransition(Consumer<Transition> consumer) {
+        String query = String.format("SELECT %s.*, %s.%s, %s.%s FROM %s LEFT JOIN %s ON %s.%s = %s.%s ORDER BY %s.%s",
+                TABLE_TRANS, TABLE_DIST, ENTRY_D_TARGET, TABLE_DIST, ENTRY_D_PROB, getTransitionSource(), TABLE_DIST,
+                TABLE_DIST, ENTRY_T_ID, TABLE_TRANS, ENTRY_T_ID, TABLE_TRANS, ENTRY_T_ID);
+        // Distribution of the current transition, the mapper looks it up by id
+        Map<String, Map<String, Double>> distribution = new HashMap<>();
+        TransitionMapper mapper = new TransitionMapper(this, distribution);
+        String[] id = new String[1];
+        Transition[] current = new Transition[1];
+        database.forEach(query, (rs, ctx) -> {
+            String transitionID = rs.getString(ENTRY_T_ID);
+            if (!transitionID.equals(id[0])) {
+                if (current[0] != null) {
+                    consumer.accept(current[0]);
                 }
-                identifierStates.append(c.getCollumn());
-                groupStates.append(c.getCollumn());
-                blankStates.append(String.format("%s = '%s'", c.getCollumn(), Namespace.ENTRY_C_BLANK));
+                id[0] = transitionID;
+                distribution.clear();
+                distribution.put(transitionID, new HashMap<>());
+                current[0] = mapper.map(rs, ctx);
             }
+            String target = rs.getString(ENTRY_D_TARGET);
+            if (target != null) {
+                distribution.get(transitionID).put(target, rs.getDouble(ENTRY_D_PROB));
+            }
+            return null;
+        }, row -> {});
+        if (current[0] != null) {
+            consumer.accept(current[0]);
+        }
+    }
 
-            identifierStates.append(String.format("|| CASE WHEN %s THEN %s ELSE '' END", blankStates.toString(), ENTRY_S_ID));
-            groupStates.append(String.format(", CASE WHEN %s THEN %s ELSE 1 END", blankStates.toString(), ENTRY_S_ID));
+    /**
+     * @return generator writing to the file with the codec of the given generator
+     */
+    private static JsonGenerator spool(File file, JsonGenerator generator) throws IOException {
+        return generator.getCodec().getFactory().createGenerator(file, JsonEncoding.UTF8).setCodec(generator.getCodec());
+    }
 
-            List<State> states = database.executeCollectionQuery(String.format("SELECT %s as %s, GROUP_CONCAT(%s,';') AS %s FROM %s GROUP BY %s", identifierStates, ENTRY_C_NAME, ENTRY_S_ID, ENTRY_C_SUB, TABLE_STATES, groupStates), new StateMapper(this, activeViews));
+    private static void copy(File file, JsonGenerator generator) throws IOException {
+        try (JsonParser parser = generator.getCodec().getFactory().createParser(file)) {
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
+        }
+    }
 
-            Map<String, String> reverseView = database.executeCollectionQuery(String.format("SELECT %s, %s AS %s FROM %s", ENTRY_S_ID, identifierStates, ENTRY_C_NAME, TABLE_STATES), new PairMapper<>(ENTRY_S_ID, ENTRY_C_NAME, String.class, String.class)).stream().collect(Collectors.toMap(Pair::getKey, Pair::getValue));
+    private static void write(JsonGenerator generator, Object value) {
+        try {
+            generator.writeObject(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-            List<Transition> transitions = database.executeCollectionQuery(String.format("SELECT min(%s) AS %s, %s AS %s, %s, GROUP_CONCAT(%s,';') AS %s FROM %s JOIN %s ON %s = %s GROUP BY %s, %s", ENTRY_T_ID, ENTRY_T_ID, identifierStates, ENTRY_T_OUT, ENTRY_T_ACT, ENTRY_T_PROB, ENTRY_T_PROB, TABLE_TRANS, TABLE_STATES, ENTRY_S_ID, ENTRY_T_OUT, groupStates, ENTRY_T_ACT), new TransitionMapper(this, activeViews, reverseView));
-            return new Graph(this, states, transitions);
+    public Graph getGraph(List<Integer> viewIDs) {
+        List<View> activeViews = this.getViews(viewIDs);
+        if (views == null || views.isEmpty() || activeViews.isEmpty()) return this.getGraph();
+        try {
+            QuotientGraph quotient = getQuotient(activeViews);
+            return new Graph(this, quotient.getStates(), quotient.getTransitions());
         }catch (Exception e){
             throw new RuntimeException(e);
         }
@@ -654,9 +1108,9 @@ public class Project implements Namespace{
             }
         }
         List<String> stringIds = new ArrayList<>(stateIDs);
-        String stateID = stateIDs.stream().map(s -> "'" + s + "'").collect(Collectors.joining(","));
-        List<State> states = database.executeCollectionQuery(String.format("SELECT * FROM %s WHERE %s in (%s)", TABLE_STATES, ENTRY_S_ID, stateID) , new StateMapper(this, null));
-        List<Transition> transitions = database.executeCollectionQuery(String.format("SELECT * FROM %s WHERE %s IN (%s)", TABLE_TRANS, ENTRY_T_OUT, stateID), new TransitionMapper(this));
+        String stateID = idSet(stateIDs);
+        List<State> states = database.executePreparedCollection(String.format("SELECT * FROM %s WHERE %s IN %s", getStateSource(), ENTRY_S_ID, BOUND_SET), new StateMapper(this, null), stateID);
+        List<Transition> transitions = getTransitions(String.format("%s IN %s", ENTRY_T_OUT, BOUND_SET), stateID);
         List<Transition> transitionsOut = new ArrayList<>();
         for (Transition t : transitions){
             Set<String> reach = new HashSet<>(t.getProbabilityDistribution().keySet());
@@ -668,41 +1122,43 @@ public class Project implements Namespace{
         return new Graph(this, states, transitionsOut);
     }
 
+    /**
+     * Reads one page of the subgraph of the given states. The page holds the next states in order of their id and
+     * their transitions within all of the given states.
+     *
+     * @param after last state id of the previous page, {@link Cursor#START} for the first page
+     * @param limit maximal number of states in the page
+     */
+    public Graph getSubGraph(List<String> stateIDs, long after, int limit) {
+        if (!built) return getSubGraph(stateIDs);
+        List<String> page = page(stateIDs, after, limit);
+        String pageSet = idSet(page.subList(0, Math.min(limit, page.size())));
+        List<State> states = database.executePreparedCollection(String.format("SELECT * FROM %s WHERE %s IN %s", getStateSource(), ENTRY_S_ID, BOUND_SET), new StateMapper(this, null), pageSet);
+        List<Transition> transitions = getTransitions(String.format("%s IN %s", ENTRY_T_OUT, BOUND_SET), pageSet);
+        List<Transition> transitionsOut = new ArrayList<>();
+        for (Transition t : transitions){
+            Set<String> reach = new HashSet<>(t.getProbabilityDistribution().keySet());
+            stateIDs.forEach(reach::remove);
+            if (reach.isEmpty()){
+                transitionsOut.add(t);
+            }
+        }
+        Graph graph = new Graph(this, states, transitionsOut);
+        setNext(graph, page, limit);
+        return graph;
+    }
+
     public Graph getSubGraph(List<String> stateIDs, List<Integer> viewIDs) {
         List<View> activeViews = this.getViews(viewIDs);
         if (views == null || views.isEmpty() || activeViews.isEmpty()) return this.getSubGraph(stateIDs);
 
         try {
-            StringBuilder identifierStates = null;
-            StringBuilder groupStates = null;
-            StringBuilder blankStates = null;
-            for (View c : activeViews){
-                if (identifierStates == null){
-                    identifierStates = new StringBuilder();
-                    groupStates = new StringBuilder();
-                    blankStates = new StringBuilder();
-                }else{
-                    identifierStates.append(" || '" + C_CONCAT_SYMBOL + "' || ");
-                    groupStates.append(", ");
-                    blankStates.append(" AND ");
-                }
-                identifierStates.append(c.getCollumn());
-                groupStates.append(c.getCollumn());
-                blankStates.append(String.format("%s = '%s'", c.getCollumn(), Namespace.ENTRY_C_BLANK));
-            }
-
-            identifierStates.append(String.format("|| CASE WHEN %s THEN %s ELSE '' END", blankStates.toString(), ENTRY_S_ID));
-            groupStates.append(String.format(", CASE WHEN %s THEN %s ELSE 1 END", blankStates.toString(), ENTRY_S_ID));
-
-            String stateID = stateIDs.stream().map(s -> "'" + s + "'").collect(Collectors.joining(","));
-
-            List<State> states = database.executeCollectionQuery(String.format("SELECT %s as %s, GROUP_CONCAT(%s,';') AS %s FROM %s GROUP BY %s", identifierStates, ENTRY_C_NAME, ENTRY_S_ID, ENTRY_C_SUB, TABLE_STATES, groupStates), new StateMapper(this, activeViews));
-            Set<String> stringIDs = states.stream().map(State::getId).collect(Collectors.toSet());
-            Map<String, String> reverseView = database.executeCollectionQuery(String.format("SELECT %s, %s AS %s FROM %s", ENTRY_S_ID, identifierStates, ENTRY_C_NAME, TABLE_STATES), new PairMapper<>(ENTRY_S_ID, ENTRY_C_NAME, String.class, String.class)).stream().collect(Collectors.toMap(Pair::getKey, Pair::getValue));
+            QuotientGraph quotient = getQuotient(activeViews);
+            List<State> states = quotient.getStates();
+            Set<String> stringIDs = states.stream().map(State::getName).collect(Collectors.toSet());
 
-            List<Transition> transitions = database.executeCollectionQuery(String.format("SELECT min(%s) AS %s, %s AS %s, %s, GROUP_CONCAT(%s,';') AS %s FROM %s JOIN %s ON %s = %s WHERE %s IN (%s) GROUP BY %s, %s", ENTRY_T_ID, ENTRY_T_ID, identifierStates, ENTRY_T_OUT, ENTRY_T_ACT, ENTRY_T_PROB, ENTRY_T_PROB , TABLE_TRANS, TABLE_STATES, ENTRY_S_ID, ENTRY_T_OUT ,ENTRY_T_OUT, stateID, groupStates, ENTRY_T_ACT), new TransitionMapper(this, activeViews, reverseView));
             List<Transition> transitionsOut = new ArrayList<>();
-            for (Transition t : transitions){
+            for (Transition t : quotient.getOutgoing(quotient.resolve(stateIDs))){
                 Set<String> reach = new HashSet<>(t.getProbabilityDistribution().keySet());
                 stringIDs.forEach(reach::remove);
                 if (reach.isEmpty()){
@@ -726,7 +1182,7 @@ public class Project implements Namespace{
                 throw new RuntimeException(e);
             }
         }
-        Optional<State> results = database.executeLookupQuery(String.format("SELECT * FROM %s WHERE %s = %s", TABLE_STATES, ENTRY_S_ID, stateID), new StateMapper(this, null));
+        Optional<State> results = database.executePreparedLookup(String.format("SELECT * FROM %s WHERE %s = ?", getStateSource(), ENTRY_S_ID), new StateMapper(this, null), Long.parseLong(stateID));
         if (results.isEmpty()) return null;
         List<State> states = new ArrayList<>();
         states.add(results.get());
@@ -741,59 +1197,56 @@ public class Project implements Namespace{
                 throw new RuntimeException(e);
             }
         }
-        String stateID = stateIDs.stream().map(s -> "'" + s + "'").collect(Collectors.joining(","));
-        List<Transition> transitions = database.executeCollectionQuery(String.format("SELECT * FROM %s WHERE %s IN (%s)", TABLE_TRANS, ENTRY_T_OUT, stateID), new TransitionMapper(this));
+        String stateID = idSet(stateIDs);
+        List<Transition> transitions = getTransitions(String.format("%s IN %s", ENTRY_T_OUT, BOUND_SET), stateID);
         //System.out.println(transitions.size());
         Set<String> statesOfInterest = new HashSet<>();
         for (Transition t : transitions) {
             statesOfInterest.add(t.getSource());
             statesOfInterest.addAll(new ArrayList<>(t.getProbabilityDistribution().keySet()));
         }
-        String stateString = statesOfInterest.stream().map(s -> "'" + s + "'").collect(Collectors.joining(","));
-        List<State> states = database.executeCollectionQuery(String.format("SELECT * FROM %s WHERE %s in (%s)", TABLE_STATES, ENTRY_S_ID, stateString), new StateMapper(this, null));
+        String stateString = idSet(statesOfInterest);
+        List<State> states = database.executePreparedCollection(String.format("SELECT * FROM %s WHERE %s IN %s", getStateSource(), ENTRY_S_ID, BOUND_SET), new StateMapper(this, null), stateString);
         return new Graph(this, states, transitions);
     }
 
+    /**
+     * Reads one page of the outgoing transitions of the given states. The page holds the transitions of the next
+     * states in order of their id, and all states they connect.
+     *
+     * @param after last state id of the previous page, {@link Cursor#START} for the first page
+     * @param limit maximal number of source states in the page
+     */
+    public Graph getOutgoing(List<String> stateIDs, long after, int limit) {
+        if (!built) return getOutgoing(stateIDs);
+        List<String> page = page(stateIDs, after, limit);
+        List<Transition> transitions = getTransitions(String.format("%s IN %s", ENTRY_T_OUT, BOUND_SET), idSet(page.subList(0, Math.min(limit, page.size()))));
+        Set<String> statesOfInterest = new HashSet<>();
+        for (Transition t : transitions) {
+            statesOfInterest.add(t.getSource());
+            statesOfInterest.addAll(t.getProbabilityDistribution().keySet());
+        }
+        List<State> states = database.executePreparedCollection(String.format("SELECT * FROM %s WHERE %s IN %s", getStateSource(), ENTRY_S_ID, BOUND_SET), new StateMapper(this, null), idSet(statesOfInterest));
+        Graph graph = new Graph(this, states, transitions);
+        setNext(graph, page, limit);
+        return graph;
+    }
+
     public Graph getOutgoing(List<String> stateIDs, List<Integer> viewIDs) {
         List<View> activeViews = this.getViews(viewIDs);
         if (views == null || views.isEmpty() || activeViews.isEmpty()) return this.getOutgoing(stateIDs);
 
         try{
-            StringBuilder identifierStates = null;
-            StringBuilder groupStates = null;
-            StringBuilder blankStates = null;
-            for (View c : activeViews){
-                if (identifierStates == null){
-                    identifierStates = new StringBuilder();
-                    groupStates = new StringBuilder();
-                    blankStates = new StringBuilder();
-                }else{
-                    identifierStates.append(" || '" + C_CONCAT_SYMBOL + "' || ");
-                    groupStates.append(", ");
-                    blankStates.append(" AND ");
-                }
-                identifierStates.append(c.getCollumn());
-                groupStates.append(c.getCollumn());
-                blankStates.append(String.format("%s = '%s'", c.getCollumn(), Namespace.ENTRY_C_BLANK));
-            }
-
-            identifierStates.append(String.format("|| CASE WHEN %s THEN %s ELSE '' END", blankStates.toString(), ENTRY_S_ID));
-            groupStates.append(String.format(", CASE WHEN %s THEN %s ELSE 1 END", blankStates.toString(), ENTRY_S_ID));
-
-            Map<String, String> reverseView = database.executeCollectionQuery(String.format("SELECT %s, %s AS %s FROM %s", ENTRY_S_ID, identifierStates, ENTRY_C_NAME, TABLE_STATES), new PairMapper<>(ENTRY_S_ID, ENTRY_C_NAME, String.class, String.class)).stream().collect(Collectors.toMap(Pair::getKey, Pair::getValue));
+            QuotientGraph quotient = getQuotient(activeViews);
+            List<Transition> transitions = quotient.getOutgoing(quotient.resolve(stateIDs));
 
-            String stateID = stateIDs.stream().map(s -> "'" + s + "'").collect(Collectors.joining(","));
-
-            List<Transition> transitions = database.executeCollectionQuery(String.format("SELECT min(%s) AS %s, %s AS %s, %s, GROUP_CONCAT(%s,';') AS %s FROM %s JOIN %s ON %s = %s WHERE %s IN (%s) GROUP BY %s, %s", ENTRY_T_ID, ENTRY_T_ID, identifierStates, ENTRY_T_OUT, ENTRY_T_ACT, ENTRY_T_PROB, ENTRY_T_PROB , TABLE_TRANS, TABLE_STATES, ENTRY_S_ID, ENTRY_T_OUT ,ENTRY_T_OUT, stateID, groupStates, ENTRY_T_ACT), new TransitionMapper(this, activeViews, reverseView));
-
-            Set<String> statesOfInterest = new HashSet<>();
+            Set<String> statesOfInterest = new LinkedHashSet<>();
             for (Transition t : transitions) {
                 statesOfInterest.add(t.getSource());
                 statesOfInterest.addAll(new ArrayList<>(t.getProbabilityDistribution().keySet()));
             }
-            String stateString = statesOfInterest.stream().map(s -> String.format("'%s'", s)).collect(Collectors.joining(","));
 
-            List<State> states = database.executeCollectionQuery(String.format("SELECT %s as %s, GROUP_CONCAT(%s,';') AS %s FROM %s WHERE %s IN (%s) GROUP BY %s", identifierStates, ENTRY_C_NAME, ENTRY_S_ID, ENTRY_C_SUB, TABLE_STATES, ENTRY_C_NAME, stateString, groupStates), new StateMapper(this, activeViews));
+            List<State> states = quotient.getStates(statesOfInterest);
             return new Graph(this, states, transitions);
         }catch (Exception e){
             throw new RuntimeException(e);
@@ -808,8 +1261,8 @@ public class Project implements Namespace{
                 throw new RuntimeException(e);
             }
         }
-        String stateID = stateIDs.stream().map(s -> "'" + s + "'").collect(Collectors.joining(","));
-        List<Transition> transitions = database.executeCollectionQuery(String.format("SELECT * FROM %s WHERE %s IN (%s)", TABLE_TRANS, ENTRY_T_OUT, stateID), new TransitionMapper(this));
+        String stateID = idSet(stateIDs);
+        List<Transition> transitions = getTransitions(String.format("%s IN %s", ENTRY_T_OUT, BOUND_SET), stateID);
         Set<String> statesOfInterest = new HashSet<>();
         for (String unStateID : unexploredStateIDs){
             statesOfInterest.add(unStateID);
@@ -818,8 +1271,8 @@ public class Project implements Namespace{
             statesOfInterest.add(t.getSource());
             statesOfInterest.addAll(new ArrayList<>(t.getProbabilityDistribution().keySet()));
         }
-        String stateString = statesOfInterest.stream().map(s -> "'" + s + "'").collect(Collectors.joining(","));
-        List<State> states = database.executeCollectionQuery(String.format("SELECT * FROM %s WHERE %s in (%s)", TABLE_STATES, ENTRY_S_ID, stateString), new StateMapper(this, null));
+        String stateString = idSet(statesOfInterest);
+        List<State> states = database.executePreparedCollection(String.format("SELECT * FROM %s WHERE %s IN %s", getStateSource(), ENTRY_S_ID, BOUND_SET), new StateMapper(this, null), stateString);
         return new Graph(this, states, transitions);
     }
 
@@ -827,7 +1280,7 @@ public class Project implements Namespace{
         if(!paneTableExists()) return null;
         Pane result = null;
         for(String paneID : paneIDs){
-            Optional<Pane> pane = this.database.executeLookupQuery(String.format("SELECT * FROM %s WHERE %s = '%s'", TABLE_PANES, ENTRY_P_ID, paneID), new PaneMapper());
+            Optional<Pane> pane = this.database.executePreparedLookup(String.format("SELECT * FROM %s WHERE %s = ?", TABLE_PANES, ENTRY_P_ID), new PaneMapper(), paneID);
             if(pane.isPresent()){
                 if (result == null){
                     result = pane.get();
@@ -858,12 +1311,49 @@ public class Project implements Namespace{
         return this.database.executeCollectionQuery(String.format("SELECT %s FROM %s", ENTRY_P_ID, TABLE_PANES), String.class);
     }
 
-    /*
-    public Graph getIncoming(long stateID) {
-        List<State> states = database.executeCollectionQuery(String.format("SELECT %s.* FROM %s LEFT JOIN %s ON %s.%s = %s.%s WHERE %s.%s = %s OR %s.%s = %s", TABLE_STATES, TABLE_STATES, TABLE_TRANS, TABLE_STATES, ENTRY_S_ID, TABLE_TRANS, ENTRY_T_OUT, TABLE_TRANS, ENTRY_T_IN, stateID, TABLE_STATES, ENTRY_S_ID, stateID), new StateMapper(parent,0));
-        List<Transition> transitions = database.executeCollectionQuery(String.format("SELECT *, GROUP_CONCAT(%s || ':' || %s, ';') as %s FROM %s WHERE %s == %s GROUP BY %s, %s",ENTRY_T_IN, ENTRY_T_PROB, ENTRY_T_MAP, TABLE_TRANS, ENTRY_T_IN, stateID, ENTRY_T_OUT, ENTRY_T_ACT), new TransitionMapper());
-        return new Graph(states, transitions);
-    }*/
+    /**
+     * Explores the graph from the given states on the in-memory graph, and returns the explored part in one piece.
+     * With views, the groups of the explored states are returned, with the transitions between them.
+     *
+     * @param maxDepth maximal number of steps from the given states
+     * @param budget maximal number of states explored
+     */
+    public Graph getNeighborhood(List<String> stateIDs, Direction direction, int maxDepth, int budget, List<Integer> viewIDs) {
+        if (!built) {
+            throw new RuntimeException("Neighborhoods are only known once the model is built");
+        }
+        if (getMdpGraph() == null) buildMdpGraph();
+        List<Long> seeds = stateIDs.stream().filter(s -> ID_PATTERN.matcher(s).matches()).map(Long::parseLong).collect(Collectors.toList());
+        List<String> reached = Arrays.stream(getMdpGraph().getCsr().neighborhood(seeds, direction, maxDepth, budget)).mapToObj(Long::toString).collect(Collectors.toList());
+
+        List<View> activeViews = this.getViews(viewIDs);
+        if (views == null || views.isEmpty() || activeViews.isEmpty()) return this.getSubGraph(reached);
+
+        QuotientGraph quotient = getQuotient(activeViews);
+        Set<String> groups = quotient.resolve(reached);
+        List<Transition> transitions = new ArrayList<>();
+        for (Transition t : quotient.getOutgoing(groups)) {
+            if (groups.containsAll(t.getProbabilityDistribution().keySet())) {
+                transitions.add(t);
+            }
+        }
+        return new Graph(this, quotient.getStates(groups), transitions);
+    }
+
+    public Graph getIncoming(List<String> stateIDs) {
+        if (!built) {
+            throw new RuntimeException("Incoming transitions are only known once the model is built");
+        }
+        String stateID = idSet(stateIDs);
+        List<Transition> transitions = getTransitions(String.format("%s IN (SELECT %s FROM %s WHERE %s IN %s)", ENTRY_T_ID, ENTRY_T_ID, TABLE_DIST, ENTRY_D_TARGET, BOUND_SET), stateID);
+        Set<String> statesOfInterest = new HashSet<>(stateIDs);
+        for (Transition t : transitions) {
+            statesOfInterest.add(t.getSource());
+        }
+        String stateString = idSet(statesOfInterest);
+        List<State> states = database.executePreparedCollection(String.format("SELECT * FROM %s WHERE %s IN %s", getStateSource(), ENTRY_S_ID, BOUND_SET), new StateMapper(this, null), stateString);
+        return new Graph(this, states, transitions);
+    }
 
     // Views
 
@@ -884,7 +1374,7 @@ public class Project implements Namespace{
                     int n = Integer.parseInt(parameters.get(0));
                     if (n < 0 || n >= views.size()) throw new Exception("Could not find View number " + n);
                     View viewN = views.get(n);
-                    getDatabase().execute(String.format("ALTER TABLE %s DROP COLUMN %s", getStateTableName(), viewN.getCollumn()));
+                    columnStore.drop(getStateTableName(), viewN.getCollumn());
                     views.remove(viewN);
                     organizeIds();
                 }
@@ -905,6 +1395,7 @@ public class Project implements Namespace{
             view.setId(i);
             i++;
         }
+        dataChanged();
     }
 
     public ViewType columnToViewType(String columnName) {
@@ -958,6 +1449,41 @@ public class Project implements Namespace{
         }
     }
 
+    /**
+     * Whether initial, deadlock and all labels of the model fit into the bits of one long
+     */
+    public boolean hasLabelBits() {
+        return modulesFile.getLabelList().size() + 2 < Long.SIZE;
+    }
+
+    /**
+     * Encodes the labels of a state as bits: bit 0 is init, bit 1 deadlock and bit i+2 the i-th label of the model.
+     *
+     * @param deadlock whether the state has no outgoing choices, known from expanding it anyway
+     */
+    public long getLabelBits(parser.State state, boolean initial, boolean deadlock) throws PrismLangException {
+        long bits = 0;
+        if (initial) bits |= 1L;
+        if (deadlock) bits |= 1L << 1;
+        for (int i = 0; i < modulesFile.getLabelList().size(); i++){
+            if (modulesFile.getLabelList().getLabel(i).evaluateBoolean(modulesFile.getConstantValues(), state)){
+                bits |= 1L << (i + 2);
+            }
+        }
+        return bits;
+    }
+
+    public TreeMap<String, AP> getLabelMap(long bits) {
+        TreeMap<String, AP> labels = new TreeMap<>();
+        labels.put(LABEL_INIT, (bits & 1L) != 0 ? APs.get(LABEL_INIT) : null);
+        labels.put(LABEL_DEAD, (bits & (1L << 1)) != 0 ? APs.get(LABEL_DEAD) : null);
+        for (int i = 0; i < modulesFile.getLabelList().size(); i++){
+            String name = modulesFile.getLabelName(i);
+            labels.put(name, (bits & (1L << (i + 2))) != 0 ? APs.get(name) : null);
+        }
+        return labels;
+    }
+
     public TreeMap<String, AP> getLabelMap(parser.State state) throws Exception {
         TreeMap<String, AP> labels = new TreeMap<>();
         labels.put(LABEL_INIT, isInitial(state)?APs.get(LABEL_INIT): null);
@@ -983,6 +1509,7 @@ public class Project implements Namespace{
     }
 
     public void removeFiles() throws Exception {
+        database.close();
         File directory = new File(String.format("%s/%s", rootDir, id));
         if (directory.exists()) {
             for (File file : Objects.requireNonNull(directory.listFiles())) {
@@ -1010,10 +1537,10 @@ public class Project implements Namespace{
     private void makeViewDbAndViewInternalConsistent(){
         try {
             //insert dummy views into "List<View> views" for each views that is still in DB
-            List<String> viewsInDb = database
+            List<String> viewsInDb = Stream.concat(database
                     .executeCollectionQuery(String.format("SELECT name FROM pragma_table_info('%s')", TABLE_STATES))
                     .stream()
-                    .flatMap(map -> map.values().stream().map(String::valueOf))
+                    .flatMap(map -> map.values().stream().map(String::valueOf)), columnStore.sideColumns(TABLE_STATES).stream())
                     .filter(columnName -> columnName.contains("View"))
                     .collect(Collectors.toList());
             int viewId = 0;
@@ -1029,28 +1556,25 @@ public class Project implements Namespace{
         if (views.isEmpty()) {
             return;
         }
-        List<String> clearTableQry = List.of();
         try {
-            // create SQL String for each View and execute them with executeBatch
-            clearTableQry = views.stream()
-                            .map(view -> String.format("ALTER TABLE %s DROP COLUMN %s", getStateTableName(), view.getCollumn()))
-                            .collect(Collectors.toList());
-            getDatabase().executeBatch(clearTableQry);
+            // drop the column of each View in one transaction
+            getDatabase().write(handle -> {
+                for (View view : views) {
+                    columnStore.drop(getStateTableName(), view.getCollumn());
+                }
+                return null;
+            });
         } catch (Exception e) {
-            if (clearTableQry.isEmpty()) {
-                throw new RuntimeException("clearTableQry in project.clearViews() was empty!", e);
-            }
-            else {
-                throw new RuntimeException(e);
-            }
-
+            throw new RuntimeException(e);
         }
         views = new ArrayList<>();
+        dataChanged();
     }
 
     public void removeViewFromDbByColName(String columnNameView) {
         try {
-            getDatabase().execute(String.format("ALTER TABLE %s DROP COLUMN %s;", TABLE_STATES, columnNameView));
+            columnStore.drop(TABLE_STATES, columnNameView);
+            dataChanged();
             List<View> viewsWithName = views
                     .stream()
                     .filter(view -> view.getCollumn().equals(columnNameView))
@@ -1081,5 +1605,6 @@ public class Project implements Namespace{
     public void removeFromViews(View view) {
         int i = views.indexOf(view);
         if (i > -1) views.remove(i);
+        dataChanged();
     }
 }
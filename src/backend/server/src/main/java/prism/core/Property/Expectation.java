@@ -1,28 +1,20 @@
 package prism.core.Property;
 
-import org.jdbi.v3.core.result.ResultIterator;
 import parser.ast.ExpressionReward;
 import parser.ast.PropertiesFile;
-import prism.PrismException;
-import prism.Result;
-import prism.StateValues;
-import prism.api.Transition;
 import prism.api.VariableInfo;
 import prism.core.Project;
 import prism.core.Scheduler.Criteria;
 import prism.core.Scheduler.CriteriaSort;
 import prism.core.Scheduler.Scheduler;
 import prism.core.Utility.Timer;
-import prism.db.Batch;
-import prism.db.PersistentQuery;
-import prism.db.mappers.StateAndValueMapper;
-import prism.db.mappers.TransitionMapper;
-import strat.MDStrategy;
+import prism.core.mdpgraph.CsrGraph;
+import prism.db.mappers.PairMapper;
 
-import java.math.BigInteger;
-import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Map;
+import java.util.List;
+import java.util.Optional;
 
 public class Expectation extends Property{
 
@@ -39,159 +31,32 @@ public class Expectation extends Property{
     }
 
     @Override
-    public VariableInfo modelCheck() throws PrismException {
-        if (alreadyChecked) {
-            return this.getPropertyInfo();
-        }
-
-        if (project.debug) {
-            System.out.println("-----------------------------------");
-        }
-        Result result;
-        try (Timer time = new Timer(String.format("Checking %s", this.getName()), project.getLog())) {
-            result = project.getPrism().modelCheck(propertiesFile, expression);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+    protected VariableInfo writeValues(CsrGraph csr, double[] values) {
         try (Timer time = new Timer(String.format("Insert %s to db", this.getName()), project.getLog())) {
-            StateValues vals = (StateValues) result.getVector();
-            StateAndValueMapper map = new StateAndValueMapper(project.getModelParser());
-
-            vals.iterate(map, false);
-            Map<BigInteger, Double> values = map.output();
-
-            project.getDatabase().execute(String.format("ALTER TABLE %s ADD COLUMN %s TEXT", project.getStateTableName(), this.getPropertyCollumn()));
-            project.getDatabase().execute(String.format("ALTER TABLE %s ADD COLUMN %s TEXT", project.getTransitionTableName(), this.getPropertyCollumn()));
-
-            try (Batch toExecute = project.getDatabase().createBatch(String.format("UPDATE %s SET %s = ? WHERE %s = ?", project.getStateTableName(), this.getPropertyCollumn(), ENTRY_S_ID), 2)) {
-                for (BigInteger stateID : values.keySet()) {
-                    toExecute.addToBatch(String.valueOf(values.get(stateID)), String.valueOf(stateID));
-                }
-            } catch (SQLException e) {
-                throw new RuntimeException(e);
-            }
-
-            MDStrategy strategy = (MDStrategy) result.getStrategy();
-
-            try (Batch toExecute = project.getDatabase().createBatch(String.format("UPDATE %s SET %s = ? WHERE %s = ?", project.getTransitionTableName(), this.getPropertyCollumn(), ENTRY_T_ID), 2)) {
-                String transitionQuery = String.format("SELECT * FROM %s", project.getTransitionTableName());
-
-                String rewardName = "";
-                if (rewardID.isPresent())
-                    rewardName = project.getModulesFile().getRewardStructNames().get(rewardID.get());
-
-                try (PersistentQuery query = project.getDatabase().openQuery(transitionQuery); ResultIterator<Transition> it = query.iterator(new TransitionMapper(project))) {
-                    while (it.hasNext()) {
-                        Transition t = it.next();
-
-                        double value = t.getReward(rewardName);
-                        for (Map.Entry<String, Double> entry : t.getProbabilityDistribution().entrySet()) {
-                            value += entry.getValue() * values.get(new BigInteger(entry.getKey()));
-                        }
-
-                        toExecute.addToBatch(String.valueOf(value), String.valueOf(t.getNumId()));
+            // Reward of the transition itself, plus the expected value of its successors
+            double[] transitionValues = csr.transitionValues(values);
+            String reward = transitionReward();
+            if (reward != null) {
+                project.getDatabase().forEach(String.format("SELECT %s, %s AS %s FROM %s", ENTRY_T_ID, reward, ENTRY_REW, project.getTransitionTableName()), new PairMapper<>(ENTRY_T_ID, ENTRY_REW, Long.class, Double.class), p -> {
+                    int transition = csr.transitionIndex(p.getKey());
+                    if (transition < 0) {
+                        throw new RuntimeException(String.format("Transition %d is not part of the graph", p.getKey()));
                     }
-                }
-
-            /*try (Batch toExecute = project.getDatabase().createBatch(String.format("UPDATE %s SET %s = ?, %s = ? WHERE %s = ?", project.getTransitionTableName(), this.getPropertyCollumn(), this.getSchedulerCollumn(), ENTRY_T_ID), 3)) {
-                String transitionQuery = String.format("SELECT * FROM %s", project.getTransitionTableName());
-
-                String rewardName = "";
-                if (rewardID.isPresent())
-                    rewardName = project.getModulesFile().getRewardStructNames().get(rewardID.get());
-
-                if (strategy != null) {
-                    try (PersistentQuery query = project.getDatabase().openQuery(transitionQuery); ResultIterator<Transition> it = query.iterator(new TransitionMapper(project))) {
-                        while (it.hasNext()) {
-                            Transition t = it.next();
-                            int stateID = Integer.parseInt(t.getSource());
-
-                            double value = 0.0;
-                            for (Map.Entry<String, Double> entry : t.getProbabilityDistribution().entrySet()) {
-                                value += entry.getValue() * values.get(Long.parseLong(entry.getKey()));
-                            }
-
-                            if (!strategy.isChoiceDefined(stateID) || t.getAction().equals(String.format("[%s]", strategy.getChoiceAction(stateID)))) {
-                                toExecute.addToBatch(String.valueOf(value), "1.0", String.valueOf(t.getNumId()));
-                            }
-                        }
-                    }
-                } else if (minimum) {
-                    Map<Integer, Double> min = new HashMap<>();
-                    try (PersistentQuery query = project.getDatabase().openQuery(transitionQuery); ResultIterator<Transition> it = query.iterator(new TransitionMapper(project))) {
-                        while (it.hasNext()) {
-                            Transition t = it.next();
-                            int stateID = Integer.parseInt(t.getSource());
-
-                            double value = t.getReward(rewardName);
-                            for (Map.Entry<String, Double> entry : t.getProbabilityDistribution().entrySet()) {
-                                value += entry.getValue() * values.get(Long.parseLong(entry.getKey()));
-                            }
-
-                            if (!min.containsKey(stateID)) {
-                                min.put(stateID, value);
-                            } else {
-                                if (min.get(stateID) > value) {
-                                    min.replace(stateID, value);
-                                }
-                            }
-                        }
-                    }
-                    try (PersistentQuery query = project.getDatabase().openQuery(transitionQuery); ResultIterator<Transition> it = query.iterator(new TransitionMapper(project))) {
-                        while (it.hasNext()) {
-                            Transition t = it.next();
-                            int stateID = Integer.parseInt(t.getSource());
-
-                            double value = t.getReward(rewardName);
-                            for (Map.Entry<String, Double> entry : t.getProbabilityDistribution().entrySet()) {
-                                value += entry.getValue() * values.get(Long.parseLong(entry.getKey()));
-                            }
-
-
-                            toExecute.addToBatch(String.valueOf(value), min.get(stateID) < value ? "0.0" : "1.0", String.valueOf(t.getNumId()));
-                        }
-                    }
-                } else {
-                    Map<Integer, Double> max = new HashMap<>();
-
-                    try (PersistentQuery query = project.getDatabase().openQuery(transitionQuery); ResultIterator<Transition> it = query.iterator(new TransitionMapper(project))) {
-                        while (it.hasNext()) {
-                            Transition t = it.next();
-                            int stateID = Integer.parseInt(t.getSource());
-
-                            double value = t.getReward(rewardName);
-                            for (Map.Entry<String, Double> entry : t.getProbabilityDistribution().entrySet()) {
-                                value += entry.getValue() * values.get(Long.parseLong(entry.getKey()));
-                            }
+                    if (p.getValue() != null) transitionValues[transition] += p.getValue();
+                });
+            }
 
-                            if (!max.containsKey(stateID)) {
-                                max.put(stateID, value);
-                            } else {
-                                if (max.get(stateID) < value) {
-                                    max.replace(stateID, value);
-                                }
-                            }
-                        }
-                    }
-                    try (PersistentQuery query = project.getDatabase().openQuery(transitionQuery); ResultIterator<Transition> it = query.iterator(new TransitionMapper(project))) {
-                        while (it.hasNext()) {
-                            Transition t = it.next();
-                            int stateID = Integer.parseInt(t.getSource());
+            writeResult(handle -> {
+                project.getColumnStore().add(project.getStateTableName(), ENTRY_S_ID, this.getPropertyCollumn(), "REAL");
+                project.getColumnStore().add(project.getTransitionTableName(), ENTRY_T_ID, this.getPropertyCollumn(), "REAL");
 
-                            double value = t.getReward(rewardName);
-                            for (Map.Entry<String, Double> entry : t.getProbabilityDistribution().entrySet()) {
-                                value += entry.getValue() * values.get(Long.parseLong(entry.getKey()));
-                            }
+                writeStateValues(csr, values);
+                writeTransitionValues(csr, transitionValues);
 
-                            toExecute.addToBatch(String.valueOf(value), max.get(stateID) > value ? "0.0" : "1.0", String.valueOf(t.getNumId()));
-                        }
-                    }
-                }*/
-            } catch (SQLException e) {
-                throw new RuntimeException(e);
-            }
-            Criteria criteria = new CriteriaSort(this.getPropertyCollumn(), minimum ? CriteriaSort.Direction.ASC: CriteriaSort.Direction.DESC);
-            this.scheduler = Scheduler.createScheduler(this.project, this.getName(), this.id, Collections.singletonList(criteria));
+                Criteria criteria = new CriteriaSort(this.getPropertyCollumn(), minimum ? CriteriaSort.Direction.ASC: CriteriaSort.Direction.DESC);
+                this.scheduler = Scheduler.createScheduler(this.project, this.getName(), this.id, Collections.singletonList(criteria));
+                return null;
+            });
             project.addScheduler(scheduler);
             this.newMaximum();
             alreadyChecked = true;
@@ -201,4 +66,22 @@ public class Expectation extends Property{
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * @return SQL expression of the reward of a transition, or null if the model has no rewards
+     */
+    private String transitionReward() {
+        if (rewardID.isPresent()) {
+            return ENTRY_REW + rewardID.get();
+        }
+        int numRewards = project.getModulesFile().getNumRewardStructs();
+        if (numRewards == 0) {
+            return null;
+        }
+        List<String> rewards = new ArrayList<>();
+        for (int i = 0; i < numRewards; i++) {
+            rewards.add(String.format("IFNULL(%s, 0)", ENTRY_REW + i));
+        }
+        return String.join(" + ", rewards);
+    }
 }
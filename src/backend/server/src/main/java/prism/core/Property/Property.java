@@ -1,20 +1,28 @@
 package prism.core.Property;
 
+import org.jdbi.v3.core.HandleCallback;
 import org.jdbi.v3.core.result.ResultIterator;
 import parser.VarList;
 import parser.ast.*;
 import parser.type.TypeDouble;
 import prism.Pair;
+import prism.Prism;
 import prism.PrismException;
+import prism.Result;
+import prism.StateValues;
 import prism.api.Transition;
 import prism.api.VariableInfo;
 import prism.core.Namespace;
 import prism.core.Project;
 import prism.core.Scheduler.Scheduler;
+import prism.core.Utility.ResultCache;
+import prism.core.Utility.Timer;
+import prism.core.mdpgraph.CsrGraph;
 import prism.db.Batch;
 import prism.db.PersistentQuery;
 import prism.db.mappers.EntryMapper;
 import prism.db.mappers.PairMapper;
+import prism.db.mappers.StateValueVectorMapper;
 
 import java.io.BufferedWriter;
 import java.io.File;
@@ -50,7 +58,7 @@ public abstract class Property implements Namespace {
 
         Map<String, VariableInfo> info = (Map<String, VariableInfo>) project.getInfo().getStateEntry(OUTPUT_RESULTS);
 
-        if (project.getDatabase().question(String.format("SELECT name FROM pragma_table_info('%s') WHERE name = '%s'", project.getStateTableName(), this.getPropertyCollumn()))) {
+        if (project.getColumnStore().exists(project.getStateTableName(), this.getPropertyCollumn())) {
             this.newMaximum();
             this.scheduler = Scheduler.loadScheduler(this.getName(), this.id);
             project.addScheduler(scheduler);
@@ -68,7 +76,7 @@ public abstract class Property implements Namespace {
     }
 
     protected void newMaximum(){
-        Optional<Double> out = project.getDatabase().executeLookupQuery(String.format("SELECT MAX(CAST(%s as REAL)) FROM %s", this.getPropertyCollumn(), project.getStateTableName()), Double.class);
+        Optional<Double> out = project.getDatabase().executeLookupQuery(String.format("SELECT MAX(%s) FROM %s", this.getPropertyCollumn(), project.getColumnStore().getTable(project.getStateTableName(), this.getPropertyCollumn())), Double.class);
         if (out.isPresent()){
             this.maximum = Math.ceil(out.get());
         }
@@ -96,7 +104,7 @@ public abstract class Property implements Namespace {
     }
 
     public Map<Long, Double> getPropertyMap() {
-        List<Pair<Long, Double>> list = project.getDatabase().executeCollectionQuery(String.format("SELECT %s, %s FROM %s", ENTRY_S_ID, getPropertyCollumn(), project.getStateTableName()), new EntryMapper(getPropertyCollumn()));
+        List<Pair<Long, Double>> list = project.getDatabase().executeCollectionQuery(String.format("SELECT %s, %s FROM %s", ENTRY_S_ID, getPropertyCollumn(), project.getColumnStore().getTable(project.getStateTableName(), getPropertyCollumn())), new EntryMapper(getPropertyCollumn()));
         Map<Long, Double> out = new HashMap<>();
         for (Pair<Long, Double> p : list){
             out.put(p.getKey(), p.getValue());
@@ -126,9 +134,178 @@ public abstract class Property implements Namespace {
         info.replace(this.name, VariableInfo.blank(this.name));
         project.getInfo().setStateEntry(OUTPUT_RESULTS, info);
         project.getInfo().setTransitionEntry(OUTPUT_RESULTS, info);
+        project.dataChanged();
     }
 
-    public abstract VariableInfo modelCheck() throws PrismException;
+    /**
+     * Checks the property on the model of the project with its engine and writes the result, unless it was checked
+     * already.
+     */
+    public VariableInfo modelCheck() throws PrismException {
+        if (alreadyChecked) {
+            return this.getPropertyInfo();
+        }
+
+        int engine = project.getPrism().getEngine();
+        VariableInfo cached = restore(engine);
+        if (cached != null) {
+            return cached;
+        }
+
+        if (project.debug) {
+            System.out.println("-----------------------------------");
+        }
+
+        Result result;
+        long start = System.currentTimeMillis();
+        try (Timer time = new Timer(String.format("Checking %s", this.getName()), project.getLog())) {
+            result = project.getPrism().modelCheck(propertiesFile, expression);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        project.recordCheck(engine, System.currentTimeMillis() - start);
+        return modelCheck(result, engine);
+    }
+
+    /**
+     * Writes the result of checking the property, computed by any engine, to the database.
+     *
+     * @param result result holding the value of every state
+     * @param engine engine the result was computed with, as in {@link prism.Prism#setEngine(int)}
+     */
+    public VariableInfo modelCheck(Result result, int engine) {
+        if (alreadyChecked) {
+            return this.getPropertyInfo();
+        }
+        CsrGraph csr = getCsr();
+        double[] values;
+        try {
+            values = stateValues(result, csr);
+        } catch (PrismException e) {
+            throw new RuntimeException(e);
+        }
+        if (project.getResultCache() != null) {
+            project.getResultCache().store(cacheKey(engine), csr, values);
+        }
+        return writeValues(csr, values);
+    }
+
+    /**
+     * Writes the values of an earlier check with the same model, constants, property and settings to the database, if
+     * the result cache of the project has them.
+     *
+     * @return information on the restored property, or null if nothing was restored
+     */
+    public VariableInfo restore(int engine) {
+        if (alreadyChecked) {
+            return this.getPropertyInfo();
+        }
+        if (project.getResultCache() == null) {
+            return null;
+        }
+        CsrGraph csr = getCsr();
+        double[] values = project.getResultCache().load(cacheKey(engine), csr);
+        if (values == null) {
+            return null;
+        }
+        if (project.debug) {
+            System.out.println("Restored " + this.getName() + " from the result cache");
+        }
+        return writeValues(csr, values);
+    }
+
+    /**
+     * Everything the values of the property depend on: the model with its constants, the properties file (for labels,
+     * formulas and constants it defines), the property itself and the settings of the engine.
+     */
+    private String cacheKey(int engine) {
+        Prism prism = project.getPrism();
+        return ResultCache.key(
+                project.getModulesFile().toString(),
+                String.valueOf(project.getModulesFile().getConstantValues()),
+                propertiesFile.toString(),
+                String.valueOf(propertiesFile.getConstantValues()),
+                expression.toString(),
+                String.format("engine=%d;termCrit=%d;termCritParam=%s;maxIters=%d;compact=%b", engine, prism.getTermCrit(), prism.getTermCritParam(), prism.getMaxIters(), project.getModelParser().hasCompactIdentifiers()));
+    }
+
+    /**
+     * Runs the writes of a result in one transaction, so that readers never see the columns of the property without
+     * their values.
+     */
+    protected <X extends Exception> void writeResult(HandleCallback<Void, X> writes) throws X {
+        boolean written = false;
+        try {
+            project.getDatabase().write(writes);
+            written = true;
+        } finally {
+            // Side tables created by the rolled back transaction are gone again
+            if (!written) project.getColumnStore().invalidate();
+        }
+    }
+
+    /**
+     * Writes the values of the property, and what follows from them, to the database.
+     *
+     * @param values value of every state, indexed like the states of the graph
+     */
+    protected abstract VariableInfo writeValues(CsrGraph csr, double[] values);
+
+    /**
+     * @return values of the result, indexed like the states of the graph
+     */
+    protected double[] stateValues(Result result, CsrGraph csr) throws PrismException {
+        StateValueVectorMapper map = new StateValueVectorMapper(project.getModelParser(), csr);
+        ((StateValues) result.getVector()).iterate(map, false);
+        return map.output();
+    }
+
+    protected void writeStateValues(CsrGraph csr, double[] values) {
+        long[] keys = new long[values.length];
+        double[] known = new double[values.length];
+        int size = 0;
+        for (int state = 0; state < values.length; state++) {
+            if (!Double.isNaN(values[state])) {
+                keys[size] = csr.stateId(state);
+                known[size++] = values[state];
+            }
+        }
+        project.getDatabase().updateColumn(project.getColumnStore().getTable(project.getStateTableName(), this.getPropertyCollumn()), this.getPropertyCollumn(), ENTRY_S_ID, keys, known, size);
+    }
+
+    /**
+     * @param values value of every transition, indexed like the transitions of the graph. Unknown (NaN) values are left
+     *               empty.
+     */
+    protected void writeTransitionValues(CsrGraph csr, double[] values) {
+        long[] keys = new long[values.length];
+        double[] known = new double[values.length];
+        int size = 0;
+        for (int transition = 0; transition < values.length; transition++) {
+            if (!Double.isNaN(values[transition])) {
+                keys[size] = csr.transitionId(transition);
+                known[size++] = values[transition];
+            }
+        }
+        project.getDatabase().updateColumn(project.getColumnStore().getTable(project.getTransitionTableName(), this.getPropertyCollumn()), this.getPropertyCollumn(), ENTRY_T_ID, keys, known, size);
+    }
+
+    protected CsrGraph getCsr() {
+        if (project.getMdpGraph() == null) project.buildMdpGraph();
+        return project.getMdpGraph().getCsr();
+    }
+
+    public Expression getExpression() {
+        return expression;
+    }
+
+    public PropertiesFile getPropertiesFile() {
+        return propertiesFile;
+    }
+
+    public boolean isChecked() {
+        return alreadyChecked;
+    }
 
     public void printScheduler(String filename, boolean limit) {
         File f = new File(filename);
@@ -150,11 +327,17 @@ public abstract class Property implements Namespace {
             VarList varList = modulesFile.createVarList();
             writer.write(String.format("%s;", varList.getNumVars()));
             System.out.printf("%s;", varList.getNumVars());
+            boolean variableColumns = project.hasVariableColumns();
             StringBuffer joins = new StringBuffer();
             StringBuffer order = new StringBuffer();
             for (int i = 0; i < varList.getNumVars();i++){
-                joins.append(String.format("LEFT JOIN (SELECT * FROM split WHERE colNum=%s) as split%s ON %s.ROWID = split%s.string_id\n", i+1, i+1, state_table, i+1));
-                order.append(String.format("CAST(split%s.value AS INTEGER), \n", i+1));
+                if (variableColumns) {
+                    // Columns are indexed by the position of the variable in the state
+                    order.append(String.format("%s, \n", ENTRY_S_VAR + modulesFile.getVarIndex(varList.getName(i))));
+                } else {
+                    joins.append(String.format("LEFT JOIN (SELECT * FROM split WHERE colNum=%s) as split%s ON %s.ROWID = split%s.string_id\n", i+1, i+1, state_table, i+1));
+                    order.append(String.format("CAST(split%s.value AS INTEGER), \n", i+1));
+                }
 
                 writer.write(String.format("%s[%s..%s];", varList.getName(i), varList.getLow(i), varList.getHigh(i)));
                 System.out.printf("%s[%s..%s];", varList.getName(i), varList.getLow(i), varList.getHigh(i));
@@ -164,7 +347,22 @@ public abstract class Property implements Namespace {
             //BODY
             writer.newLine();
 
-            String transitionQuery = String.format(
+            String transitionQuery = variableColumns ? String.format(
+                    "SELECT %s, GROUP_CONCAT(%s, ';') AS actions \n" +
+                            "FROM %s\n" +
+                            "JOIN %s ON %s = %s \n" +
+                            "WHERE %s = 1 GROUP BY %s\n" +
+                            "ORDER BY %s %s"
+                    , ENTRY_S_NAME
+                    , ENTRY_T_ACT
+                    , state_table
+                    , project.getColumnStore().source(project.getTransitionTableName(), ENTRY_T_ID, List.of(this.getSchedulerCollumn()))
+                    , ENTRY_S_ID
+                    , ENTRY_T_OUT
+                    , this.getSchedulerCollumn()
+                    , ENTRY_S_NAME
+                    , order.toString()
+                    , ENTRY_S_NAME) : String.format(
                     "WITH RECURSIVE split(string_id, value, str, colNum) AS ( \n" +
                             "WITH const AS (SELECT ';' AS delimiter)\n" +
                             "    SELECT %s.ROWID, '', %s||delimiter, 0 FROM %s, const\n" +
@@ -188,7 +386,7 @@ public abstract class Property implements Namespace {
                     , ENTRY_T_ACT
                     , state_table
                     , joins.toString()
-                    , project.getTransitionTableName()
+                    , project.getColumnStore().source(project.getTransitionTableName(), ENTRY_T_ID, List.of(this.getSchedulerCollumn()))
                     , ENTRY_S_ID
                     , ENTRY_T_OUT
                     , this.getSchedulerCollumn()
@@ -233,14 +431,23 @@ public abstract class Property implements Namespace {
 
         project.getDatabase().execute(String.format("CREATE TABLE %s (%s INTEGER PRIMARY KEY NOT NULL, %s TEXT, %s BOOLEAN)", table_name, ENTRY_S_ID, ENTRY_S_NAME, ENTRY_S_INIT));
 
-        String stateInsertCall = String.format("INSERT INTO %s SELECT %s,%s,%s FROM %s WHERE %s = ?", table_name, ENTRY_S_ID, ENTRY_S_NAME, ENTRY_S_INIT, project.getStateTableName(), ENTRY_S_ID);
+        // Keeps the variable columns, so that the scheduler can be ordered without parsing the state names
+        StringBuilder columns = new StringBuilder(String.format("%s,%s,%s", ENTRY_S_ID, ENTRY_S_NAME, ENTRY_S_INIT));
+        if (project.hasVariableColumns()) {
+            for (int i = 0; i < project.getModulesFile().getNumVars(); i++) {
+                project.getDatabase().execute(String.format("ALTER TABLE %s ADD COLUMN %s INTEGER", table_name, ENTRY_S_VAR + i));
+                columns.append(",").append(ENTRY_S_VAR + i);
+            }
+        }
+
+        String stateInsertCall = String.format("INSERT INTO %s SELECT %s FROM %s WHERE %s = ?", table_name, columns, project.getStateTableName(), ENTRY_S_ID);
 
         try(Batch toExecute = project.getDatabase().createBatch(stateInsertCall, 1)){
             while(!visiting.isEmpty()){
                 Set<String> toVisit = new HashSet<>();
 
                 for (String stateID : visiting){
-                    toExecute.addToBatch(String.valueOf(stateID));
+                    toExecute.setLong(Long.parseLong(stateID)).addRow();
 
                     //See all outgoing
                     List<Transition> out = outgoing.get(stateID);
@@ -23,7 +23,7 @@ public class Scheduler {
         String table = project.getTransitionTableName();
         String schedTable = project.getSchedulerTableName();
 
-        Optional<String> entry = project.getDatabase().executeLookupQuery(String.format("SELECT %s FROM %s WHERE %s = '%s'", ENTRY_SCH_NAME, schedTable, ENTRY_SCH_ID, id), String.class);
+        Optional<String> entry = project.getDatabase().executePreparedLookup(String.format("SELECT %s FROM %s WHERE %s = ?", ENTRY_SCH_NAME, schedTable, ENTRY_SCH_ID), String.class, id);
 
         if(entry.isPresent()){
             if (entry.get().equals(name)){
@@ -45,13 +45,17 @@ public class Scheduler {
         }
         String scheduler_collumn = ENTRY_SCHED + id;
 
-        String creationQuery = String.format("ALTER TABLE %s ADD COLUMN %s NOT NULL DEFAULT 0", table, scheduler_collumn);
-        String updateQuery = String.format("WITH cte AS (SELECT *, dense_rank() OVER(PARTITION BY %s ORDER BY %s) AS r FROM %s) UPDATE %s SET %s=1 WHERE %s IN (SELECT %s FROM cte WHERE r=1)", partition, order, table, table, scheduler_collumn, ENTRY_T_ID, ENTRY_T_ID);
         String infoQuery = String.format("INSERT INTO %s (%s, %s) VALUES(%s, '%s')", schedTable, ENTRY_SCH_ID, ENTRY_SCH_NAME, id, name);
 
-        project.getDatabase().execute(creationQuery);
-        project.getDatabase().execute(updateQuery);
-        project.getDatabase().execute(infoQuery);
+        project.getDatabase().write(handle -> {
+            // The criteria sort by property columns, which may live in side tables
+            String source = project.getTransitionSource();
+            project.getColumnStore().add(table, ENTRY_T_ID, scheduler_collumn, "NOT NULL DEFAULT 0");
+            String target = project.getColumnStore().getTable(table, scheduler_collumn);
+            project.getDatabase().execute(String.format("WITH cte AS (SELECT *, dense_rank() OVER(PARTITION BY %s ORDER BY %s) AS r FROM %s) UPDATE %s SET %s=1 WHERE %s IN (SELECT %s FROM cte WHERE r=1)", partition, order, source, target, scheduler_collumn, ENTRY_T_ID, ENTRY_T_ID));
+            project.getDatabase().execute(infoQuery);
+            return null;
+        });
 
         return new Scheduler(name, id);
     }
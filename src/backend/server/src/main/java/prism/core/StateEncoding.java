@@ -0,0 +1,164 @@
+package prism.core;
+
+import parser.State;
+
+import java.math.BigInteger;
+
+/**
+ * Mixed radix encoding of the values of all variables of a model into a single number, used as identifier of states
+ * and, together with the index of a choice, of transitions. The last variable changes fastest.
+ *
+ * If all valuations fit into 63 bits, identifiers are longs, see {@link #isCompact()}. Otherwise only the identifiers
+ * handed out by the API, which are strings, can be computed, as BigIntegers.
+ */
+public class StateEncoding {
+
+    // Number of choices of a state that compact transition identifiers are guaranteed to cover, as a power of two
+    static final int CHOICE_BITS = 16;
+
+    private final int[] positions;
+    private final int[] lows;
+    private final int[] ranges;
+    private final boolean[] bools;
+    private final BigInteger[] bigStrides;
+    // Null if the ranges do not fit into 63 bits
+    private final long[] strides;
+    private final BigInteger numValuations;
+
+    /**
+     * @param positions position of every variable in the values of a state
+     * @param lows lowest value of every variable, 0 for booleans
+     * @param ranges number of values of every variable, 2 for booleans
+     * @param bools whether a variable is boolean
+     */
+    public StateEncoding(int[] positions, int[] lows, int[] ranges, boolean[] bools) {
+        this.positions = positions;
+        this.lows = lows;
+        this.ranges = ranges;
+        this.bools = bools;
+        this.bigStrides = new BigInteger[positions.length];
+        long[] strides = new long[positions.length];
+        BigInteger index = BigInteger.ONE;
+        for (int i = positions.length - 1; i >= 0; i--) {
+            bigStrides[i] = index;
+            strides[i] = index.longValue();
+            index = index.multiply(BigInteger.valueOf(ranges[i]));
+        }
+        this.numValuations = index;
+        this.strides = index.bitLength() < Long.SIZE ? strides : null;
+    }
+
+    /**
+     * Whether every possible valuation of the variables can be encoded into a single long.
+     */
+    public boolean isCompact() {
+        return strides != null;
+    }
+
+    /**
+     * Whether {@link #transitionIdentifier(State, int)} is defined for every choice of up to 2^{@value #CHOICE_BITS}
+     * choices per state.
+     */
+    public boolean hasCompactTransitionIdentifiers() {
+        return strides != null && numValuations.bitLength() < Long.SIZE - 1 - CHOICE_BITS;
+    }
+
+    public BigInteger getNumValuations() {
+        return numValuations;
+    }
+
+    public long stateIdentifier(State state) {
+        checkCompact();
+        long index = 0;
+        for (int i = 0; i < strides.length; i++) {
+            index += strides[i] * (value(state, i) - lows[i]);
+        }
+        return index;
+    }
+
+    public long stateIdentifier(int[] values) {
+        checkCompact();
+        long index = 0;
+        for (int i = 0; i < strides.length; i++) {
+            int value = values[positions[i]];
+            if (value < lows[i] || value >= lows[i] + ranges[i]) {
+                throw new RuntimeException("Value " + value + " is out of range");
+            }
+            index += strides[i] * (value - lows[i]);
+        }
+        return index;
+    }
+
+    public State translateStateIdentifier(long stateIdentifier) {
+        checkCompact();
+        State state = new State(strides.length);
+        for (int i = 0; i < strides.length; i++) {
+            setValue(state, i, (int) ((stateIdentifier / strides[i]) % ranges[i]));
+        }
+        return state;
+    }
+
+    public long transitionIdentifier(State outState, int choice) {
+        return Math.addExact(stateIdentifier(outState), Math.multiplyExact(numValuations.longValueExact(), choice));
+    }
+
+    /**
+     * @return identifier of the state as handed out by the API, the same number as {@link #stateIdentifier(State)} if
+     * the encoding is compact
+     */
+    public String apiIdentifier(State state) {
+        if (isCompact()) {
+            return Long.toString(stateIdentifier(state));
+        }
+        BigInteger index = BigInteger.ZERO;
+        for (int i = 0; i < bigStrides.length; i++) {
+            index = index.add(bigStrides[i].multiply(BigInteger.valueOf(value(state, i) - lows[i])));
+        }
+        return index.toString();
+    }
+
+    /**
+     * @return the state with an identifier as returned by {@link #apiIdentifier(State)}
+     */
+    public State apiState(String identifier) {
+        if (isCompact()) {
+            return translateStateIdentifier(Long.parseLong(identifier));
+        }
+        BigInteger index = new BigInteger(identifier);
+        State state = new State(bigStrides.length);
+        for (int i = 0; i < bigStrides.length; i++) {
+            setValue(state, i, index.divide(bigStrides[i]).mod(BigInteger.valueOf(ranges[i])).intValue());
+        }
+        return state;
+    }
+
+    /**
+     * @return identifier of the transition as handed out by the API, see {@link #apiIdentifier(State)}
+     */
+    public String apiTransitionIdentifier(State outState, int choice) {
+        if (isCompact()) {
+            return Long.toString(transitionIdentifier(outState, choice));
+        }
+        return new BigInteger(apiIdentifier(outState)).add(numValuations.multiply(BigInteger.valueOf(choice))).toString();
+    }
+
+    private int value(State state, int variable) {
+        Object value = state.varValues[positions[variable]];
+        return bools[variable] ? ((boolean) value ? 1 : 0) : (int) value;
+    }
+
+    private void setValue(State state, int variable, int offset) {
+        int value = offset + lows[variable];
+        if (bools[variable]) {
+            state.setValue(positions[variable], value > 0);
+        } else {
+            state.setValue(positions[variable], value);
+        }
+    }
+
+    private void checkCompact() {
+        if (strides == null) {
+            throw new IllegalStateException(String.format("Model has %s possible states, states can only be identified after building it", numValuations));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package prism.core.Utility;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Continuation tokens of paginated requests. A token stands for the last state id of the previous page, but is opaque
+ * to clients, so that its content can change without changing the API.
+ */
+public class Cursor {
+
+    private static final String PREFIX = "s:";
+
+    // Position before the first page
+    public static final long START = Long.MIN_VALUE;
+
+    public static String encode(long lastStateId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((PREFIX + lastStateId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param token token as returned by {@link #encode(long)}, or null for the first page
+     * @return last state id of the previous page
+     */
+    public static long decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return START;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(PREFIX)) {
+                throw new IllegalArgumentException("Invalid cursor " + token);
+            }
+            return Long.parseLong(decoded.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor " + token, e);
+        }
+    }
+}
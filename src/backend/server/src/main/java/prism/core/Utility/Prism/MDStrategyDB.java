@@ -36,7 +36,7 @@ public class MDStrategyDB extends StrategyWithStates<Double> implements MDStrate
         this.model = model;
         numStates = (int) model.getNumStates();
         this.db = db;
-        this.choiceQuery = String.format("SELECT %s FROM %s WHERE %s = 1 AND %s =", ENTRY_T_ACT, table, schedulerCollumn, ENTRY_T_OUT) + " %s LIMIT 1";
+        this.choiceQuery = String.format("SELECT %s FROM %s WHERE %s = 1 AND %s = ? LIMIT 1", ENTRY_T_ACT, table, schedulerCollumn, ENTRY_T_OUT);
         this.stateList = model.getReachableStates().exportToStringList();
 
         if (cache){
@@ -62,7 +62,7 @@ public class MDStrategyDB extends StrategyWithStates<Double> implements MDStrate
     public Object getChoiceAction(int s, int m)
     {
         if (schedule == null){
-            Optional<String> action = db.executeLookupQuery(String.format(choiceQuery, s), String.class, false);
+            Optional<String> action = db.executePreparedLookup(choiceQuery, String.class, s);
             return action.isPresent() ? action.get().substring(1, action.get().length()-1) : Strategy.UNDEFINED;
         }
 
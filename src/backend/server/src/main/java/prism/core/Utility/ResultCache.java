@@ -0,0 +1,169 @@
+package prism.core.Utility;
+
+import prism.core.mdpgraph.CsrGraph;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Values of model checking results, stored outside the databases of the projects and addressed by a hash of everything
+ * the values depend on. Projects that are reset or uploaded again with the same model and properties find their
+ * results here instead of checking again.
+ *
+ * Every entry is one file: header, the state identifiers, the values, all little endian. Once the entries take up more
+ * than the given number of bytes, the least recently used ones are deleted.
+ */
+public class ResultCache {
+
+    private static final int MAGIC = 0x52434d50;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    private static final String SUFFIX = ".bin";
+
+    // Projects share the directory
+    private static final Object LOCK = new Object();
+
+    private final File directory;
+
+    private final long maxBytes;
+
+    private final boolean debug;
+
+    public ResultCache(File directory, long maxBytes, boolean debug) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.debug = debug;
+    }
+
+    /**
+     * @return SHA-256 of the given parts, in hex
+     */
+    public static String key(String... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                byte[] bytes = part.getBytes(StandardCharsets.UTF_8);
+                // Length first, so that moving text from one part to the next changes the key
+                digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+                digest.update(bytes);
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return values of the entry, indexed like the states of the graph, or null if there is no entry that fits the graph
+     */
+    public double[] load(String key, CsrGraph csr) {
+        File file = file(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            int numStates = buffer.getInt();
+            buffer.getInt();
+            if (numStates != csr.numStates()) {
+                return null;
+            }
+            int valueStart = HEADER_BYTES + numStates * Long.BYTES;
+            double[] values = new double[numStates];
+            Arrays.fill(values, Double.NaN);
+            for (int i = 0; i < numStates; i++) {
+                int state = csr.index(buffer.getLong(HEADER_BYTES + i * Long.BYTES));
+                if (state < 0) {
+                    return null;
+                }
+                values[state] = buffer.getDouble(valueStart + i * Double.BYTES);
+            }
+            // Marks the entry as used for the eviction
+            file.setLastModified(System.currentTimeMillis());
+            return values;
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException e) {
+            if (debug) System.out.println("Could not read cached result " + key + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores the values of a result. The file is written to a temporary file of its own beside the entry and moved in
+     * place, so that neither a crash nor another project storing the same entry leaves a partial entry behind. Failing
+     * to write only costs the next check.
+     *
+     * @param values values indexed like the states of the graph
+     */
+    public void store(String key, CsrGraph csr, double[] values) {
+        File file = file(key);
+        Path temp = null;
+        try {
+            Files.createDirectories(directory.toPath());
+            temp = Files.createTempFile(directory.toPath(), key, ".tmp");
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + values.length * (Long.BYTES + Double.BYTES)).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(values.length).putInt(0);
+            for (int state = 0; state < values.length; state++) buffer.putLong(csr.stateId(state));
+            for (double value : values) buffer.putDouble(value);
+            buffer.flip();
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) channel.write(buffer);
+            }
+            Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (debug) System.out.println("Could not cache result " + key + ": " + e.getMessage());
+            if (temp != null) temp.toFile().delete();
+        }
+        evict();
+    }
+
+    /**
+     * Deletes the least recently used entries until the rest fits into the limit.
+     */
+    void evict() {
+        synchronized (LOCK) {
+            File[] entries = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+            if (entries == null) {
+                return;
+            }
+            long total = 0;
+            for (File entry : entries) {
+                total += entry.length();
+            }
+            if (total <= maxBytes) {
+                return;
+            }
+            Arrays.sort(entries, Comparator.comparingLong(File::lastModified));
+            for (int i = 0; i < entries.length && total > maxBytes; i++) {
+                long length = entries[i].length();
+                if (entries[i].delete()) {
+                    total -= length;
+                }
+            }
+        }
+    }
+
+    private File file(String key) {
+        return new File(directory, key + SUFFIX);
+    }
+}
@@ -24,17 +24,17 @@ public class APView extends View {
     }
 
     @Override
-    protected List<String> groupingFunction() throws Exception {
-        List<String> toExecute = new ArrayList<>();
+    protected Grouping groupingFunction() throws Exception {
+        Grouping groups = new Grouping();
 
-        try(PersistentQuery query = model.getDatabase().openQuery(String.format("SELECT * FROM %s", model.getStateTableName()))) {
+        try(PersistentQuery query = model.getDatabase().openQuery(String.format("SELECT * FROM %s", model.getStateSource()))) {
             Iterator<State> states = query.iterator(new StateMapper(model, null));
             while (states.hasNext()) {
                 State state = states.next();
                 if (!relevantStates.contains(state.getNumId())) continue;
                 String combination = String.join(";", model.getLabels(model.getModelParser().parseState(state.getParameterString())));
 //            combination = semiGrouping && combination.isEmpty() ? ENTRY_C_BLANK : combination;
-                toExecute.add(String.format("UPDATE %s SET %s = '%s' WHERE %s = '%s'", model.getStateTableName(), getCollumn(), combination, ENTRY_S_ID, state.getNumId()));
+                groups.put(state.getNumId(), combination);
 
             }
         }
@@ -46,10 +46,10 @@ public class APView extends View {
 //        for (State state : states) {
 //            String combination = String.join(";", model.getLabels(model.parseState(state.getVariableString())));
 ////            combination = semiGrouping && combination.isEmpty() ? ENTRY_C_BLANK : combination;
-//            toExecute.add(String.format("UPDATE %s SET %s = '%s' WHERE %s = '%s'", model.getStateTableName(), getCollumn(), combination, ENTRY_S_ID, state.getNumId()));
+//            groups.put(state.getNumId(), combination);
 //        }
 
-        return toExecute;
+        return groups;
     }
 
     @Override
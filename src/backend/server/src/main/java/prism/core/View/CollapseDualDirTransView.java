@@ -24,8 +24,8 @@ public class CollapseDualDirTransView extends View {
     }
 
     @Override
-    protected List<String> groupingFunction() {
-        List<String> toExecute = new ArrayList<>();
+    protected Grouping groupingFunction() {
+        Grouping groups = new Grouping();
 
         MdpGraph mdpGraph = model.getMdpGraph();
         HashMap<String, DefaultUndirectedGraph<Long,Long>> doubleActionToGraph = new HashMap<>();
@@ -102,10 +102,7 @@ public class CollapseDualDirTransView extends View {
                 notYetAssignedToConComp.removeAll(connectedComp);
                 for (Long stateId : connectedComp) {
                     String doubleDirEdgeString = graphToDoubleAction.get(connectedComp) + ": " + connectedComp;
-                    toExecute.add(String.format(
-                            "UPDATE %s SET %s = '%s' WHERE %s = '%s'",
-                            model.getStateTableName(), getCollumn(), doubleDirEdgeString, ENTRY_S_ID, stateId
-                    ));
+                    groups.put(stateId, doubleDirEdgeString);
                 }
             }
         }
@@ -113,13 +110,10 @@ public class CollapseDualDirTransView extends View {
         // assign other states
         for (Long stateId : notYetAssignedToConComp) {
             String doubleDirEdgeString = semiGrouping ? ENTRY_C_BLANK : "";
-            toExecute.add(String.format(
-                    "UPDATE %s SET %s = '%s' WHERE %s = '%s'",
-                    model.getStateTableName(), getCollumn(), doubleDirEdgeString, ENTRY_S_ID, stateId
-            ));
+            groups.put(stateId, doubleDirEdgeString);
         }
 
-        return toExecute;
+        return groups;
     }
 
     @Override
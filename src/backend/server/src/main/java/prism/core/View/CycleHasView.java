@@ -56,8 +56,8 @@ public class CycleHasView extends View {
     }
 
     @Override
-    protected List<String> groupingFunction() {
-        List<String> toExecute = new ArrayList<>();
+    protected Grouping groupingFunction() {
+        Grouping groups = new Grouping();
 
         MdpGraph mdpGraph = model.getMdpGraph();
 
@@ -89,13 +89,10 @@ public class CycleHasView extends View {
 //            else {
 //                cycleGroupingString = cycleStates.contains(stateId) ? "inCycle" : "notInCycle";
 //            }
-            toExecute.add(String.format(
-                    "UPDATE %s SET %s = '%s' WHERE %s = '%s'",
-                    model.getStateTableName(), getCollumn(), cycleGroupingString, ENTRY_S_ID, stateId
-            ));
+            groups.put(stateId, cycleGroupingString);
         }
 
-        return toExecute;
+        return groups;
     }
 
     @Override
@@ -105,8 +105,8 @@ public class CycleView extends View {
     }
     @Override
 
-    public List<String> groupingFunction() {
-        List<String> toExecute = new ArrayList<>();
+    public Grouping groupingFunction() {
+        Grouping groups = new Grouping();
 
         MdpGraph mdpGraph = model.getMdpGraph();
         StrongConnectivityAlgorithm<Long, Long> strongConAlg;
@@ -214,8 +214,7 @@ public class CycleView extends View {
                                     .map(cycle -> cycle.toString() + actionOfCycle.getOrDefault(cycle, ""))
                                     .collect(Collectors.toCollection(TreeSet::new));
                             String cycleString = semiGrouping && cycleStringSet.isEmpty() ? ENTRY_C_BLANK : cycleStringSet.toString();
-                            toExecute.add(String.format("UPDATE %s SET %s = '%s' WHERE %s = '%s'",
-                                    model.getStateTableName(), getCollumn(), cycleString, ENTRY_S_ID, stateId));
+                            groups.put(stateId, cycleString);
                         }
                         break;
 
@@ -227,7 +226,7 @@ public class CycleView extends View {
                                     .flatMap(Collection::stream)
                                     .collect(Collectors.toCollection(TreeSet::new));
                             String cycleString = semiGrouping && cycleNodes.isEmpty() ? ENTRY_C_BLANK : cycleNodes.toString();
-                            toExecute.add(String.format("UPDATE %s SET %s = '%s' WHERE %s = '%s'", model.getStateTableName(), getCollumn(), cycleString, ENTRY_S_ID, stateId));
+                            groups.put(stateId, cycleString);
                         }
                         break;
 
@@ -270,14 +269,13 @@ public class CycleView extends View {
                         for (Long stateId : relevantStates) {
                             List<Long> cycle = stateToCycle.getOrDefault(stateId, emptyList);
                             String cycleString = semiGrouping && cycle.isEmpty() ? ENTRY_C_BLANK : cycle.toString() + actionOfCycle.getOrDefault(cycle, "");
-                            toExecute.add(String.format("UPDATE %s SET %s = '%s' WHERE %s = '%s'",
-                                    model.getStateTableName(), getCollumn(), cycleString, ENTRY_S_ID, stateId));
+                            groups.put(stateId, cycleString);
                         }
                         break;
                 }
             }
 
-        return toExecute;
+        return groups;
     }
 
 //    // old previous version
@@ -1,7 +1,7 @@
 package prism.core.View;
 
 import prism.core.Project;
-import prism.core.mdpgraph.MdpGraph;
+import prism.core.mdpgraph.CsrGraph;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -64,8 +64,8 @@ public class DistanceView extends View {
     }
 
     @Override
-    protected List<String> groupingFunction() throws Exception {
-        List<String> toExecute = new ArrayList<>();
+    protected Grouping groupingFunction() throws Exception {
+        Grouping groups = new Grouping();
 
         // Compute reachability score
         Set<Long> visited = new HashSet<>();
@@ -81,14 +81,13 @@ public class DistanceView extends View {
                     .collect(Collectors.toSet());
             visiting.addAll(subsetInitStates);
         } else {
-            Set<Long> subsetStates = model.getStatesByExpression(model.getModelParser().parseSingleExpressionString(identifierExpression).toString())
+            Set<Long> subsetStates = model.getStateIdsByExpression(identifierExpression)
                     .stream()
-                    .map(Long::parseLong)
                     .filter(stateId -> relevantStates.contains(stateId))
                     .collect(Collectors.toSet());
             visiting.addAll(subsetStates);
         }
-        MdpGraph mdpGraph = model.getMdpGraph();
+        CsrGraph csr = model.getMdpGraph().getCsr();
 
         // Determine distance from Expression states (both ways)
         while(!visiting.isEmpty()){
@@ -97,42 +96,22 @@ public class DistanceView extends View {
             for (Long stateID : visiting){
                 long curr = distance - Math.floorMod(distance, granularity);
 //                    if (!(direction == DistanceDirection.REACHABLE))
-                toExecute.add(String.format("UPDATE %s SET %s = '%s' WHERE %s = '%s'", model.getStateTableName(), getCollumn(), curr, ENTRY_S_ID, stateID));
-
-                Set<Long> reachableStates;
-
-                // See all outgoing
-                switch (direction) {
-//                        case REACHABLE:
-                    case BACKWARD:
-                        reachableStates = mdpGraph.incomingEdgesOf(stateID)
-                                .stream()
-                                .map(mdpGraph::getEdgeSource)
-                                .filter(stateId -> relevantStates.contains(stateId))
-                                .collect(Collectors.toSet());
-                        break;
-                    case DIRECTIONLESS:
-                        reachableStates =
-                                mdpGraph.outgoingEdgesOf(stateID)
-                                .stream()
-                                .map(mdpGraph::getEdgeTarget)
-                                .filter(stateId -> relevantStates.contains(stateId))
-                                .collect(Collectors.toSet());
-                        reachableStates.addAll(
-                                mdpGraph.incomingEdgesOf(stateID)
-                                .stream()
-                                .map(mdpGraph::getEdgeSource)
-                                .filter(stateId -> relevantStates.contains(stateId))
-                                .collect(Collectors.toSet())
-                        );
-                        break;
-                    case FORWARD: default:
-                        reachableStates = mdpGraph.outgoingEdgesOf(stateID)
-                                .stream()
-                                .map(mdpGraph::getEdgeTarget)
-                                .filter(stateId -> relevantStates.contains(stateId))
-                                .collect(Collectors.toSet());
+                groups.put(stateID, curr);
+
+                // See all outgoing, incoming or both, directly on the CSR arrays
+                int state = csr.index(stateID);
+                Set<Long> reachableStates = new HashSet<>();
+                if (direction != DistanceDirection.BACKWARD) {
+                    for (int e = csr.outBegin(state); e < csr.outEnd(state); e++) {
+                        reachableStates.add(csr.stateId(csr.target(e)));
+                    }
+                }
+                if (direction == DistanceDirection.BACKWARD || direction == DistanceDirection.DIRECTIONLESS) {
+                    for (int i = csr.inBegin(state); i < csr.inEnd(state); i++) {
+                        reachableStates.add(csr.stateId(csr.source(csr.inEdge(i))));
+                    }
                 }
+                reachableStates.removeIf(stateId -> !relevantStates.contains(stateId));
 
                 for (Long idReachableState : reachableStates) {
                     if (!(visited.contains(idReachableState) || visiting.contains(idReachableState))){
@@ -154,10 +133,10 @@ public class DistanceView extends View {
 
         for (long stateID : not_reachable){
             String reachability = semiGrouping ? "inf" : ENTRY_C_BLANK;
-            toExecute.add(String.format("UPDATE %s SET %s = '%s' WHERE %s = '%s'", model.getStateTableName(), getCollumn(), reachability, ENTRY_S_ID, stateID));
+            groups.put(stateID, reachability);
         }
 
-        return toExecute;
+        return groups;
     }
 
     @Override
@@ -32,7 +32,7 @@ public class DummyView extends View {
     public void buildView() {}
 
     @Override
-    protected List<String> groupingFunction() { return new ArrayList<>(); }
+    protected Grouping groupingFunction() { return new Grouping(); }
     // is never called due to overwritten buildView()
     // can not be abstract since instances shall be created
 
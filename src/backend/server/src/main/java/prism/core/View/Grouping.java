@@ -0,0 +1,69 @@
+package prism.core.View;
+
+import prism.core.Namespace;
+import prism.core.Project;
+
+import java.util.*;
+
+/**
+ * Result of a grouping function: one group per state, kept as primitive arrays. Group values are dictionary encoded,
+ * so that every distinct value is stored and written only once, no matter how many states share it.
+ */
+public class Grouping {
+
+    private long[] states = new long[1024];
+
+    private int[] groups = new int[1024];
+
+    private int size = 0;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+
+    private final List<String> values = new ArrayList<>();
+
+    /**
+     * Assigns a group to a state. If a state is assigned several times, the last assignment is kept.
+     *
+     * @param stateId id of the state
+     * @param group value of the group, written as its string representation
+     */
+    public void put(long stateId, Object group) {
+        if (size == states.length) {
+            states = Arrays.copyOf(states, size * 2);
+            groups = Arrays.copyOf(groups, size * 2);
+        }
+        String value = String.valueOf(group);
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        states[size] = stateId;
+        groups[size] = code;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int numGroups() {
+        return values.size();
+    }
+
+    /**
+     * Writes all assignments into a column of the state table in one pass.
+     *
+     * @param model project owning the state table
+     * @param collumn column to write the group values to
+     */
+    public void write(Project model, String collumn) {
+        String table = model.getColumnStore().getTable(model.getStateTableName(), collumn);
+        model.getDatabase().updateColumn(table, collumn, Namespace.ENTRY_S_ID, states, groups, size, values);
+    }
+}
@@ -13,13 +13,12 @@ public class IdentityView extends View {
     }
 
     @Override
-    public List<String> groupingFunction(){
-        List<String> toExecute = new ArrayList<>();
+    public Grouping groupingFunction(){
+        Grouping groups = new Grouping();
         for (Long stateId : relevantStates) {
-            toExecute.add(String.format("UPDATE %s SET %s = '%s' WHERE %s = '%s'",
-                    model.getStateTableName(), getCollumn(), stateId, ENTRY_S_ID, stateId));
+            groups.put(stateId, stateId);
         }
-        return toExecute;
+        return groups;
     }
 
     @Override
@@ -39,8 +39,8 @@ public class InActIdentView extends View {
     }
 
     @Override
-    protected List<String> groupingFunction() {
-        List<String> toExecute = new ArrayList<>();
+    protected Grouping groupingFunction() {
+        Grouping groups = new Grouping();
 
         // Create views by checking AP Labels
         // WEAK identity requires that the set of actions must be identical - THE QUANTITY OF AN ACTION DOES NOT MATTER
@@ -56,7 +56,7 @@ public class InActIdentView extends View {
                             .map(MdpTransition::getAction)
                             .collect(Collectors.toCollection(TreeSet::new));
                     String actionString = semiGrouping && actions.isEmpty() ? ENTRY_C_BLANK : actions.toString();
-                    toExecute.add(String.format("UPDATE %s SET %s = '%s' WHERE %s = '%s'", model.getStateTableName(), getCollumn(), actionString, ENTRY_S_ID, stateId));
+                    groups.put(stateId, actionString);
                 }
                 break;
             case STRONG:
@@ -69,12 +69,12 @@ public class InActIdentView extends View {
                             .sorted()
                             .collect(Collectors.toList());
                     String actionString = semiGrouping && actions.isEmpty() ? ENTRY_C_BLANK : actions.toString();
-                    toExecute.add(String.format("UPDATE %s SET %s = '%s' WHERE %s = '%s'", model.getStateTableName(), getCollumn(), actionString, ENTRY_S_ID, stateId));
+                    groups.put(stateId, actionString);
                 }
                 break;
         }
 
-        return toExecute;
+        return groups;
     }
 
     @Override
@@ -82,8 +82,8 @@ public class InActView extends View {
     }
 
     @Override
-    protected List<String> groupingFunction() {
-        List<String> toExecute = new ArrayList<>();
+    protected Grouping groupingFunction() {
+        Grouping groups = new Grouping();
 
         MdpGraph mdpGraph = model.getMdpGraph();
         switch (countMode) {
@@ -96,7 +96,7 @@ public class InActView extends View {
                             .findAny()
                             .orElse("");
                     hasAction = semiGrouping && hasAction.isEmpty() ? ENTRY_C_BLANK : hasAction;
-                    toExecute.add(String.format("UPDATE %s SET %s = '%s' WHERE %s = '%s'", model.getStateTableName(), getCollumn(), hasAction, ENTRY_S_ID, stateId));
+                    groups.put(stateId, hasAction);
                 }
                 break;
             default:
@@ -120,12 +120,12 @@ public class InActView extends View {
                             break;
                     }
                     String actionGroupingString = calcBinGroupingString(hasAction, action, "~iAct");
-                    toExecute.add(String.format("UPDATE %s SET %s = '%s' WHERE %s = '%s'", model.getStateTableName(), getCollumn(), actionGroupingString, ENTRY_S_ID, stateId));
+                    groups.put(stateId, actionGroupingString);
                 }
                 break;
         }
 
-        return toExecute;
+        return groups;
     }
 
     @Override
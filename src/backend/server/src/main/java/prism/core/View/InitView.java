@@ -16,8 +16,8 @@ public class InitView extends View {
     }
 
     @Override
-    protected List<String> groupingFunction() throws Exception {
-        List<String> toExecute = new ArrayList<>();
+    protected Grouping groupingFunction() throws Exception {
+        Grouping groups = new Grouping();
 
         // 1. Get initial states
         Set<String> initStates = new HashSet<>(model.getInitialStates());
@@ -27,10 +27,10 @@ public class InitView extends View {
             boolean isInitState = initStates.contains(stateId.toString());
             String initGroupingString = calcBinGroupingString(isInitState, "init", "~init");
 
-            toExecute.add(String.format("UPDATE %s SET %s = '%s' WHERE %s = '%s'", model.getStateTableName(), getCollumn(), initGroupingString, ENTRY_S_ID, stateId));
+            groups.put(stateId, initGroupingString);
         }
 
-        return toExecute;
+        return groups;
     }
 
     @Override
@@ -71,8 +71,8 @@ public class OutActSetSizeView extends View {
     }
 
     @Override
-    protected List<String> groupingFunction() {
-        List<String> toExecute = new ArrayList<>();
+    protected Grouping groupingFunction() {
+        Grouping groups = new Grouping();
 
         MdpGraph mdpGraph = model.getMdpGraph();
 
@@ -94,10 +94,10 @@ public class OutActSetSizeView extends View {
                 outActSetSizeString = Integer.toString(outActSetSize);
             }
 
-            toExecute.add(String.format("UPDATE %s SET %s = '%s' WHERE %s = '%s'", model.getStateTableName(), getCollumn(), outActSetSizeString, ENTRY_S_ID, stateId));
+            groups.put(stateId, outActSetSizeString);
         }
 
-        return toExecute;
+        return groups;
     }
 
     @Override
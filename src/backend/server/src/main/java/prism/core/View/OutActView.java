@@ -85,8 +85,8 @@ public class OutActView extends View {
 
 
     @Override
-    protected List<String> groupingFunction() {
-        List<String> toExecute = new ArrayList<>();
+    protected Grouping groupingFunction() {
+        Grouping groups = new Grouping();
 
         MdpGraph mdpGraph = model.getMdpGraph();
         switch (countMode) {
@@ -99,7 +99,7 @@ public class OutActView extends View {
                             .findAny()
                             .orElse("");
                     hasAction = semiGrouping && hasAction.isEmpty() ? ENTRY_C_BLANK : hasAction;
-                    toExecute.add(String.format("UPDATE %s SET %s = '%s' WHERE %s = '%s'", model.getStateTableName(), getCollumn(), hasAction, ENTRY_S_ID, stateId));
+                    groups.put(stateId, hasAction);
                 }
                 break;
             default:
@@ -123,12 +123,12 @@ public class OutActView extends View {
                             break;
                     }
                     String actionGroupingString = calcBinGroupingString(hasAction, action, "~iAct");
-                    toExecute.add(String.format("UPDATE %s SET %s = '%s' WHERE %s = '%s'", model.getStateTableName(), getCollumn(), actionGroupingString, ENTRY_S_ID, stateId));
+                    groups.put(stateId, actionGroupingString);
                 }
                 break;
         }
 
-        return toExecute;
+        return groups;
     }
 
     @Deprecated
@@ -65,8 +65,8 @@ public class PropertyView extends View {
     }
 
     @Override
-    protected List<String> groupingFunction() {
-        List<String> toExecute = new ArrayList<>();
+    protected Grouping groupingFunction() {
+        Grouping groups = new Grouping();
         Optional<Property> property = model.getProperty(propertyName);
 
         // check requested by IDE for property.get() is done in viewRequirementsFulfilled,
@@ -76,10 +76,10 @@ public class PropertyView extends View {
             BigDecimal value = BigDecimal.valueOf(e.getValue()).divide(granularity, 0, RoundingMode.HALF_UP);
             BigDecimal comp = granularity.multiply(value);
             BigDecimal solution = comp.setScale(granularity.scale(), RoundingMode.HALF_UP);
-            toExecute.add(String.format("UPDATE %s SET %s = '%s' WHERE %s = '%s'", model.getStateTableName(), getCollumn(), solution, ENTRY_S_ID, e.getKey()));
+            groups.put(e.getKey(), solution);
         }
 
-        return toExecute;
+        return groups;
     }
 
     @Override
@@ -0,0 +1,143 @@
+package prism.core.View;
+
+import prism.Pair;
+import prism.api.State;
+import prism.api.Transition;
+import prism.core.Namespace;
+import prism.core.Project;
+import prism.db.Database;
+import prism.db.mappers.PairMapper;
+import prism.db.mappers.StateMapper;
+import prism.db.mappers.TransitionMapper;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Graph of a project grouped by a set of views: one node per group, one transition per group and action. It is read
+ * once from the database and kept by the project until a view or the model changes, so that navigating the grouped
+ * graph does not group the whole state table again on every request.
+ */
+public class QuotientGraph implements Namespace {
+
+    private final long version;
+
+    private final List<State> states;
+
+    // Groups by their name, which is also how transitions refer to them
+    private final Map<String, State> groups;
+
+    // Name of each group, by the identifier the frontend knows it by
+    private final Map<String, String> names;
+
+    // Group of each state, by state id
+    private final Map<String, String> reverseView;
+
+    private final List<Transition> transitions;
+
+    // Transitions by the group they leave
+    private final Map<String, List<Transition>> outgoing;
+
+    private QuotientGraph(long version, List<State> states, Map<String, String> reverseView, List<Transition> transitions) {
+        this.version = version;
+        this.states = Collections.unmodifiableList(states);
+        this.groups = new HashMap<>();
+        this.names = new HashMap<>();
+        for (State s : states) {
+            groups.put(s.getName(), s);
+            names.put(s.getId(), s.getName());
+        }
+        this.reverseView = reverseView;
+        this.transitions = Collections.unmodifiableList(transitions);
+        this.outgoing = new HashMap<>();
+        for (Transition t : transitions) {
+            outgoing.computeIfAbsent(t.getSource(), k -> new ArrayList<>()).add(t);
+        }
+    }
+
+    /**
+     * Groups the states and transitions of the project by the given views.
+     *
+     * @param version data version of the project the groups are read at
+     */
+    public static QuotientGraph load(Project project, List<View> views, long version) {
+        StringBuilder identifierStates = null;
+        StringBuilder groupStates = null;
+        StringBuilder blankStates = null;
+        for (View c : views){
+            if (identifierStates == null){
+                identifierStates = new StringBuilder();
+                groupStates = new StringBuilder();
+                blankStates = new StringBuilder();
+            }else{
+                identifierStates.append(" || '" + C_CONCAT_SYMBOL + "' || ");
+                groupStates.append(", ");
+                blankStates.append(" AND ");
+            }
+            identifierStates.append(c.getCollumn());
+            groupStates.append(c.getCollumn());
+            blankStates.append(String.format("%s = '%s'", c.getCollumn(), ENTRY_C_BLANK));
+        }
+
+        identifierStates.append(String.format("|| CASE WHEN %s THEN %s ELSE '' END", blankStates.toString(), ENTRY_S_ID));
+        groupStates.append(String.format(", CASE WHEN %s THEN %s ELSE 1 END", blankStates.toString(), ENTRY_S_ID));
+
+        Database database = project.getDatabase();
+        String source = project.getStateSource(views);
+        String tableTrans = project.getTransitionTableName();
+        String tableDist = project.getDistributionTableName();
+
+        List<State> states = database.executeCollectionQuery(String.format("SELECT %s as %s, GROUP_CONCAT(%s,';') AS %s FROM %s GROUP BY %s", identifierStates, ENTRY_C_NAME, ENTRY_S_ID, ENTRY_C_SUB, source, groupStates), new StateMapper(project, views));
+
+        Map<String, String> reverseView = new HashMap<>();
+        for (Pair<String, String> p : database.executeCollectionQuery(String.format("SELECT %s, %s AS %s FROM %s", ENTRY_S_ID, identifierStates, ENTRY_C_NAME, source), new PairMapper<>(ENTRY_S_ID, ENTRY_C_NAME, String.class, String.class))) {
+            reverseView.put(p.getKey(), p.getValue());
+        }
+
+        List<Transition> transitions = database.executeCollectionQuery(String.format("SELECT min(%s.%s) AS %s, %s AS %s, %s, GROUP_CONCAT(%s || ':' || %s, ';') AS %s FROM %s JOIN %s ON %s = %s JOIN %s ON %s.%s = %s.%s GROUP BY %s, %s", tableTrans, ENTRY_T_ID, ENTRY_T_ID, identifierStates, ENTRY_T_OUT, ENTRY_T_ACT, ENTRY_D_TARGET, ENTRY_D_PROB, ENTRY_T_PROB, tableTrans, source, ENTRY_S_ID, ENTRY_T_OUT, tableDist, tableDist, ENTRY_T_ID, tableTrans, ENTRY_T_ID, groupStates, ENTRY_T_ACT), new TransitionMapper(project, views, reverseView));
+
+        return new QuotientGraph(version, states, reverseView, transitions);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<State> getStates() {
+        return states;
+    }
+
+    public List<Transition> getTransitions() {
+        return transitions;
+    }
+
+    /**
+     * @param ids names or identifiers of groups, or identifiers of states, which stand for the group they belong to
+     * @return names of the groups, in order of first appearance
+     */
+    public Set<String> resolve(Collection<String> ids) {
+        Set<String> resolved = new LinkedHashSet<>();
+        for (String id : ids) {
+            if (groups.containsKey(id)) {
+                resolved.add(id);
+            } else if (names.containsKey(id)) {
+                resolved.add(names.get(id));
+            } else if (reverseView.containsKey(id)) {
+                resolved.add(reverseView.get(id));
+            }
+        }
+        return resolved;
+    }
+
+    public List<State> getStates(Collection<String> groupNames) {
+        return groupNames.stream().map(groups::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    public List<Transition> getOutgoing(Collection<String> groupNames) {
+        List<Transition> result = new ArrayList<>();
+        for (String group : groupNames) {
+            result.addAll(outgoing.getOrDefault(group, Collections.emptyList()));
+        }
+        return result;
+    }
+}
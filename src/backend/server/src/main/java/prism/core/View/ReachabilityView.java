@@ -1,6 +1,7 @@
 package prism.core.View;
 
 import prism.core.Project;
+import prism.core.mdpgraph.CsrGraph;
 import prism.core.mdpgraph.MdpGraph;
 
 import java.util.*;
@@ -20,7 +21,7 @@ public class ReachabilityView extends View {
         MdpGraph mdpGraph = model.getMdpGraph();
         relevantStates = mdpGraph.stateSet()
                 .stream()
-                .filter(stateId -> mdpGraph.getStateObj(stateId).isFinal())
+                .filter(mdpGraph::isFinal)
                 .collect(Collectors.toSet());
         attributes.putAll(setAttributes(attributeSetter));
     }
@@ -48,8 +49,8 @@ public class ReachabilityView extends View {
     }
 
     @Override
-    protected List<String> groupingFunction() throws Exception {
-        List<String> toExecute = new ArrayList<>();
+    protected Grouping groupingFunction() throws Exception {
+        Grouping groups = new Grouping();
 
         // Compute reachability score
         Set<Long> visited = new HashSet<>();
@@ -74,21 +75,22 @@ public class ReachabilityView extends View {
 
         visiting.addAll(relevantStates);
 
-        MdpGraph mdpGraph = model.getMdpGraph();
+        CsrGraph csr = model.getMdpGraph().getCsr();
         long distance = 0;
         // Determine distance from Expression states (both ways)
         while(!visiting.isEmpty() && (ignoreMaxDistance() || distance <= maxDistance)){
             Set<Long> toVisit = new HashSet<>();
 
             for (Long stateID : visiting){
-                Set<Long> reachingStates;
-
-                // See all outgoing
-                reachingStates = mdpGraph.incomingEdgesOf(stateID)
-                        .stream()
-                        .map(mdpGraph::getEdgeSource)
-                        .filter(stateId -> relevantStates.contains(stateId))
-                        .collect(Collectors.toSet());
+                // See all incoming
+                int state = csr.index(stateID);
+                Set<Long> reachingStates = new HashSet<>();
+                for (int i = csr.inBegin(state); i < csr.inEnd(state); i++) {
+                    long source = csr.stateId(csr.source(csr.inEdge(i)));
+                    if (relevantStates.contains(source)) {
+                        reachingStates.add(source);
+                    }
+                }
 
                 for (Long idReachingStates : reachingStates) {
                     if (!(visited.contains(idReachingStates) || visiting.contains(idReachingStates))){
@@ -110,15 +112,15 @@ public class ReachabilityView extends View {
 
         for (long stateID : visited) {
             String reachingGroupingString = calcBinGroupingString(true, "reach","~reach");
-            toExecute.add(String.format("UPDATE %s SET %s = '%s' WHERE %s = '%s'", model.getStateTableName(), getCollumn(), reachingGroupingString, ENTRY_S_ID, stateID));
+            groups.put(stateID, reachingGroupingString);
         }
 
         for (long stateID : notReachable){
             String reachingGroupingString = calcBinGroupingString(false, "reach","~reach");
-            toExecute.add(String.format("UPDATE %s SET %s = '%s' WHERE %s = '%s'", model.getStateTableName(), getCollumn(), reachingGroupingString, ENTRY_S_ID, stateID));
+            groups.put(stateID, reachingGroupingString);
         }
 
-        return toExecute;
+        return groups;
     }
 
     @Override
@@ -44,8 +44,8 @@ public class SccView extends View {
     }
 
     @Override
-    protected List<String> groupingFunction() {
-        List<String> toExecute = new ArrayList<>();
+    protected Grouping groupingFunction() {
+        Grouping groups = new Grouping();
 
         MdpGraph mdpGraph = model.getMdpGraph();
 
@@ -73,10 +73,7 @@ public class SccView extends View {
                     .map(Object::toString)
                     .collect(Collectors.toCollection(TreeSet::new));
             String strongConCompString = semiGrouping && strongConCompsState.isEmpty() ? ENTRY_C_BLANK : strongConCompsState.toString();
-            toExecute.add(String.format(
-                    "UPDATE %s SET %s = '%s' WHERE %s = '%s'",
-                    model.getStateTableName(), getCollumn(), strongConCompString, ENTRY_S_ID, stateId
-            ));
+            groups.put(stateId, strongConCompString);
         }
 
 //        if (model.debug) {
@@ -86,7 +83,7 @@ public class SccView extends View {
 //            System.out.println("########################################################################");
 //        }
 
-        return toExecute;
+        return groups;
     }
 
     @Override
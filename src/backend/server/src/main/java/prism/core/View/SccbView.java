@@ -30,8 +30,8 @@ public class SccbView extends View {
     }
 
     @Override
-    protected List<String> groupingFunction() {
-        List<String> toExecute = new ArrayList<>();
+    protected Grouping groupingFunction() {
+        Grouping groups = new Grouping();
 
         MdpGraph mdpGraph = model.getMdpGraph();
 
@@ -68,13 +68,10 @@ public class SccbView extends View {
                     .map(Object::toString)
                     .collect(Collectors.toCollection(TreeSet::new));
             String btmStrongConCompString = semiGrouping && btmStrongConCompsState.isEmpty() ? ENTRY_C_BLANK : btmStrongConCompsState.toString();
-            toExecute.add(String.format(
-                    "UPDATE %s SET %s = '%s' WHERE %s = '%s'",
-                    model.getStateTableName(), getCollumn(), btmStrongConCompString, ENTRY_S_ID, stateId
-            ));
+            groups.put(stateId, btmStrongConCompString);
         }
 
-        return toExecute;
+        return groups;
     }
 
     @Override
@@ -87,19 +87,22 @@ public class VariablesView extends View {
     }
 
     @Override
-    protected List<String> groupingFunction() {
-        List<String> toExecute = new ArrayList<>();
+    protected Grouping groupingFunction() {
+        Grouping groups = new Grouping();
 
         // Create views by checking if every state has the vars with the relevant values
         if (requiredParams.keySet().isEmpty()) {
             throw new RuntimeException("Required Params is empty! Can not build view!");
         }
 
+        // Read from the variable columns of the state table where available
+        Map<Long, Map<String, Object>> variables = model.getStateVariables();
+
         if (considerParamValues) {
             for (Long stateId : relevantStates) { // requiredParams example: {x=!5, y=a}
 
                 // Issue: parameter values are Strings -> Casting dificult -> using String representation currently
-                Map <String,Object> stateParams = model.getMdpGraph().getStateObj(stateId).getVariable();
+                Map <String,Object> stateParams = variables.get(stateId);
                 boolean paramValuesAsRequired = true;
                 for (String reqParamName : requiredParams.keySet()) {
                     String reqParamValue = requiredParams.get(reqParamName);
@@ -116,13 +119,13 @@ public class VariablesView extends View {
                 }
                 String vars = requiredParams.entrySet().toString();
                 String paramGroupingString = calcBinGroupingString(paramValuesAsRequired, vars, "~Var");
-                toExecute.add(String.format("UPDATE %s SET %s = '%s' WHERE %s = '%s'", model.getStateTableName(), getCollumn(), paramGroupingString, ENTRY_S_ID, stateId));
+                groups.put(stateId, paramGroupingString);
             }
         }
 
         else {
             for (Long stateId : relevantStates) {
-                Map<String,Object> stateParams = model.getMdpGraph().getStateObj(stateId).getVariable();
+                Map<String,Object> stateParams = variables.get(stateId);
                 SortedSet<String> paramSet = new TreeSet<>();
 
                 // create string of set of key value pairs but only for keys contained in requiredParams
@@ -139,11 +142,11 @@ public class VariablesView extends View {
                     paramSet.add(key + "=" + stateParamValue.toString());
                 }
                 String vars = paramSet.toString();
-                toExecute.add(String.format("UPDATE %s SET %s = '%s' WHERE %s = '%s'", model.getStateTableName(), getCollumn(), vars, ENTRY_S_ID, stateId));
+                groups.put(stateId, vars);
             }
         }
 
-        return toExecute;
+        return groups;
     }
 
     @Override
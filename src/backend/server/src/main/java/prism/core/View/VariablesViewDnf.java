@@ -1,7 +1,6 @@
 package prism.core.View;
 
 import prism.core.Project;
-import prism.core.mdpgraph.MdpGraph;
 
 import java.util.*;
 
@@ -59,21 +58,21 @@ public class VariablesViewDnf extends View {
     }
 
     @Override
-    protected List<String> groupingFunction() {
-        List<String> toExecute = new ArrayList<>();
+    protected Grouping groupingFunction() {
+        Grouping groups = new Grouping();
 
         if (requiredParams.isEmpty()) {
             throw new RuntimeException("Required Params is empty! Can not build view!");
         }
 
-        MdpGraph mdpGraph = model.getMdpGraph();
+        Map<Long, Map<String, Object>> variables = model.getStateVariables();
 
         for (Long stateId : relevantStates) {
             boolean paramValuesAsRequired = requiredParams.stream()
                     // a monom of the cnf is represented by a map {paramKey1 = paramVal1 AND paramKey2 = !paramVal2 AND ...}
                     .anyMatch(monom -> monom.keySet().stream()
                             .allMatch(paramKey -> {
-                                String stateParamVal = mdpGraph.getStateObj(stateId).getVariable().get(paramKey).toString();
+                                String stateParamVal = variables.get(stateId).get(paramKey).toString();
                                 String reqParamVal = monom.get(paramKey);
                                 if (reqParamVal.charAt(0) == '!') {
                                     reqParamVal = reqParamVal.substring(1);
@@ -88,10 +87,10 @@ public class VariablesViewDnf extends View {
 //          String vars = paramValuesAsRequired ? requiredParams.stream().map(clause -> clause.entrySet().stream().map(Object::toString).collect(Collectors.joining("&&", "(", ")" ))).map(Object::toString).collect(Collectors.joining(" || ")) : noMatchString;
             String vars = requiredParams.toString();
             String paramGroupingString = calcBinGroupingString(paramValuesAsRequired, vars,"~Var");
-            toExecute.add(String.format("UPDATE %s SET %s = '%s' WHERE %s = '%s'", model.getStateTableName(), getCollumn(), paramGroupingString, ENTRY_S_ID, stateId));
+            groups.put(stateId, paramGroupingString);
         }
 
-        return toExecute;
+        return groups;
     }
 
     @Override
@@ -157,40 +157,43 @@ public abstract class View implements Namespace {
             }
             if (model.debug) System.out.println("######################################2");
 
-            // 2. Create new Column         "       "
-            try (Timer createColumn = new Timer(tsColumn)) {
-                model.getDatabase().execute(String.format("ALTER TABLE %s ADD COLUMN %s TEXT DEFAULT %s", model.getStateTableName(), getCollumn(), Namespace.ENTRY_C_BLANK));
-            }
-            if (model.debug) System.out.println("######################################3");
-
-            // 3. Compute grouping function mappings (saved as SQL statements)
-            List<String> toExecute;
+            // 2. Compute grouping function mappings (saved as pairs of state and group)
+            Grouping groups;
             try (Timer timerGroupingFunction = new Timer(tsGrpFct)) {
-                toExecute = groupingFunction();
+                groups = groupingFunction();
             }
+            if (model.debug) System.out.println("######################################3");
 
-            if (model.debug) System.out.println("######################################4");
-
-            // 4. Write mapping to database (i.e. execute created SQL statements)
-            try (Timer executeBatch = new Timer(tsExecuteBatch)) {
-                if (!toExecute.isEmpty() || !model.debug) {
-                    model.getDatabase().executeBatch(toExecute);
-                } else {
-                    throw new Exception("toExecute was empty!");
+            // 3. Create new Column and 4. write mapping to database, in one transaction so that readers never see a
+            // half-written column
+            model.getDatabase().write(handle -> {
+                try (Timer createColumn = new Timer(tsColumn)) {
+                    model.getColumnStore().add(model.getStateTableName(), ENTRY_S_ID, getCollumn(), String.format("TEXT DEFAULT %s", Namespace.ENTRY_C_BLANK));
                 }
-            }
+                if (model.debug) System.out.println("######################################4");
+
+                try (Timer executeBatch = new Timer(tsExecuteBatch)) {
+                    if (!groups.isEmpty() || !model.debug) {
+                        groups.write(model, getCollumn());
+                    } else {
+                        throw new Exception("grouping was empty!");
+                    }
+                }
+                return null;
+            });
+            model.dataChanged();
             if (model.debug) System.out.println("######################################5");
         }
 
         System.out.println("\n\nFinished\n\n");
     }
 
-    protected abstract List<String> groupingFunction() throws Exception;// {return new ArrayList<>();} // chould be Abstract
+    protected abstract Grouping groupingFunction() throws Exception;
     // function that performs the logical part of buildView()
-    // returns list of sql statements that write the assigned value to the database
+    // returns the group assigned to each relevant state, written to the database by buildView()
 
     protected boolean isBuilt(){
-        return model.getDatabase().question(String.format("SELECT * FROM pragma_table_info('%s') WHERE name='%s'\n", model.getStateTableName(), getCollumn()));
+        return model.getColumnStore().exists(model.getStateTableName(), getCollumn());
     }
 
     public ViewType getType() {
@@ -260,6 +263,12 @@ public abstract class View implements Namespace {
                         attributes.put("relevantstates", relevantStates);
                         attributes.put("relevantStatesAreProperSubset", relevantStatesAreProperSubset);
                         break;
+                    case "limit_expression": // limit_expression=x>2 & "goal"
+                        setRelevantStates(attValue);
+                        attributes.put("limitexpression", attValue);
+                        attributes.put("relevantstates", relevantStates);
+                        attributes.put("relevantStatesAreProperSubset", relevantStatesAreProperSubset);
+                        break;
                     // views specific attributes
                     default:
                         modifiedAttributes.putAll(assignAttributes(attName, attValue)); // implemented in each (currently not yet) view
@@ -276,7 +285,8 @@ public abstract class View implements Namespace {
         relevantStatesAreProperSubset = true;
 
         // build query
-        StringBuilder query = new StringBuilder(String.format("SELECT %s FROM %s WHERE ", ENTRY_S_ID, model.getStateTableName()));
+        String source = model.getColumnStore().source(model.getStateTableName(), ENTRY_S_ID, stateRestriction.keySet());
+        StringBuilder query = new StringBuilder(String.format("SELECT %s FROM %s WHERE ", ENTRY_S_ID, source));
         Iterator<String> viewIterator = stateRestriction.keySet().iterator();
 //        messages.put("viewIterator.hasNext() ", List.of(String.valueOf(viewIterator.hasNext())));
         while (viewIterator.hasNext()) {
@@ -301,6 +311,14 @@ public abstract class View implements Namespace {
         relevantStates = new HashSet<>(model.getDatabase().executeCollectionQuery(query.toString(), Long.class));
     }
 
+    // restricts the relevant states to those satisfying the expression, evaluated in SQLite where possible
+    private void setRelevantStates(String expression) {
+        relevantStatesAreProperSubset = true;
+        Set<Long> satisfying = new HashSet<>(model.getStateIdsByExpression(expression));
+        satisfying.retainAll(relevantStates);
+        relevantStates = satisfying;
+    }
+
     private void resetRelevantStates(){
         relevantStatesAreProperSubset = false;
         relevantStates = model.getMdpGraph().stateSet();
@@ -0,0 +1,528 @@
+package prism.core.mdpgraph;
+
+import org.jdbi.v3.core.result.ResultIterator;
+import prism.core.Namespace;
+import prism.core.Project;
+import prism.db.PersistentQuery;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable graph of the built model in compressed sparse row format.
+ *
+ * States are addressed by their position in the ascending list of state identifiers, edges (one per target of a choice
+ * with positive probability) by their position in the forward arrays. The edges of state s are the positions
+ * outOffsets[s] to outOffsets[s+1]-1, the incoming edges of s are inEdges[inOffsets[s]] to inEdges[inOffsets[s+1]-1].
+ * Actions are stored as indices into a dictionary of action names, labels as the bits of the state table. Transitions
+ * (the choices) are addressed like states, by their position in the ascending list of transition identifiers, and
+ * every edge knows the transition it belongs to, so that values of transitions can be summed up over the edges, see
+ * {@link #transitionValues(double[])}.
+ *
+ * The arrays are held in buffers, which either wrap arrays on the heap or are mapped from a snapshot written by
+ * {@link #write(File)}. Mapped snapshots are read-only and shared by all processes through the page cache.
+ */
+public class CsrGraph {
+
+    // Snapshot layout: header, all 8 byte sections, all 4 byte sections, action dictionary. Everything little endian.
+    private static final int MAGIC = 0x47434d50;
+    private static final int VERSION = 3;
+    private static final int HEADER_BYTES = 32;
+
+    private final int numStates;
+    private final int numEdges;
+    private final int numTransitions;
+
+    private final LongBuffer stateIds;
+    // Whether the state identifiers are exactly 0..n-1, in which case identifier and index coincide
+    private final boolean dense;
+
+    // Label bits of every state, null if the state table has none
+    private final LongBuffer labels;
+
+    private final LongBuffer transitionIds;
+    private final boolean denseTransitions;
+
+    private final IntBuffer outOffsets;
+    private final IntBuffer sources;
+    private final IntBuffer targets;
+    private final DoubleBuffer probabilities;
+    private final IntBuffer actions;
+    private final IntBuffer transitions;
+
+    private final IntBuffer inOffsets;
+    private final IntBuffer inEdges;
+
+    private final String[] actionNames;
+
+    CsrGraph(LongBuffer stateIds, LongBuffer labels, LongBuffer transitionIds, IntBuffer outOffsets, IntBuffer sources, IntBuffer targets, DoubleBuffer probabilities, IntBuffer actions, IntBuffer transitions, IntBuffer inOffsets, IntBuffer inEdges, String[] actionNames) {
+        this.numStates = stateIds.limit();
+        this.numEdges = targets.limit();
+        this.numTransitions = transitionIds.limit();
+        this.stateIds = stateIds;
+        this.labels = labels;
+        this.transitionIds = transitionIds;
+        this.outOffsets = outOffsets;
+        this.sources = sources;
+        this.targets = targets;
+        this.probabilities = probabilities;
+        this.actions = actions;
+        this.transitions = transitions;
+        this.inOffsets = inOffsets;
+        this.inEdges = inEdges;
+        this.actionNames = actionNames;
+        this.dense = numStates == 0 || stateIds.get(numStates - 1) == numStates - 1;
+        this.denseTransitions = numTransitions == 0 || transitionIds.get(numTransitions - 1) == numTransitions - 1;
+    }
+
+    /**
+     * Reads states and distributions of the project from the database.
+     */
+    public static CsrGraph load(Project project) {
+        boolean hasLabels = project.hasLabelColumn();
+        long[] stateIds = new long[1024];
+        long[] labels = hasLabels ? new long[1024] : null;
+        int numStates = 0;
+        String stateQuery = String.format("SELECT %s%s FROM %s ORDER BY %s", Namespace.ENTRY_S_ID, hasLabels ? ", " + Namespace.ENTRY_S_LABELS : "", project.getStateTableName(), Namespace.ENTRY_S_ID);
+        try (PersistentQuery query = project.getDatabase().openQuery(stateQuery);
+             ResultIterator<long[]> it = query.iterator((rs, ctx) -> new long[]{rs.getLong(Namespace.ENTRY_S_ID), hasLabels ? rs.getLong(Namespace.ENTRY_S_LABELS) : 0})) {
+            while (it.hasNext()) {
+                long[] state = it.next();
+                if (numStates == stateIds.length) {
+                    stateIds = Arrays.copyOf(stateIds, 2 * numStates);
+                    if (hasLabels) labels = Arrays.copyOf(labels, 2 * numStates);
+                }
+                stateIds[numStates] = state[0];
+                if (hasLabels) labels[numStates] = state[1];
+                numStates++;
+            }
+        }
+        stateIds = Arrays.copyOf(stateIds, numStates);
+        if (hasLabels) labels = Arrays.copyOf(labels, numStates);
+        boolean dense = numStates == 0 || stateIds[numStates - 1] == numStates - 1;
+
+        // All transitions, also those without an edge of positive probability
+        long[] transitionIds = new long[1024];
+        int numTransitions = 0;
+        String transitionQuery = String.format("SELECT %s FROM %s ORDER BY %s", Namespace.ENTRY_T_ID, project.getTransitionTableName(), Namespace.ENTRY_T_ID);
+        try (PersistentQuery query = project.getDatabase().openQuery(transitionQuery);
+             ResultIterator<Long> it = query.iterator((rs, ctx) -> rs.getLong(Namespace.ENTRY_T_ID))) {
+            while (it.hasNext()) {
+                if (numTransitions == transitionIds.length) {
+                    transitionIds = Arrays.copyOf(transitionIds, 2 * numTransitions);
+                }
+                transitionIds[numTransitions++] = it.next();
+            }
+        }
+        transitionIds = Arrays.copyOf(transitionIds, numTransitions);
+        boolean denseTransitions = numTransitions == 0 || transitionIds[numTransitions - 1] == numTransitions - 1;
+
+        // Edges in the order of the database, sorted by source afterwards
+        int[] sources = new int[1024];
+        int[] targets = new int[1024];
+        double[] probabilities = new double[1024];
+        int[] actions = new int[1024];
+        int[] transitions = new int[1024];
+        int numEdges = 0;
+        Map<String, Integer> dictionary = new HashMap<>();
+
+        String edgeQuery = String.format("SELECT %s.%s AS %s, %s, %s, %s, %s FROM %s JOIN %s ON %s.%s = %s.%s WHERE %s > 0",
+                project.getTransitionTableName(), Namespace.ENTRY_T_ID, Namespace.ENTRY_T_ID,
+                Namespace.ENTRY_T_OUT, Namespace.ENTRY_T_ACT, Namespace.ENTRY_D_TARGET, Namespace.ENTRY_D_PROB,
+                project.getTransitionTableName(), project.getDistributionTableName(),
+                project.getTransitionTableName(), Namespace.ENTRY_T_ID, project.getDistributionTableName(), Namespace.ENTRY_T_ID,
+                Namespace.ENTRY_D_PROB);
+        try (PersistentQuery query = project.getDatabase().openQuery(edgeQuery);
+             ResultIterator<Object[]> it = query.iterator((rs, ctx) -> new Object[]{rs.getLong(Namespace.ENTRY_T_OUT), rs.getString(Namespace.ENTRY_T_ACT), rs.getLong(Namespace.ENTRY_D_TARGET), rs.getDouble(Namespace.ENTRY_D_PROB), rs.getLong(Namespace.ENTRY_T_ID)})) {
+            while (it.hasNext()) {
+                Object[] edge = it.next();
+                if (numEdges == sources.length) {
+                    sources = Arrays.copyOf(sources, 2 * numEdges);
+                    targets = Arrays.copyOf(targets, 2 * numEdges);
+                    probabilities = Arrays.copyOf(probabilities, 2 * numEdges);
+                    actions = Arrays.copyOf(actions, 2 * numEdges);
+                    transitions = Arrays.copyOf(transitions, 2 * numEdges);
+                }
+                sources[numEdges] = index(stateIds, dense, (Long) edge[0], "state");
+                targets[numEdges] = index(stateIds, dense, (Long) edge[2], "state");
+                probabilities[numEdges] = (Double) edge[3];
+                String action = edge[1] == null ? "" : (String) edge[1];
+                actions[numEdges] = dictionary.computeIfAbsent(action, a -> dictionary.size());
+                transitions[numEdges] = index(transitionIds, denseTransitions, (Long) edge[4], "transition");
+                numEdges++;
+            }
+        }
+
+        String[] actionNames = new String[dictionary.size()];
+        dictionary.forEach((name, i) -> actionNames[i] = name);
+        return build(stateIds, labels, transitionIds, sources, targets, probabilities, actions, transitions, numEdges, actionNames);
+    }
+
+    /**
+     * Sorts the given edges by source into the forward arrays and builds the reverse index, both by counting sort.
+     * Sources and targets are indices of states, transitions indices of transition identifiers.
+     */
+    public static CsrGraph build(long[] stateIds, long[] labels, long[] transitionIds, int[] sources, int[] targets, double[] probabilities, int[] actions, int[] transitions, int numEdges, String[] actionNames) {
+        int numStates = stateIds.length;
+        int[] outOffsets = offsets(sources, numEdges, numStates);
+        int[] inOffsets = offsets(targets, numEdges, numStates);
+
+        int[] fill = Arrays.copyOf(outOffsets, numStates);
+        int[] sortedSources = new int[numEdges];
+        int[] sortedTargets = new int[numEdges];
+        double[] sortedProbabilities = new double[numEdges];
+        int[] sortedActions = new int[numEdges];
+        int[] sortedTransitions = new int[numEdges];
+        for (int e = 0; e < numEdges; e++) {
+            int position = fill[sources[e]]++;
+            sortedSources[position] = sources[e];
+            sortedTargets[position] = targets[e];
+            sortedProbabilities[position] = probabilities[e];
+            sortedActions[position] = actions[e];
+            sortedTransitions[position] = transitions[e];
+        }
+
+        fill = Arrays.copyOf(inOffsets, numStates);
+        int[] inEdges = new int[numEdges];
+        for (int e = 0; e < numEdges; e++) {
+            inEdges[fill[sortedTargets[e]]++] = e;
+        }
+
+        return new CsrGraph(LongBuffer.wrap(stateIds), labels == null ? null : LongBuffer.wrap(labels), LongBuffer.wrap(transitionIds), IntBuffer.wrap(outOffsets),
+                IntBuffer.wrap(sortedSources), IntBuffer.wrap(sortedTargets), DoubleBuffer.wrap(sortedProbabilities), IntBuffer.wrap(sortedActions),
+                IntBuffer.wrap(sortedTransitions), IntBuffer.wrap(inOffsets), IntBuffer.wrap(inEdges), actionNames);
+    }
+
+    /**
+     * Writes the graph as snapshot. The file is written beside the target and moved in place, so that readers never see
+     * a partial snapshot.
+     */
+    public void write(File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(numStates).putInt(numEdges).putInt(actionNames.length).putInt(labels != null ? 1 : 0).putInt(numTransitions).putInt(0);
+
+            for (int i = 0; i < numStates; i++) buffer = ensure(channel, buffer, Long.BYTES).putLong(stateIds.get(i));
+            if (labels != null) {
+                for (int i = 0; i < numStates; i++) buffer = ensure(channel, buffer, Long.BYTES).putLong(labels.get(i));
+            }
+            for (int t = 0; t < numTransitions; t++) buffer = ensure(channel, buffer, Long.BYTES).putLong(transitionIds.get(t));
+            for (int e = 0; e < numEdges; e++) buffer = ensure(channel, buffer, Double.BYTES).putDouble(probabilities.get(e));
+            for (IntBuffer section : new IntBuffer[]{outOffsets, inOffsets, sources, targets, actions, inEdges, transitions}) {
+                for (int i = 0; i < section.limit(); i++) buffer = ensure(channel, buffer, Integer.BYTES).putInt(section.get(i));
+            }
+            for (String name : actionNames) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                buffer = ensure(channel, buffer, Integer.BYTES).putInt(bytes.length);
+                for (byte b : bytes) buffer = ensure(channel, buffer, 1).put(b);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            channel.force(false);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static ByteBuffer ensure(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+        return buffer;
+    }
+
+    /**
+     * Maps a snapshot written by {@link #write(File)}. Only the header and the action dictionary are read eagerly, the
+     * arrays are paged in on access.
+     */
+    public static CsrGraph map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a graph snapshot of this version: " + file);
+            }
+            int numStates = header.getInt();
+            int numEdges = header.getInt();
+            int numActions = header.getInt();
+            boolean hasLabels = header.getInt() != 0;
+            int numTransitions = header.getInt();
+
+            long position = HEADER_BYTES;
+            LongBuffer stateIds = section(channel, position, (long) numStates * Long.BYTES).asLongBuffer();
+            position += (long) numStates * Long.BYTES;
+            LongBuffer labels = null;
+            if (hasLabels) {
+                labels = section(channel, position, (long) numStates * Long.BYTES).asLongBuffer();
+                position += (long) numStates * Long.BYTES;
+            }
+            LongBuffer transitionIds = section(channel, position, (long) numTransitions * Long.BYTES).asLongBuffer();
+            position += (long) numTransitions * Long.BYTES;
+            DoubleBuffer probabilities = section(channel, position, (long) numEdges * Double.BYTES).asDoubleBuffer();
+            position += (long) numEdges * Double.BYTES;
+
+            IntBuffer[] sections = new IntBuffer[7];
+            int[] lengths = {numStates + 1, numStates + 1, numEdges, numEdges, numEdges, numEdges, numEdges};
+            for (int i = 0; i < sections.length; i++) {
+                sections[i] = section(channel, position, (long) lengths[i] * Integer.BYTES).asIntBuffer();
+                position += (long) lengths[i] * Integer.BYTES;
+            }
+
+            ByteBuffer dictionary = section(channel, position, channel.size() - position);
+            String[] actionNames = new String[numActions];
+            for (int a = 0; a < numActions; a++) {
+                byte[] bytes = new byte[dictionary.getInt()];
+                dictionary.get(bytes);
+                actionNames[a] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            return new CsrGraph(stateIds, labels, transitionIds, sections[0], sections[2], sections[3], probabilities, sections[4], sections[6], sections[1], sections[5], actionNames);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Corrupt graph snapshot: " + file, e);
+        }
+    }
+
+    private static ByteBuffer section(FileChannel channel, long position, long bytes) throws IOException {
+        if (position + bytes > channel.size()) {
+            throw new IOException("Truncated graph snapshot");
+        }
+        // A single mapping is limited to 2GB
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static int[] offsets(int[] states, int numEdges, int numStates) {
+        int[] offsets = new int[numStates + 1];
+        for (int e = 0; e < numEdges; e++) {
+            offsets[states[e] + 1]++;
+        }
+        for (int s = 0; s < numStates; s++) {
+            offsets[s + 1] += offsets[s];
+        }
+        return offsets;
+    }
+
+    private static int index(long[] ids, boolean dense, long id, String kind) {
+        int index = dense ? (id >= 0 && id < ids.length ? (int) id : -1) : Arrays.binarySearch(ids, id);
+        if (index < 0) {
+            throw new RuntimeException(String.format("Unknown %s: %d", kind, id));
+        }
+        return index;
+    }
+
+    private static int search(LongBuffer ids, boolean dense, long id) {
+        int size = ids.limit();
+        if (dense) {
+            return id >= 0 && id < size ? (int) id : -1;
+        }
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = ids.get(mid);
+            if (value < id) low = mid + 1;
+            else if (value > id) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    public int numStates() {
+        return numStates;
+    }
+
+    public int numEdges() {
+        return numEdges;
+    }
+
+    public long stateId(int state) {
+        return stateIds.get(state);
+    }
+
+    /**
+     * @return index of the state with the given identifier, or -1 if there is none
+     */
+    public int index(long stateId) {
+        return search(stateIds, dense, stateId);
+    }
+
+    public boolean hasLabels() {
+        return labels != null;
+    }
+
+    /**
+     * @return label bits of the state as described in {@link Project#getLabelBits(parser.State, boolean, boolean)}
+     */
+    public long labels(int state) {
+        return labels.get(state);
+    }
+
+    public int outBegin(int state) {
+        return outOffsets.get(state);
+    }
+
+    public int outEnd(int state) {
+        return outOffsets.get(state + 1);
+    }
+
+    public int inBegin(int state) {
+        return inOffsets.get(state);
+    }
+
+    public int inEnd(int state) {
+        return inOffsets.get(state + 1);
+    }
+
+    /**
+     * @param position position between {@link #inBegin(int)} and {@link #inEnd(int)}
+     * @return the incoming edge at that position
+     */
+    public int inEdge(int position) {
+        return inEdges.get(position);
+    }
+
+    public int source(int edge) {
+        return sources.get(edge);
+    }
+
+    public int target(int edge) {
+        return targets.get(edge);
+    }
+
+    public double probability(int edge) {
+        return probabilities.get(edge);
+    }
+
+    public int numTransitions() {
+        return numTransitions;
+    }
+
+    public long transitionId(int transition) {
+        return transitionIds.get(transition);
+    }
+
+    /**
+     * @return index of the transition with the given identifier, or -1 if there is none
+     */
+    public int transitionIndex(long transitionId) {
+        return search(transitionIds, denseTransitions, transitionId);
+    }
+
+    /**
+     * @return index of the transition the edge belongs to
+     */
+    public int transition(int edge) {
+        return transitions.get(edge);
+    }
+
+    /**
+     * Sums up the values of the targets of every transition, weighted by their probability. This is a single pass over
+     * the edges, which allocates nothing but the result.
+     *
+     * @param stateValues value of every state, by index, NaN if unknown
+     * @return value of every transition, by index. NaN if the value of one of its targets is unknown, or if it has no
+     * edge of positive probability.
+     */
+    public double[] transitionValues(double[] stateValues) {
+        double[] values = new double[numTransitions];
+        BitSet reached = new BitSet(numTransitions);
+        for (int e = 0; e < numEdges; e++) {
+            int transition = transitions.get(e);
+            values[transition] += probabilities.get(e) * stateValues[targets.get(e)];
+            reached.set(transition);
+        }
+        for (int t = reached.nextClearBit(0); t < numTransitions; t = reached.nextClearBit(t + 1)) {
+            values[t] = Double.NaN;
+        }
+        return values;
+    }
+
+    public int action(int edge) {
+        return actions.get(edge);
+    }
+
+    public String actionName(int action) {
+        return actionNames[action];
+    }
+
+    public int numActions() {
+        return actionNames.length;
+    }
+
+    /**
+     * @return index of the action in the dictionary, or -1 if no edge carries it
+     */
+    public int actionIndex(String name) {
+        for (int a = 0; a < actionNames.length; a++) {
+            if (actionNames[a].equals(name)) return a;
+        }
+        return -1;
+    }
+
+    /**
+     * Breadth-first search from the seeds. Stops after the given number of steps, or as soon as the budget of states is
+     * used up, in which case the last level is only partially explored.
+     *
+     * @param seeds identifiers of the states to start from, unknown identifiers are ignored
+     * @param maxDepth maximal number of steps from the seeds
+     * @param budget maximal number of states returned, including the seeds
+     * @return identifiers of the states reached, in order of their distance from the seeds
+     */
+    public long[] neighborhood(Iterable<Long> seeds, Direction direction, int maxDepth, int budget) {
+        BitSet visited = new BitSet(numStates);
+        int[] queue = new int[Math.max(0, Math.min(budget, numStates))];
+        int size = 0;
+        for (long seed : seeds) {
+            int state = index(seed);
+            if (state >= 0 && size < queue.length && !visited.get(state)) {
+                visited.set(state);
+                queue[size++] = state;
+            }
+        }
+        int head = 0;
+        for (int depth = 0; depth < maxDepth && head < size && size < queue.length; depth++) {
+            int levelEnd = size;
+            for (; head < levelEnd && size < queue.length; head++) {
+                int state = queue[head];
+                if (direction != Direction.BACKWARD) {
+                    for (int e = outBegin(state); e < outEnd(state) && size < queue.length; e++) {
+                        size = enqueue(target(e), visited, queue, size);
+                    }
+                }
+                if (direction != Direction.FORWARD) {
+                    for (int i = inBegin(state); i < inEnd(state) && size < queue.length; i++) {
+                        size = enqueue(source(inEdge(i)), visited, queue, size);
+                    }
+                }
+            }
+        }
+        long[] ids = new long[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = stateId(queue[i]);
+        }
+        return ids;
+    }
+
+    private static int enqueue(int state, BitSet visited, int[] queue, int size) {
+        if (visited.get(state)) return size;
+        visited.set(state);
+        queue[size] = state;
+        return size + 1;
+    }
+
+    public boolean hasOutgoingAction(int state, int action) {
+        for (int e = outOffsets.get(state); e < outOffsets.get(state + 1); e++) {
+            if (actions.get(e) == action) return true;
+        }
+        return false;
+    }
+}
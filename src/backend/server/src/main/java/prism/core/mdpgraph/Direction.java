@@ -0,0 +1,8 @@
+package prism.core.mdpgraph;
+
+/**
+ * Edges followed when exploring a {@link CsrGraph}.
+ */
+public enum Direction {
+    FORWARD, BACKWARD, BOTH
+}
@@ -1,83 +1,336 @@
 package prism.core.mdpgraph;
 
-import org.jgrapht.graph.DirectedWeightedPseudograph;
-import prism.api.State;
-import prism.api.Transition;
+import org.jgrapht.GraphType;
+import org.jgrapht.graph.AbstractGraph;
+import org.jgrapht.graph.DefaultGraphType;
 import prism.core.Project;
-import prism.db.PersistentQuery;
-import prism.db.mappers.StateMapper;
-import prism.db.mappers.TransitionMapper;
 
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.function.Supplier;
 
-public class MdpGraph extends DirectedWeightedPseudograph<Long,Long> {
+/**
+ * Read-only JGraphT view of a {@link CsrGraph}, so that the algorithms of JGraphT can run on it. Vertices are the state
+ * identifiers, edges the positions of the edges in the CSR arrays. Nothing is stored per vertex or edge, boxed values
+ * are only created while iterating.
+ */
+public class MdpGraph extends AbstractGraph<Long,Long> {
 
-    private Map<Long, MdpState> longToObjStates = new HashMap<>();
-    private Map<Long, MdpTransition> longToObjTrans = new HashMap<>();
+    private static final GraphType TYPE = new DefaultGraphType.Builder()
+            .directed()
+            .allowMultipleEdges(true)
+            .allowSelfLoops(true)
+            .weighted(true)
+            .modifiable(false)
+            .build();
+
+    private final CsrGraph csr;
+
+    private final int finalAction;
 
     public MdpGraph(Project model) {
-        super(Long.class);
-        try(PersistentQuery query = model.getDatabase().openQuery(String.format("SELECT * FROM %s", model.getStateTableName()))) {
-            Iterator<State> states = query.iterator(new StateMapper(model, null));
-            while (states.hasNext()) {
-                State state = states.next();
-                MdpState mdpState = new MdpState(state);
-                //longToObjStates.put(state.getNumId(), mdpState);
-                //addVertex(state.getNumId());
-            }
+        this(CsrGraph.load(model));
+    }
+
+    public MdpGraph(CsrGraph csr) {
+        this.csr = csr;
+        // TODO remove, only for Performance testing of ReachabilityView
+        this.finalAction = csr.actionIndex("end");
+    }
+
+    public CsrGraph getCsr() {
+        return csr;
+    }
+
+    public Set<Long> stateSet() {
+        return vertexSet();
+    }
+
+    public MdpTransition getTransObj(Long mdpTransLeanId) {
+        int edge = edge(mdpTransLeanId);
+        return new MdpTransition(mdpTransLeanId, 0L, csr.stateId(csr.source(edge)), csr.stateId(csr.target(edge)), csr.actionName(csr.action(edge)));
+    }
+
+    public String getAction(Long edge) {
+        return csr.actionName(csr.action(edge(edge)));
+    }
+
+    // TODO remove, only for Performance testing of ReachabilityView
+    public boolean isFinal(Long stateId) {
+        return finalAction >= 0 && csr.hasOutgoingAction(state(stateId), finalAction);
+    }
+
+    private int state(Long stateId) {
+        int state = stateId == null ? -1 : csr.index(stateId);
+        if (state < 0) {
+            throw new IllegalArgumentException("no such vertex in graph: " + stateId);
+        }
+        return state;
+    }
+
+    private int edge(Long edge) {
+        if (!containsEdge(edge)) {
+            throw new IllegalArgumentException("no such edge in graph: " + edge);
+        }
+        return edge.intValue();
+    }
+
+    @Override
+    public Set<Long> getAllEdges(Long sourceVertex, Long targetVertex) {
+        if (!containsVertex(sourceVertex) || !containsVertex(targetVertex)) {
+            return null;
+        }
+        int target = csr.index(targetVertex);
+        Set<Long> edges = new HashSet<>();
+        int source = csr.index(sourceVertex);
+        for (int e = csr.outBegin(source); e < csr.outEnd(source); e++) {
+            if (csr.target(e) == target) edges.add((long) e);
         }
+        return edges;
+    }
+
+    @Override
+    public Long getEdge(Long sourceVertex, Long targetVertex) {
+        if (!containsVertex(sourceVertex) || !containsVertex(targetVertex)) {
+            return null;
+        }
+        int target = csr.index(targetVertex);
+        int source = csr.index(sourceVertex);
+        for (int e = csr.outBegin(source); e < csr.outEnd(source); e++) {
+            if (csr.target(e) == target) return (long) e;
+        }
+        return null;
+    }
+
+    @Override
+    public Supplier<Long> getVertexSupplier() {
+        return null;
+    }
+
+    @Override
+    public Supplier<Long> getEdgeSupplier() {
+        return null;
+    }
+
+    @Override
+    public Long addEdge(Long sourceVertex, Long targetVertex) {
+        throw new UnsupportedOperationException("MdpGraph is read-only");
+    }
+
+    @Override
+    public boolean addEdge(Long sourceVertex, Long targetVertex, Long e) {
+        throw new UnsupportedOperationException("MdpGraph is read-only");
+    }
 
-        // iterate over all outgoing transitions
-        Long mdpTransLeanId = 0L;
-
-        try(PersistentQuery query = model.getDatabase().openQuery(String.format("SELECT * FROM %s", model.getTransitionTableName()))){
-            Iterator<Transition> transitions = query.iterator(new TransitionMapper(model));
-            while(transitions.hasNext()){
-                Transition trans = transitions.next();
-                Long sourceState = Long.parseLong(trans.getSource());
-                Set<String> targetStatesString = trans.getProbabilityDistribution().keySet();
-
-                // iterate over all targets of transitions
-                for (String targetStateString : targetStatesString) {
-                    double probability = trans.getProbabilityDistribution().get(targetStateString);
-                    if (probability == 0) continue;
-                    Long targetState = Long.parseLong(targetStateString);
-                    MdpTransition mdpTransLean = new MdpTransition(
-                            mdpTransLeanId,
-                            0L, //trans.getNumId(),
-                            sourceState,
-                            targetState,
-                            trans.getAction()
-                    );
-                    longToObjTrans.put(mdpTransLeanId, mdpTransLean);
-                    addEdge(sourceState, targetState, mdpTransLeanId);
-                    setEdgeWeight(sourceState, targetState, probability);
-                    mdpTransLeanId++;
-
-                    // TODO remove, only for Performance testing of ReachabilityView
-                    if (trans.getAction().equals("end")) {
-                        longToObjStates.get(sourceState).setFinal();
+    @Override
+    public Long addVertex() {
+        throw new UnsupportedOperationException("MdpGraph is read-only");
+    }
+
+    @Override
+    public boolean addVertex(Long v) {
+        throw new UnsupportedOperationException("MdpGraph is read-only");
+    }
+
+    @Override
+    public boolean containsEdge(Long e) {
+        return e != null && e >= 0 && e < csr.numEdges();
+    }
+
+    @Override
+    public boolean containsVertex(Long v) {
+        return v != null && csr.index(v) >= 0;
+    }
+
+    @Override
+    public Set<Long> edgeSet() {
+        return new AbstractSet<>() {
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof Long && containsEdge((Long) o);
+            }
+
+            @Override
+            public Iterator<Long> iterator() {
+                return range(0, csr.numEdges());
+            }
+
+            @Override
+            public int size() {
+                return csr.numEdges();
+            }
+        };
+    }
+
+    @Override
+    public int degreeOf(Long vertex) {
+        return inDegreeOf(vertex) + outDegreeOf(vertex);
+    }
+
+    @Override
+    public Set<Long> edgesOf(Long vertex) {
+        Set<Long> edges = new HashSet<>(outgoingEdgesOf(vertex));
+        edges.addAll(incomingEdgesOf(vertex));
+        return edges;
+    }
+
+    @Override
+    public int inDegreeOf(Long vertex) {
+        int state = state(vertex);
+        return csr.inEnd(state) - csr.inBegin(state);
+    }
+
+    @Override
+    public Set<Long> incomingEdgesOf(Long vertex) {
+        int state = state(vertex);
+        int begin = csr.inBegin(state);
+        int end = csr.inEnd(state);
+        return new AbstractSet<>() {
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof Long && containsEdge((Long) o) && csr.target(((Long) o).intValue()) == state;
+            }
+
+            @Override
+            public Iterator<Long> iterator() {
+                return new Iterator<>() {
+                    int position = begin;
+
+                    @Override
+                    public boolean hasNext() {
+                        return position < end;
                     }
 
-                }
+                    @Override
+                    public Long next() {
+                        if (position >= end) throw new NoSuchElementException();
+                        return (long) csr.inEdge(position++);
+                    }
+                };
             }
-        }
 
+            @Override
+            public int size() {
+                return end - begin;
+            }
+        };
+    }
 
+    @Override
+    public int outDegreeOf(Long vertex) {
+        int state = state(vertex);
+        return csr.outEnd(state) - csr.outBegin(state);
     }
 
-    public boolean addTransition(Long sourceState, Long targetState, Long transId) {
-        return addEdge(sourceState, targetState, transId);
+    @Override
+    public Set<Long> outgoingEdgesOf(Long vertex) {
+        int state = state(vertex);
+        int begin = csr.outBegin(state);
+        int end = csr.outEnd(state);
+        return new AbstractSet<>() {
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof Long && (Long) o >= begin && (Long) o < end;
+            }
+
+            @Override
+            public Iterator<Long> iterator() {
+                return range(begin, end);
+            }
+
+            @Override
+            public int size() {
+                return end - begin;
+            }
+        };
     }
 
-    public Set<Long> stateSet() {
-        return vertexSet();
+    @Override
+    public Long removeEdge(Long sourceVertex, Long targetVertex) {
+        throw new UnsupportedOperationException("MdpGraph is read-only");
+    }
+
+    @Override
+    public boolean removeEdge(Long e) {
+        throw new UnsupportedOperationException("MdpGraph is read-only");
     }
 
-    public MdpTransition getTransObj(Long mdpTransLeanId) { return longToObjTrans.get(mdpTransLeanId); }
+    @Override
+    public boolean removeVertex(Long v) {
+        throw new UnsupportedOperationException("MdpGraph is read-only");
+    }
 
-    public MdpState getStateObj(Long stateId) { return longToObjStates.get(stateId); }
+    @Override
+    public Set<Long> vertexSet() {
+        return new AbstractSet<>() {
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof Long && containsVertex((Long) o);
+            }
+
+            @Override
+            public Iterator<Long> iterator() {
+                return new Iterator<>() {
+                    int state = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return state < csr.numStates();
+                    }
+
+                    @Override
+                    public Long next() {
+                        if (state >= csr.numStates()) throw new NoSuchElementException();
+                        return csr.stateId(state++);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return csr.numStates();
+            }
+        };
+    }
+
+    @Override
+    public Long getEdgeSource(Long e) {
+        return csr.stateId(csr.source(edge(e)));
+    }
+
+    @Override
+    public Long getEdgeTarget(Long e) {
+        return csr.stateId(csr.target(edge(e)));
+    }
+
+    @Override
+    public GraphType getType() {
+        return TYPE;
+    }
+
+    @Override
+    public double getEdgeWeight(Long e) {
+        return csr.probability(edge(e));
+    }
+
+    @Override
+    public void setEdgeWeight(Long e, double weight) {
+        throw new UnsupportedOperationException("MdpGraph is read-only");
+    }
+
+    private static Iterator<Long> range(int begin, int end) {
+        return new Iterator<>() {
+            long next = begin;
+
+            @Override
+            public boolean hasNext() {
+                return next < end;
+            }
+
+            @Override
+            public Long next() {
+                if (next >= end) throw new NoSuchElementException();
+                return next++;
+            }
+        };
+    }
 }
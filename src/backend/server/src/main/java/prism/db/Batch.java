@@ -4,68 +4,324 @@ import org.jdbi.v3.core.Handle;
 import org.jdbi.v3.core.statement.PreparedBatch;
 
 import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
+/**
+ * Prepared batch writer. Rows are either given as Strings via {@link #addToBatch(String...)}, or column by column with
+ * the typed setters followed by {@link #addRow()}, which binds values without converting them to text. The type of a
+ * column is fixed by the first value set in it, apart from nulls, which fit every column.
+ *
+ * Filled chunks of rows are handed to the {@link Writer} of the database, which executes each of them in its own
+ * transaction, while the caller keeps filling the next chunk. At most {@link #PENDING_CHUNKS} chunks may wait for
+ * execution, after that the caller blocks. The size of a chunk is tuned from the measured rows per ms so that a flush
+ * takes roughly {@link #TARGET_FLUSH_MS}, bounded by the maximal batch size of the database.
+ *
+ * A batch filled on the writer itself, within {@link Database#write}, flushes its chunks inline into the surrounding
+ * transaction instead.
+ */
 public class Batch implements AutoCloseable{
 
-    Handle handle;
+    private static final int PENDING_CHUNKS = 2;
+
+    private static final int MIN_BATCH_SIZE = 1000;
+
+    private static final long TARGET_FLUSH_MS = 250;
+
+    private static final byte TYPE_UNSET = 0;
+    private static final byte TYPE_LONG = 1;
+    private static final byte TYPE_DOUBLE = 2;
+    private static final byte TYPE_STRING = 3;
+    private static final byte TYPE_BOOLEAN = 4;
+
+    // SQLite only allows a single writer, all batches of a database are flushed by its writer
+    private final Writer writer;
 
     String statement;
 
     int arguments;
 
-    int batchSize;
+    volatile int batchSize;
 
     int maxBatchSize;
 
-    PreparedBatch batch;
-
     boolean debug;
 
-    protected Batch(Handle handle, String statement, int arguments, int batchSize, boolean debug){
-        this.handle = handle;
+    // Type of every column, fixed by its first value other than null
+    private final byte[] types;
+
+    private Chunk current;
+
+    private int column = 0;
+
+    private final Deque<Future<?>> pending = new ArrayDeque<>();
+
+    private volatile Throwable failure = null;
+
+    private boolean closed = false;
+
+    /**
+     * Values of a number of rows, stored column wise in one array per column of the type of the column. The arrays are
+     * allocated with the first value of their column, nulls are marked in a separate array.
+     */
+    private static class Chunk {
+        final Object[] values;
+        final boolean[][] nulls;
+        final int capacity;
+        int rows = 0;
+
+        Chunk(int arguments, int capacity) {
+            this.values = new Object[arguments];
+            this.nulls = new boolean[arguments][];
+            this.capacity = capacity;
+        }
+
+        Object values(int column, byte type) {
+            if (values[column] == null) {
+                switch (type) {
+                    case TYPE_LONG:
+                        values[column] = new long[capacity];
+                        break;
+                    case TYPE_DOUBLE:
+                        values[column] = new double[capacity];
+                        break;
+                    case TYPE_BOOLEAN:
+                        values[column] = new boolean[capacity];
+                        break;
+                    default:
+                        values[column] = new String[capacity];
+                }
+            }
+            return values[column];
+        }
+
+        void setNull(int column, int row) {
+            if (nulls[column] == null) {
+                nulls[column] = new boolean[capacity];
+            }
+            nulls[column][row] = true;
+        }
+
+        boolean isNull(int column, int row) {
+            return nulls[column] != null && nulls[column][row];
+        }
+    }
+
+    protected Batch(Writer writer, String statement, int arguments, int batchSize, boolean debug){
+        this.writer = writer;
         this.statement = statement;
         this.arguments = arguments;
-        this.batchSize = 0;
         this.maxBatchSize = batchSize;
-        batch = handle.prepareBatch(statement);
+        this.batchSize = Math.min(batchSize, 10 * MIN_BATCH_SIZE);
         this.debug = debug;
+        this.types = new byte[arguments];
+        this.current = new Chunk(arguments, this.batchSize);
     }
 
     public void addToBatch(String ... values) throws SQLException {
         if (values.length != arguments){
             throw new SQLException("Wrong number of arguments");
         }
-        for (int j = 0; j < arguments; j++){
-            batch.bind(j, values[j]);
+        for (String value : values) {
+            setString(value);
+        }
+        addRow();
+    }
+
+    public Batch setLong(long value) throws SQLException {
+        int row = next();
+        ((long[]) values(TYPE_LONG))[row] = value;
+        column++;
+        return this;
+    }
+
+    public Batch setInt(int value) throws SQLException {
+        return setLong(value);
+    }
+
+    public Batch setDouble(double value) throws SQLException {
+        int row = next();
+        ((double[]) values(TYPE_DOUBLE))[row] = value;
+        column++;
+        return this;
+    }
+
+    public Batch setBoolean(boolean value) throws SQLException {
+        int row = next();
+        ((boolean[]) values(TYPE_BOOLEAN))[row] = value;
+        column++;
+        return this;
+    }
+
+    public Batch setString(String value) throws SQLException {
+        if (value == null) {
+            return setNull();
         }
-        batch.add();
-        if (++batchSize >= maxBatchSize){
+        int row = next();
+        ((String[]) values(TYPE_STRING))[row] = value;
+        column++;
+        return this;
+    }
+
+    public Batch setNull() throws SQLException {
+        int row = next();
+        current.setNull(column++, row);
+        return this;
+    }
+
+    /**
+     * @return values of the current column in the current chunk, after fixing the type of the column if it is not yet
+     */
+    private Object values(byte type) throws SQLException {
+        if (types[column] == TYPE_UNSET) {
+            types[column] = type;
+        } else if (types[column] != type) {
+            throw new SQLException(String.format("Column %d of %s has another type", column + 1, statement));
+        }
+        return current.values(column, type);
+    }
+
+    /**
+     * Finishes the row whose columns have been set
+     */
+    public void addRow() throws SQLException {
+        if (column != arguments){
+            throw new SQLException("Wrong number of arguments");
+        }
+        column = 0;
+        if (++current.rows >= current.capacity){
             execute();
         }
     }
 
-    public void execute(){
-        if (batchSize == 0){
+    private int next() throws SQLException {
+        if (column >= arguments){
+            throw new SQLException("Wrong number of arguments");
+        }
+        return current.rows;
+    }
+
+    /**
+     * Hands all complete rows to the writer. Blocks if the writer is too far behind.
+     */
+    public void execute() throws SQLException {
+        checkFailure();
+        if (current.rows == 0){
             return;
         }
-        long time = 0;
-        if (debug){
-            time = System.currentTimeMillis();
-            System.out.println("EXECUTE: " + statement+ " WITH " + batchSize + " ENTRIES");
+        Chunk chunk = current;
+        if (writer.isWriterThread()) {
+            // Queueing the chunk would wait for the writer, which is this thread
+            try {
+                writer.write(handle -> {
+                    flush(handle, chunk);
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                if (failure == null) failure = e;
+            }
+            checkFailure();
+        } else {
+            pending.add(writer.submit(handle -> {
+                flush(handle, chunk);
+                return null;
+            }));
+        }
+        current = new Chunk(arguments, batchSize);
+        while (pending.size() > PENDING_CHUNKS){
+            await(pending.poll());
         }
-        batch.execute();
+    }
+
+    private void await(Future<?> flush) throws SQLException {
+        try {
+            flush.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(e);
+        } catch (ExecutionException e) {
+            if (failure == null) failure = e.getCause();
+        }
+        checkFailure();
+    }
+
+    private void checkFailure() throws SQLException {
+        if (failure != null){
+            throw new SQLException("Batch " + statement + " failed", failure);
+        }
+    }
+
+    private void flush(Handle handle, Chunk chunk) {
+        if (failure != null) {
+            return;
+        }
+        long time = System.currentTimeMillis();
         if (debug){
-            long time2 = System.currentTimeMillis() - time;
-            if (time2 > 0) {
-                System.out.println(String.format("Done in %s ms. %s inserts per ms", time2, batchSize / time2));
+            System.out.println("EXECUTE: " + statement+ " WITH " + chunk.rows + " ENTRIES");
+        }
+        try (PreparedBatch batch = handle.prepareBatch(statement)) {
+            for (int i = 0; i < chunk.rows; i++) {
+                for (int j = 0; j < arguments; j++) {
+                    if (chunk.isNull(j, i)) {
+                        batch.bindNull(j, Types.NULL);
+                        continue;
+                    }
+                    switch (types[j]) {
+                        case TYPE_LONG:
+                            batch.bind(j, ((long[]) chunk.values[j])[i]);
+                            break;
+                        case TYPE_DOUBLE:
+                            batch.bind(j, ((double[]) chunk.values[j])[i]);
+                            break;
+                        case TYPE_BOOLEAN:
+                            batch.bind(j, ((boolean[]) chunk.values[j])[i]);
+                            break;
+                        default:
+                            batch.bind(j, ((String[]) chunk.values[j])[i]);
+                    }
+                }
+                batch.add();
+            }
+            batch.execute();
+        } catch (Throwable t) {
+            failure = t;
+            throw t;
+        }
+
+        long duration = System.currentTimeMillis() - time;
+        if (duration > 0) {
+            long rowsPerMs = Math.max(1, chunk.rows / duration);
+            batchSize = (int) Math.max(MIN_BATCH_SIZE, Math.min(maxBatchSize, rowsPerMs * TARGET_FLUSH_MS));
+            if (debug){
+                System.out.println(String.format("Done in %s ms. %s inserts per ms", duration, rowsPerMs));
             }
         }
-        batchSize = 0;
     }
 
     @Override
     public void close() {
-        execute();
-        handle.close();
+        if (closed) {
+            return;
+        }
+        closed = true;
+        SQLException error = null;
+        try {
+            execute();
+        } catch (SQLException e) {
+            error = e;
+        }
+        while (!pending.isEmpty()) {
+            try {
+                await(pending.poll());
+            } catch (SQLException e) {
+                if (error == null) error = e;
+            }
+        }
+        if (error != null) {
+            throw new RuntimeException(error);
+        }
     }
 }
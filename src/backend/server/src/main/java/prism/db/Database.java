@@ -1,16 +1,23 @@
 package prism.db;
 
 import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.HandleCallback;
 import org.jdbi.v3.core.Jdbi;
 import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.result.ResultIterator;
 import org.jdbi.v3.core.statement.Batch;
 import org.jdbi.v3.core.statement.PreparedBatch;
+import org.jdbi.v3.core.statement.Query;
 import prism.server.TaskManager;
 
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Class creating the connection to the database safely. Also handling all requests to said database.
@@ -21,18 +28,66 @@ public class Database{
 
     private final boolean debug;
 
+    // Prepared statements kept per connection
+    private static final int STATEMENT_CACHE_SIZE = 64;
+
+    // Connections kept open for reading threads
+    private static final int MAX_READ_HANDLES = 16;
+
+    // SQLite only allows a single writer, all writes of this database go through it
+    private final Writer writer;
+
+    // Read-only connections, reads never wait for the writer and see the last committed state
+    private final HandlePool readHandles;
+
+    // Incremented after every change of the schema, cached statements of older versions are not reused
+    private final AtomicLong schema = new AtomicLong();
+
     public Database(Jdbi jdbi, boolean debug){
         this.jdbi = jdbi;
         this.debug = debug;
+        this.jdbi.setStatementBuilderFactory(connection -> new StatementCache(STATEMENT_CACHE_SIZE, schema::get));
+        this.writer = new Writer(jdbi, "database-writer");
+        this.readHandles = new HandlePool(jdbi, MAX_READ_HANDLES);
 
         try(Handle handle = jdbi.open()){
             handle.execute("pragma journal_mode = WAL;");
+        }
+        writer.write(handle -> {
             handle.execute("pragma synchronous = OFF;");
             handle.execute("pragma temp_store = memory;");
             handle.execute("pragma mmap_size = 30000000000;");
+            return null;
+        });
+    }
+
+    /**
+     * Runs the callback in one transaction on the writer. Writes issued through this database from within the callback
+     * join the transaction, so readers see either none or all of them.
+     */
+    public <R, X extends Exception> R write(HandleCallback<R, X> callback) throws X {
+        long before = schema.get();
+        try {
+            return writer.write(callback);
+        } finally {
+            // Statements prepared by readers between a change inside the transaction and its commit saw the old schema
+            if (schema.get() != before) schemaChanged();
         }
     }
 
+    /**
+     * Discards the prepared statements of all connections. Called after every CREATE, ALTER and DROP run through
+     * {@link #execute(String)}, other changes of the schema have to call it themselves.
+     */
+    public void schemaChanged() {
+        schema.incrementAndGet();
+    }
+
+    private static boolean isSchemaChange(String qry) {
+        String statement = qry.stripLeading().toUpperCase();
+        return statement.startsWith("CREATE") || statement.startsWith("ALTER") || statement.startsWith("DROP");
+    }
+
     /*
     Direct SQL PersistentQuery Functions. Use with caution
      */
@@ -43,8 +98,9 @@ public class Database{
         if (debug){
             System.out.println("EXECUTE: " + qry);
         }
-        try(Handle handle = jdbi.open()){
-            handle.execute(qry);
+        writer.write(handle -> handle.execute(qry));
+        if (isSchemaChange(qry)) {
+            schemaChanged();
         }
     }
 
@@ -53,7 +109,7 @@ public class Database{
     }
 
     public void executeBatch(List<String> qrys, boolean debug) {
-        try(Handle handle = jdbi.open()){
+        writer.write(handle -> {
             long time = System.currentTimeMillis();
             if (debug){
                 System.out.println("EXECUTE " + qrys.size() + " of " + qrys.get(0));
@@ -67,7 +123,8 @@ public class Database{
                 System.out.printf("Done in %s ms. %s inserts per ms%n", System.currentTimeMillis()-time, qrys.size()/(System.currentTimeMillis()-time));
 
             }
-        }
+            return null;
+        });
     }
 
     public void insertBatch(String head, List<String> ... collumns) {
@@ -75,23 +132,135 @@ public class Database{
     }
 
     public void insertBatch(String head, boolean debug, List<String> ... collumns) {
-        try(Handle handle = jdbi.open()){
+        writer.write(handle -> {
             long time = System.currentTimeMillis();
             if (debug){
                 System.out.println("EXECUTE " + head+ "WITH" + collumns[0].size() + "ENTRIES");
             }
-            PreparedBatch batch = handle.prepareBatch(head);
-            for (int i = 0; i < collumns[0].size(); i++){
-                for (int j = 0; j < collumns.length; j++){
-                    batch.bind(j, collumns[j].get(i));
+            try (PreparedBatch batch = handle.prepareBatch(head)) {
+                for (int i = 0; i < collumns[0].size(); i++){
+                    for (int j = 0; j < collumns.length; j++){
+                        batch.bind(j, collumns[j].get(i));
+                    }
+                    batch.add();
                 }
-                batch.add();
+                batch.execute();
             }
-            batch.execute();
             if (debug){
                 System.out.printf("Done in %s ms. %s inserts per ms%n", System.currentTimeMillis()-time, collumns[0].size()/(System.currentTimeMillis()-time));
             }
+            return null;
+        });
+    }
+
+    /**
+     * Sets a column for many rows at once. The rows are given as pairs of key and dictionary code, both are bulk loaded
+     * into scratch tables and joined into the target table with a single UPDATE.
+     *
+     * @param table table to update
+     * @param collumn column to set
+     * @param key column identifying the rows
+     * @param keys key of each row
+     * @param codes index of the value in the dictionary for each row
+     * @param size number of rows
+     * @param dictionary distinct values to write
+     */
+    public void updateColumn(String table, String collumn, String key, long[] keys, int[] codes, int size, List<String> dictionary) {
+        updateColumn(table, collumn, key, keys, codes, size, dictionary, debug);
+    }
+
+    public void updateColumn(String table, String collumn, String key, long[] keys, int[] codes, int size, List<String> dictionary, boolean debug) {
+        if (size == 0) {
+            return;
+        }
+        String values = String.format("%s_values", collumn);
+        String rows = String.format("%s_rows", collumn);
+        writer.write(h -> {
+            long time = System.currentTimeMillis();
+            if (debug) {
+                System.out.printf("UPDATE %s.%s FOR %s ROWS WITH %s VALUES%n", table, collumn, size, dictionary.size());
+            }
+            h.execute(String.format("CREATE TEMP TABLE %s (code INTEGER PRIMARY KEY, value TEXT)", values));
+            h.execute(String.format("CREATE TEMP TABLE %s (%s INTEGER PRIMARY KEY, code INTEGER)", rows, key));
+
+            try (PreparedBatch valueBatch = h.prepareBatch(String.format("INSERT INTO %s (code, value) VALUES (?, ?)", values))) {
+                for (int i = 0; i < dictionary.size(); i++) {
+                    valueBatch.bind(0, i).bind(1, dictionary.get(i)).add();
+                }
+                valueBatch.execute();
+            }
+
+            // Later assignments of the same key replace earlier ones
+            try (PreparedBatch rowBatch = h.prepareBatch(String.format("INSERT OR REPLACE INTO %s (%s, code) VALUES (?, ?)", rows, key))) {
+                for (int i = 0; i < size; i++) {
+                    rowBatch.bind(0, keys[i]).bind(1, codes[i]).add();
+                    if (rowBatch.size() >= getMaxBatchSize()) {
+                        rowBatch.execute();
+                    }
+                }
+                if (rowBatch.size() > 0) {
+                    rowBatch.execute();
+                }
+            }
+
+            h.execute(String.format("UPDATE %s SET %s = v.value FROM %s AS r JOIN %s AS v ON v.code = r.code WHERE %s.%s = r.%s",
+                    table, collumn, rows, values, table, key, key));
+            h.execute(String.format("DROP TABLE %s", rows));
+            h.execute(String.format("DROP TABLE %s", values));
+            if (debug) {
+                System.out.printf("Done in %s ms%n", System.currentTimeMillis() - time);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Sets a numeric column for many rows at once. The pairs of key and value are bulk loaded into a scratch table and
+     * joined into the target table with a single UPDATE.
+     *
+     * @param table table to update
+     * @param collumn column to set
+     * @param key column identifying the rows
+     * @param keys key of each row
+     * @param values value of each row
+     * @param size number of rows
+     */
+    public void updateColumn(String table, String collumn, String key, long[] keys, double[] values, int size) {
+        updateColumn(table, collumn, key, keys, values, size, debug);
+    }
+
+    public void updateColumn(String table, String collumn, String key, long[] keys, double[] values, int size, boolean debug) {
+        if (size == 0) {
+            return;
         }
+        String rows = String.format("%s_rows", collumn);
+        writer.write(h -> {
+            long time = System.currentTimeMillis();
+            if (debug) {
+                System.out.printf("UPDATE %s.%s FOR %s ROWS%n", table, collumn, size);
+            }
+            h.execute(String.format("CREATE TEMP TABLE %s (%s INTEGER PRIMARY KEY, value REAL)", rows, key));
+
+            // Later assignments of the same key replace earlier ones
+            try (PreparedBatch rowBatch = h.prepareBatch(String.format("INSERT OR REPLACE INTO %s (%s, value) VALUES (?, ?)", rows, key))) {
+                for (int i = 0; i < size; i++) {
+                    rowBatch.bind(0, keys[i]).bind(1, values[i]).add();
+                    if (rowBatch.size() >= getMaxBatchSize()) {
+                        rowBatch.execute();
+                    }
+                }
+                if (rowBatch.size() > 0) {
+                    rowBatch.execute();
+                }
+            }
+
+            h.execute(String.format("UPDATE %s SET %s = r.value FROM %s AS r WHERE %s.%s = r.%s", table, collumn, rows, table, key, key));
+            h.execute(String.format("DROP TABLE %s", rows));
+            if (debug) {
+                System.out.printf("Done in %s ms%n", System.currentTimeMillis() - time);
+            }
+            return null;
+        });
     }
 
     public prism.db.Batch createBatch(String statement, int arguments){
@@ -99,8 +268,7 @@ public class Database{
     }
 
     public prism.db.Batch createBatch(String statement, int arguments, boolean debug){
-        Handle h = jdbi.open();
-        return new prism.db.Batch(h, statement, arguments, getMaxBatchSize(), debug);
+        return new prism.db.Batch(writer, statement, arguments, getMaxBatchSize(), debug);
     }
 
     //public Query executeQuery(String qry) throws SQLException {
@@ -116,9 +284,7 @@ public class Database{
         if (debug){
             System.out.println("EXECUTE: " + qry);
         }
-        try(Handle handle = jdbi.open()) {
-            return handle.createQuery(qry).mapTo(returnType).findOne();
-        }
+        return readHandles.withHandle(handle -> handle.createQuery(qry).mapTo(returnType).findOne());
     }
 
     public Optional<Map<String, Object>> executeLookupQuery(String qry){
@@ -129,9 +295,7 @@ public class Database{
         if (debug){
             System.out.println("EXECUTE: " + qry);
         }
-        try(Handle handle = jdbi.open()) {
-            return handle.createQuery(qry).mapToMap().findOne();
-        }
+        return readHandles.withHandle(handle -> handle.createQuery(qry).mapToMap().findOne());
     }
 
     public <T> Optional<T> executeLookupQuery(String qry, RowMapper<T> mapper){
@@ -142,9 +306,7 @@ public class Database{
         if (debug){
             System.out.println("EXECUTE: " + qry);
         }
-        try(Handle handle = jdbi.open()) {
-            return handle.createQuery(qry).map(mapper).findOne();
-        }
+        return readHandles.withHandle(handle -> handle.createQuery(qry).map(mapper).findOne());
     }
 
     public List<Map<String, Object>> executeCollectionQuery(String qry){
@@ -155,9 +317,7 @@ public class Database{
         if (debug){
             System.out.println("EXECUTE: " + qry);
         }
-        try(Handle handle = jdbi.open()) {
-            return handle.createQuery(qry).mapToMap().list();
-        }
+        return readHandles.withHandle(handle -> handle.createQuery(qry).mapToMap().list());
     }
 
     public <T> List<T> executeCollectionQuery(String qry, Class<T> returnType){
@@ -168,9 +328,7 @@ public class Database{
         if (debug){
             System.out.println("EXECUTE: " + qry);
         }
-        try(Handle handle = jdbi.open()) {
-            return handle.createQuery(qry).mapTo(returnType).list();
-        }
+        return readHandles.withHandle(handle -> handle.createQuery(qry).mapTo(returnType).list());
     }
 
     public <T> List<T> executeCollectionQuery(String qry, RowMapper<T> mapper){
@@ -181,9 +339,77 @@ public class Database{
         if (debug){
             System.out.println("EXECUTE: " + qry);
         }
-        try(Handle handle = jdbi.open()) {
-            return handle.createQuery(qry).map(mapper).list();
+        return readHandles.withHandle(handle -> handle.createQuery(qry).map(mapper).list());
+    }
+
+    /*
+    Parameterized queries. The SQL text stays the same for all parameters, so the prepared statement is reused
+     */
+    public <T> Optional<T> executePreparedLookup(String qry, Class<T> returnType, Object... params){
+        if (debug){
+            System.out.println("EXECUTE: " + qry + " WITH " + Arrays.toString(params));
+        }
+        return readHandles.withHandle(handle -> bind(handle.createQuery(qry), params).mapTo(returnType).findOne());
+    }
+
+    public <T> Optional<T> executePreparedLookup(String qry, RowMapper<T> mapper, Object... params){
+        if (debug){
+            System.out.println("EXECUTE: " + qry + " WITH " + Arrays.toString(params));
         }
+        return readHandles.withHandle(handle -> bind(handle.createQuery(qry), params).map(mapper).findOne());
+    }
+
+    public <T> List<T> executePreparedCollection(String qry, Class<T> returnType, Object... params){
+        if (debug){
+            System.out.println("EXECUTE: " + qry + " WITH " + Arrays.toString(params));
+        }
+        return readHandles.withHandle(handle -> bind(handle.createQuery(qry), params).mapTo(returnType).list());
+    }
+
+    public <T> List<T> executePreparedCollection(String qry, RowMapper<T> mapper, Object... params){
+        if (debug){
+            System.out.println("EXECUTE: " + qry + " WITH " + Arrays.toString(params));
+        }
+        return readHandles.withHandle(handle -> bind(handle.createQuery(qry), params).map(mapper).list());
+    }
+
+    /**
+     * Passes the rows of a query one at a time to the consumer, without collecting them. Runs on the read handle of the
+     * thread, so within {@link #inSnapshot(Supplier)} the rows come from the same snapshot as the other reads.
+     */
+    public <T> void forEach(String qry, RowMapper<T> mapper, Consumer<T> consumer){
+        if (debug){
+            System.out.println("STREAM: " + qry);
+        }
+        readHandles.withHandle(handle -> {
+            try (ResultIterator<T> it = handle.createQuery(qry).map(mapper).iterator()) {
+                while (it.hasNext()) {
+                    consumer.accept(it.next());
+                }
+            }
+            return null;
+        });
+    }
+
+    private static Query bind(Query query, Object... params){
+        for (int i = 0; i < params.length; i++){
+            query.bind(i, params[i]);
+        }
+        return query;
+    }
+
+    /**
+     * Runs all reads of the current thread within the supplier on one read transaction, so that they see the same
+     * snapshot of the database even if the writer commits in between. If the thread does not get a kept handle, the
+     * reads run without a common snapshot.
+     */
+    public <T> T inSnapshot(Supplier<T> reads) {
+        return readHandles.withHandle(handle -> {
+            if (!readHandles.isKept() || handle.isInTransaction()) {
+                return reads.get();
+            }
+            return handle.inTransaction(h -> reads.get());
+        });
     }
 
     public  PersistentQuery openQuery(String qry) {
@@ -191,7 +417,7 @@ public class Database{
     }
 
     public  PersistentQuery openQuery(String qry, boolean debug) {
-        Handle h = jdbi.open();
+        Handle h = HandlePool.open(jdbi);
         return new PersistentQuery(h, qry, debug);
     }
 
@@ -203,13 +429,19 @@ public class Database{
         if (debug){
             System.out.println("EXISTS: " + qry);
         }
-        try(Handle handle = jdbi.open()) {
-            Optional<Boolean> result = handle.createQuery(qry).mapTo(Boolean.TYPE).findOne();
-            if (debug){
-                System.out.println(result.isPresent());
-            }
-            return result.isPresent();
+        Optional<Boolean> result = readHandles.withHandle(handle -> handle.createQuery(qry).mapTo(Boolean.TYPE).findOne());
+        if (debug){
+            System.out.println(result.isPresent());
         }
+        return result.isPresent();
+    }
+
+    /**
+     * Closes the connections kept open for reading and writing. Must be called before the database file is removed.
+     */
+    public void close() {
+        readHandles.close();
+        writer.close();
     }
 
     public int getMaxBatchSize() {
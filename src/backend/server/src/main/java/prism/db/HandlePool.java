@@ -0,0 +1,113 @@
+package prism.db;
+
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.HandleCallback;
+import org.jdbi.v3.core.Jdbi;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps one open read-only handle per thread, so that lookups do not pay for opening a connection and can reuse the
+ * prepared statements cached on it. The number of kept handles is bounded, handles of threads that died are closed
+ * when the bound is reached. Threads beyond the bound fall back to short-lived handles.
+ *
+ * Handles are switched to query_only while they are handed out, as the underlying connections return to the shared
+ * connection pool afterwards.
+ */
+public class HandlePool implements AutoCloseable {
+
+    private final Jdbi jdbi;
+
+    private final int maxHandles;
+
+    private final Map<Thread, Handle> handles = new ConcurrentHashMap<>();
+
+    private volatile boolean closed = false;
+
+    public HandlePool(Jdbi jdbi, int maxHandles) {
+        this.jdbi = jdbi;
+        this.maxHandles = maxHandles;
+    }
+
+    /**
+     * Runs the callback on the handle of the current thread. The handle must not escape the callback.
+     */
+    public <R, X extends Exception> R withHandle(HandleCallback<R, X> callback) throws X {
+        Handle handle = acquire();
+        if (handle == null) {
+            Handle h = open(jdbi);
+            try {
+                return callback.withHandle(h);
+            } finally {
+                release(h);
+            }
+        }
+        return callback.withHandle(handle);
+    }
+
+    /**
+     * @return whether the current thread holds a kept handle, i.e. whether nested reads of the thread share its handle
+     */
+    public boolean isKept() {
+        Handle handle = handles.get(Thread.currentThread());
+        return handle != null && !handle.isClosed();
+    }
+
+    /**
+     * Opens a read-only handle, to be closed with {@link #release(Handle)}
+     */
+    public static Handle open(Jdbi jdbi) {
+        Handle handle = jdbi.open();
+        handle.execute("pragma query_only = ON;");
+        return handle;
+    }
+
+    public static void release(Handle handle) {
+        try {
+            if (!handle.isClosed()) {
+                if (handle.isInTransaction()) handle.rollback();
+                handle.execute("pragma query_only = OFF;");
+            }
+        } finally {
+            handle.close();
+        }
+    }
+
+    private Handle acquire() {
+        if (closed) {
+            return null;
+        }
+        Thread thread = Thread.currentThread();
+        Handle handle = handles.get(thread);
+        if (handle != null && !handle.isClosed()) {
+            return handle;
+        }
+        if (handles.size() >= maxHandles) {
+            evictDead();
+            if (handles.size() >= maxHandles) {
+                return null;
+            }
+        }
+        handle = open(jdbi);
+        handles.put(thread, handle);
+        return handle;
+    }
+
+    private void evictDead() {
+        handles.entrySet().removeIf(entry -> {
+            if (!entry.getKey().isAlive()) {
+                release(entry.getValue());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        handles.values().forEach(HandlePool::release);
+        handles.clear();
+    }
+}
@@ -5,6 +5,7 @@ import org.jdbi.v3.core.mapper.RowMapper;
 import org.jdbi.v3.core.result.ResultIterator;
 import org.jdbi.v3.core.statement.Query;
 
+import java.util.Arrays;
 import java.util.stream.Stream;
 
 public class PersistentQuery implements AutoCloseable{
@@ -27,6 +28,19 @@ public class PersistentQuery implements AutoCloseable{
         this.debug = debug;
     }
 
+    /**
+     * Binds the parameters of the statement by position.
+     */
+    public PersistentQuery bind(Object... params){
+        if (debug && params.length > 0){
+            System.out.println("With: " + Arrays.toString(params));
+        }
+        for (int i = 0; i < params.length; i++){
+            query.bind(i, params[i]);
+        }
+        return this;
+    }
+
     public <T> ResultIterator<T> iterator(RowMapper<T> mapper){
         return query.map(mapper).iterator();
     }
@@ -38,6 +52,6 @@ public class PersistentQuery implements AutoCloseable{
     @Override
     public void close() {
         query.close();
-        handle.close();
+        HandlePool.release(handle);
     }
 }
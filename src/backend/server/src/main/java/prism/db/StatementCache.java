@@ -0,0 +1,142 @@
+package prism.db;
+
+import org.jdbi.v3.core.statement.DefaultStatementBuilder;
+import org.jdbi.v3.core.statement.StatementBuilder;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import java.sql.*;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Statement builder of a single connection that keeps prepared statements for reuse instead of closing them, so that
+ * repeated queries skip parsing and planning the SQL. At most {@code capacity} idle statements are kept, the least
+ * recently used one is closed when the cache overflows.
+ *
+ * A statement is taken out of the cache while it is in use, nested queries with the same SQL therefore get a
+ * statement of their own.
+ *
+ * The driver reads the result columns of a statement when preparing it, so statements prepared before a change of the
+ * schema (e.g. a column added to the state table) would keep returning the old columns. Every statement remembers the
+ * schema version it was prepared at, and statements of older versions are closed instead of reused.
+ */
+public class StatementCache implements StatementBuilder {
+
+    private final int capacity;
+
+    private final LinkedHashMap<String, PreparedStatement> idle;
+
+    private final Map<Statement, Borrowed> borrowed = new IdentityHashMap<>();
+
+    private final LongSupplier schema;
+
+    // Schema version the idle statements were prepared at
+    private long version;
+
+    private static class Borrowed {
+        final String sql;
+        final long version;
+
+        Borrowed(String sql, long version) {
+            this.sql = sql;
+            this.version = version;
+        }
+    }
+
+    /**
+     * @param schema current schema version of the database, see {@link Database#schemaChanged()}
+     */
+    public StatementCache(int capacity, LongSupplier schema) {
+        this.capacity = capacity;
+        this.schema = schema;
+        this.version = schema.getAsLong();
+        this.idle = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > StatementCache.this.capacity) {
+                    quietlyClose(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public Statement create(Connection conn, StatementContext ctx) throws SQLException {
+        return DefaultStatementBuilder.INSTANCE.create(conn, ctx);
+    }
+
+    @Override
+    public PreparedStatement create(Connection conn, String sql, StatementContext ctx) throws SQLException {
+        if (ctx.isReturningGeneratedKeys() || ctx.isConcurrentUpdatable()) {
+            return DefaultStatementBuilder.INSTANCE.create(conn, sql, ctx);
+        }
+        // Read before preparing, a change committed while preparing then only discards the statement once too often
+        long current = schema.getAsLong();
+        if (current != version) {
+            closeIdle();
+            version = current;
+        }
+        PreparedStatement statement = idle.remove(sql);
+        if (statement == null || statement.isClosed()) {
+            statement = conn.prepareStatement(sql);
+        }
+        borrowed.put(statement, new Borrowed(sql, current));
+        return statement;
+    }
+
+    @Override
+    public CallableStatement createCall(Connection conn, String sql, StatementContext ctx) throws SQLException {
+        return DefaultStatementBuilder.INSTANCE.createCall(conn, sql, ctx);
+    }
+
+    @Override
+    public void close(Connection conn, String sql, Statement stmt) throws SQLException {
+        if (stmt == null) {
+            return;
+        }
+        Borrowed borrow = borrowed.remove(stmt);
+        if (borrow == null || capacity == 0 || stmt.isClosed() || borrow.version != schema.getAsLong()) {
+            stmt.close();
+            return;
+        }
+        if (borrow.version != version) {
+            closeIdle();
+            version = borrow.version;
+        }
+        String key = borrow.sql;
+        try {
+            PreparedStatement statement = (PreparedStatement) stmt;
+            statement.clearParameters();
+            statement.clearBatch();
+            PreparedStatement previous = idle.put(key, statement);
+            if (previous != null && previous != statement) {
+                previous.close();
+            }
+        } catch (SQLException e) {
+            stmt.close();
+        }
+    }
+
+    @Override
+    public void close(Connection conn) {
+        closeIdle();
+        borrowed.keySet().forEach(StatementCache::quietlyClose);
+        borrowed.clear();
+    }
+
+    private void closeIdle() {
+        idle.values().forEach(StatementCache::quietlyClose);
+        idle.clear();
+    }
+
+    private static void quietlyClose(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+        }
+    }
+}
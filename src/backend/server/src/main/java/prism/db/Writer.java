@@ -0,0 +1,92 @@
+package prism.db;
+
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.HandleCallback;
+import org.jdbi.v3.core.Jdbi;
+
+import java.util.concurrent.*;
+
+/**
+ * Single writer of a database. All writes run on one thread holding one connection, each in a transaction of its own,
+ * so that SQLite never sees competing writers and readers only ever see committed data. Writes issued from within a
+ * write run inline and join its transaction.
+ */
+public class Writer implements AutoCloseable {
+
+    private final Jdbi jdbi;
+
+    private final ExecutorService executor;
+
+    private volatile Thread thread = null;
+
+    // Only touched by the writer thread
+    private Handle handle = null;
+
+    public Writer(Jdbi jdbi, String name) {
+        this.jdbi = jdbi;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread t = new Thread(runnable, name);
+            t.setDaemon(true);
+            thread = t;
+            return t;
+        });
+    }
+
+    /**
+     * Runs the callback in a transaction on the writer and waits for it to finish
+     */
+    @SuppressWarnings("unchecked")
+    public <R, X extends Exception> R write(HandleCallback<R, X> callback) throws X {
+        if (isWriterThread()) {
+            return run(callback);
+        }
+        try {
+            return submit(callback).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw (X) cause;
+        }
+    }
+
+    /**
+     * @return whether the calling thread is the writer, for example inside {@link #write(HandleCallback)}
+     */
+    public boolean isWriterThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * Queues the callback to run in a transaction on the writer
+     */
+    public <R, X extends Exception> Future<R> submit(HandleCallback<R, X> callback) {
+        return executor.submit(() -> run(callback));
+    }
+
+    private <R, X extends Exception> R run(HandleCallback<R, X> callback) throws X {
+        if (handle == null || handle.isClosed()) {
+            handle = jdbi.open();
+        }
+        if (handle.isInTransaction()) {
+            return callback.withHandle(handle);
+        }
+        return handle.inTransaction(callback);
+    }
+
+    @Override
+    public void close() {
+        executor.submit(() -> {
+            if (handle != null) handle.close();
+        });
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
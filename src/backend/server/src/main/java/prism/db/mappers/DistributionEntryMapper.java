@@ -0,0 +1,31 @@
+package prism.db.mappers;
+
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+import prism.core.Namespace;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps single rows of the distribution table (transition, target, probability)
+ */
+public class DistributionEntryMapper implements RowMapper<DistributionEntryMapper.Entry> {
+
+    public static class Entry {
+        public final long transition;
+        public final long target;
+        public final double probability;
+
+        public Entry(long transition, long target, double probability) {
+            this.transition = transition;
+            this.target = target;
+            this.probability = probability;
+        }
+    }
+
+    @Override
+    public Entry map(ResultSet rs, StatementContext ctx) throws SQLException {
+        return new Entry(rs.getLong(Namespace.ENTRY_T_ID), rs.getLong(Namespace.ENTRY_D_TARGET), rs.getDouble(Namespace.ENTRY_D_PROB));
+    }
+}
@@ -11,13 +11,26 @@ import java.util.Map;
 
 
 /**
- * Maps database outputs for views content. Needed since we need to map a string output to a List of longs
+ * Maps the distribution of a transition. Either looks it up in distributions read beforehand from the distribution
+ * table, or splits a concatenation "target:probability;..." as produced for grouped transitions.
  */
 public class DistributionMapper implements RowMapper<Map<String, Double>> {
 
+    private final Map<String, Map<String, Double>> distributions;
+
+    public DistributionMapper() {
+        this(null);
+    }
+
+    public DistributionMapper(Map<String, Map<String, Double>> distributions) {
+        this.distributions = distributions;
+    }
+
     @Override
     public Map<String, Double> map(ResultSet rs, StatementContext ctx) throws SQLException {
-        double roundingFactor = 1000;
+        if (distributions != null) {
+            return distributions.getOrDefault(rs.getString(Namespace.ENTRY_T_ID), new HashMap<>());
+        }
         String out = rs.getString(Namespace.ENTRY_T_PROB);
         Map<String, Double> ret = new HashMap<>();
         if (out == null) return ret;
@@ -26,9 +39,6 @@ public class DistributionMapper implements RowMapper<Map<String, Double>> {
             if (e.length != 2){
                 throw new SQLException();
             }
-//            double doubleVal = Double.parseDouble(e[1]);
-//            doubleVal = ((double)Math.round(doubleVal*roundingFactor))/roundingFactor;
-//            System.out.println(doubleVal);
             ret.put(e[0], Double.parseDouble(e[1]));
         }
         return ret;
@@ -3,7 +3,6 @@ package prism.db.mappers;
 import prism.StateAndValueConsumer;
 import prism.core.ModelParser;
 
-import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -12,7 +11,7 @@ import java.util.stream.Collectors;
 public class StateAndValueMapper implements StateAndValueConsumer {
 
     private final ModelParser modelParser;
-    private final Map<BigInteger, Double> valueMap;
+    private final Map<Long, Double> valueMap;
 
     public StateAndValueMapper(ModelParser modelParser) {
         this.modelParser = modelParser;
@@ -21,11 +20,12 @@ public class StateAndValueMapper implements StateAndValueConsumer {
 
     @Override
     public void accept(int[] varValues, double value, long stateIndex) {
-        BigInteger s_id = modelParser.stateIdentifier(varValues);
+        // Without compact identifiers states are numbered in the order of the reachable state list
+        long s_id = modelParser.hasCompactIdentifiers() ? modelParser.stateIdentifier(varValues) : stateIndex;
         valueMap.put(s_id, value);
     }
 
-    public Map<BigInteger, Double> output(){
+    public Map<Long, Double> output(){
         return valueMap;
     }
 }
@@ -3,6 +3,7 @@ package prism.db.mappers;
 import org.jdbi.v3.core.mapper.RowMapper;
 import org.jdbi.v3.core.statement.StatementContext;
 import prism.PrismLangException;
+import prism.api.AP;
 import prism.api.State;
 import prism.core.Namespace;
 import prism.core.Project;
@@ -28,6 +29,10 @@ public class StateMapper implements RowMapper<State> {
 
     private final RewardMapper rewardMapper;
 
+    private final VariableMapper variableMapper;
+
+    private Boolean hasLabelColumn = null;
+
 
     public StateMapper(Project project, List<View> views) {
         this.project = project;
@@ -35,13 +40,19 @@ public class StateMapper implements RowMapper<State> {
         this.viewMapper = new ViewMapper();
         this.propertyMapper = new PropertyMapper(project.getProperties());
         this.rewardMapper = new RewardMapper(project);
+        this.variableMapper = new VariableMapper(project);
     }
 
     @Override
     public State map(final ResultSet rs, final StatementContext ctx) throws SQLException {
         if (views == null) {
             try {
-                return new State(rs.getString(Namespace.ENTRY_S_ID), rs.getString(Namespace.ENTRY_S_NAME), project.getModelParser().parseParameters(rs.getString(Namespace.ENTRY_S_NAME)), project.getLabelMap(project.getModelParser().parseState(rs.getString(Namespace.ENTRY_S_NAME))), rewardMapper.map(rs, ctx), propertyMapper.map(rs, ctx));
+                // Variable columns spare parsing the state name
+                parser.State state = variableMapper.map(rs, ctx);
+                if (state == null) {
+                    state = project.getModelParser().parseState(rs.getString(Namespace.ENTRY_S_NAME));
+                }
+                return new State(rs.getString(Namespace.ENTRY_S_ID), rs.getString(Namespace.ENTRY_S_NAME), project.getModelParser().parseParameters(state), mapLabels(rs, state), rewardMapper.map(rs, ctx), propertyMapper.map(rs, ctx));
             }catch (PrismLangException e) {
                 return new State(rs.getString(Namespace.ENTRY_S_ID), rs.getString(Namespace.ENTRY_S_NAME), new TreeMap<>(), new TreeMap<>(), rewardMapper.map(rs, ctx), propertyMapper.map(rs, ctx));
             } catch (Exception e) {
@@ -50,4 +61,25 @@ public class StateMapper implements RowMapper<State> {
         }
         return new State(rs.getString(Namespace.ENTRY_C_NAME), views.stream().map(c -> Long.toString(c.getId())).collect(Collectors.toList()), viewMapper.map(rs, ctx));
     }
+
+    /**
+     * Decodes the label bits stored during the build. Evaluates the labels only if the row has none.
+     */
+    private TreeMap<String, AP> mapLabels(ResultSet rs, parser.State state) throws Exception {
+        if (hasLabelColumn == null) {
+            try {
+                rs.findColumn(Namespace.ENTRY_S_LABELS);
+                hasLabelColumn = true;
+            } catch (SQLException e) {
+                hasLabelColumn = false;
+            }
+        }
+        if (hasLabelColumn) {
+            long bits = rs.getLong(Namespace.ENTRY_S_LABELS);
+            if (!rs.wasNull()) {
+                return project.getLabelMap(bits);
+            }
+        }
+        return project.getLabelMap(state);
+    }
 }
@@ -0,0 +1,39 @@
+package prism.db.mappers;
+
+import prism.StateAndValueConsumer;
+import prism.core.ModelParser;
+import prism.core.mdpgraph.CsrGraph;
+
+import java.util.Arrays;
+
+/**
+ * Collects the values of a model checking result into an array indexed like the states of a {@link CsrGraph}, instead
+ * of a map by state identifier as {@link StateAndValueMapper} does.
+ */
+public class StateValueVectorMapper implements StateAndValueConsumer {
+
+    private final ModelParser modelParser;
+    private final CsrGraph csr;
+    private final double[] values;
+
+    public StateValueVectorMapper(ModelParser modelParser, CsrGraph csr) {
+        this.modelParser = modelParser;
+        this.csr = csr;
+        this.values = new double[csr.numStates()];
+        // States the result has no value for stay unknown
+        Arrays.fill(values, Double.NaN);
+    }
+
+    @Override
+    public void accept(int[] varValues, double value, long stateIndex) {
+        long s_id = modelParser.hasCompactIdentifiers() ? modelParser.stateIdentifier(varValues) : stateIndex;
+        int state = csr.index(s_id);
+        if (state >= 0) {
+            values[state] = value;
+        }
+    }
+
+    public double[] output(){
+        return values;
+    }
+}
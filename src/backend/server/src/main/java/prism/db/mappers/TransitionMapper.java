@@ -30,8 +30,11 @@ public class TransitionMapper implements RowMapper<Transition> {
 
     private final List<View> views;
 
-    public TransitionMapper(Project project){
-        this.distributionMapper = new DistributionMapper();
+    /**
+     * @param distributions distributions of the mapped transitions by transition id, as read from the distribution table
+     */
+    public TransitionMapper(Project project, Map<String, Map<String, Double>> distributions){
+        this.distributionMapper = new DistributionMapper(distributions);
         this.propertyMapper = new PropertyMapper(project.getProperties());
         this.rewardMapper = new RewardMapper(project);
         this.scheduleMapper = new ScheduleMapper(project.getSchedulers());
@@ -0,0 +1,64 @@
+package prism.db.mappers;
+
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+import parser.ast.ModulesFile;
+import parser.type.TypeBool;
+import prism.core.Namespace;
+import prism.core.Project;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Maps the variable columns of a state row to a PRISM state, so that the state name does not have to be parsed.
+ * Returns null for rows without variable columns.
+ */
+public class VariableMapper implements RowMapper<parser.State> {
+
+    private final boolean[] bools;
+
+    // Column of the i-th variable in the result set, looked up on the first row
+    private int[] columns = null;
+
+    public VariableMapper(Project project){
+        ModulesFile modulesFile = project.getModulesFile();
+        bools = new boolean[modulesFile.getNumVars()];
+        for (int i = 0; i < bools.length; i++) {
+            bools[i] = modulesFile.getVarType(i) instanceof TypeBool;
+        }
+    }
+
+    @Override
+    public parser.State map(ResultSet rs, StatementContext ctx) throws SQLException {
+        if (columns == null) {
+            columns = findColumns(rs.getMetaData());
+        }
+        if (columns.length == 0) {
+            return null;
+        }
+        parser.State state = new parser.State(bools.length);
+        for (int i = 0; i < bools.length; i++) {
+            long value = rs.getLong(columns[i]);
+            if (rs.wasNull()) {
+                return null;
+            }
+            state.setValue(i, bools[i] ? (Object) (value != 0) : (Object) (int) value);
+        }
+        return state;
+    }
+
+    private int[] findColumns(ResultSetMetaData rsm) throws SQLException {
+        int[] found = new int[bools.length];
+        int count = 0;
+        for (int i = 1; i <= rsm.getColumnCount(); i++) {
+            String collumn = rsm.getColumnName(i);
+            if (collumn.startsWith(Namespace.ENTRY_S_VAR)) {
+                found[Integer.parseInt(collumn.substring(Namespace.ENTRY_S_VAR.length()))] = i;
+                count++;
+            }
+        }
+        return count == bools.length && count > 0 ? found : new int[0];
+    }
+}
@@ -1,17 +1,23 @@
 package prism.resources;
 
 import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.core.JsonGenerator;
 import io.dropwizard.setup.Environment;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import prism.api.Message;
+import prism.core.Project;
+import prism.core.Utility.Cursor;
 import prism.core.View.ViewType;
+import prism.core.mdpgraph.Direction;
+import prism.server.ColumnarGraphWriter;
 import prism.server.PRISMServerConfiguration;
 import prism.server.TaskManager;
 
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import java.util.*;
 
 
@@ -27,16 +33,35 @@ public class ModelResource extends Resource {
     }
 
     @GET
+    @Produces({MediaType.APPLICATION_JSON, ColumnarGraphWriter.SMILE})
     @Timed
-    @Operation(summary = "Returns entire graph")
+    @Operation(summary = "Returns entire graph", description = "Without views the graph can be streamed as JSON, so that it is written while it is read from the database. A streamed graph is read from one snapshot of the database, which stays open until the client has read the whole response")
     public Response createUpperGraph(
             @Parameter(description = "identifier of project")
             @PathParam("project_id") String projectID,
-            @QueryParam("view") List<Integer> viewID
+            @QueryParam("view") List<Integer> viewID,
+            @Parameter(description = "whether to stream the graph instead of building it in memory first")
+            @QueryParam("stream") @DefaultValue("false") boolean stream,
+            @Parameter(description = "maximal number of states per page, all states if 0") @QueryParam("limit") @DefaultValue("0") int limit,
+            @Parameter(description = "cursor of the page, as returned with the previous page") @QueryParam("cursor") String cursor
     ) {
         try{
             if (!tasks.containsProject(projectID)) return error(new Message(String.format("Project %s not found", projectID)));
-            return ok(tasks.getProject(projectID).getGraph(viewID));
+            if (limit > 0 && viewID.isEmpty()) {
+                long after = Cursor.decode(cursor);
+                return conditional(projectID, project -> project.getGraph(after, limit), limit <= MAX_CACHED_STATES);
+            }
+            if (stream && viewID.isEmpty()) {
+                Project project = tasks.getProject(projectID);
+                StreamingOutput output = out -> {
+                    try (JsonGenerator generator = environment.getObjectMapper().createGenerator(out)) {
+                        project.writeGraph(generator);
+                    }
+                };
+                // Streamed graphs are always JSON, the Smile writer only takes graphs built in memory
+                return Response.ok(output, MediaType.APPLICATION_JSON_TYPE).build();
+            }
+            return conditional(projectID, project -> project.getGraph(viewID));
         } catch (Exception e) {
             return error(e);
         }
@@ -44,6 +69,7 @@ public class ModelResource extends Resource {
 
     @Path("/node:{id}")
     @GET
+    @Produces({MediaType.APPLICATION_JSON, ColumnarGraphWriter.SMILE})
     @Timed(name="node")
     @Operation(summary = "Returns single node", description = "Returns single Node Object with identifier 'id'")
     public Response getNode(
@@ -52,24 +78,36 @@ public class ModelResource extends Resource {
             @Parameter(description = "Identifier of target node", required = true)
             @PathParam("id") String nodeID
     ) {
-        return ok(tasks.getProject(projectID).getState(nodeID));
+        return conditional(projectID, project -> project.getState(nodeID), true);
     }
 
     @Path("/subgraph")
     @GET
+    @Produces({MediaType.APPLICATION_JSON, ColumnarGraphWriter.SMILE})
     @Timed(name="subgraph")
     @Operation(summary = "Returns interconnected subgraph of all given nodes", description = "Returns single Node Object with identifier 'id'")
     public Response getSubGraph(
             @Parameter(description = "identifier of project") @PathParam("project_id") String projectID,
             @Parameter(description = "Identifier of target node", required = true) @QueryParam("id") List<String> nodeIDs,
-            @QueryParam("view") List<Integer> viewID
+            @QueryParam("view") List<Integer> viewID,
+            @Parameter(description = "maximal number of states per page, all states if 0") @QueryParam("limit") @DefaultValue("0") int limit,
+            @Parameter(description = "cursor of the page, as returned with the previous page") @QueryParam("cursor") String cursor
     ) {
         refreshProject(projectID);
-        return ok(tasks.getProject(projectID).getSubGraph(nodeIDs, viewID));
+        if (limit > 0 && viewID.isEmpty()) {
+            try {
+                long after = Cursor.decode(cursor);
+                return conditional(projectID, project -> project.getSubGraph(nodeIDs, after, limit), limit <= MAX_CACHED_STATES);
+            } catch (IllegalArgumentException e) {
+                return error(e.getMessage());
+            }
+        }
+        return conditional(projectID, project -> project.getSubGraph(nodeIDs, viewID));
     }
 
     @Path("/reset")
     @GET
+    @Produces({MediaType.APPLICATION_JSON, ColumnarGraphWriter.SMILE})
     @Timed(name="subgraph")
     @Operation(summary = "Returns interconnected subgraph of all given nodes", description = "Returns single Node Object with identifier 'id'")
     public Response resetGraph(
@@ -84,20 +122,70 @@ public class ModelResource extends Resource {
 
     @Path("/outgoing")
     @GET
+    @Produces({MediaType.APPLICATION_JSON, ColumnarGraphWriter.SMILE})
     @Timed(name="outgoing")
     @Operation(summary = "Returns all outgoing edges", description = "Returns all edges starting in state 'id'")
     public Response getOutgoing(
             @Parameter(description = "identifier of project") @PathParam("project_id") String projectID,
             @Parameter(description = "Identifier of target node", required = true) @QueryParam("id") List<String> nodeIDs,
+            @QueryParam("view") List<Integer> viewID,
+            @Parameter(description = "maximal number of source states per page, all states if 0") @QueryParam("limit") @DefaultValue("0") int limit,
+            @Parameter(description = "cursor of the page, as returned with the previous page") @QueryParam("cursor") String cursor
+    ) {
+        refreshProject(projectID);
+        if (!tasks.containsProject(projectID)) return error(String.format("project %s not open", projectID));
+        if (limit > 0 && viewID.isEmpty()) {
+            try {
+                long after = Cursor.decode(cursor);
+                return conditional(projectID, project -> project.getOutgoing(nodeIDs, after, limit), limit <= MAX_CACHED_STATES);
+            } catch (IllegalArgumentException e) {
+                return error(e.getMessage());
+            }
+        }
+        return conditional(projectID, project -> project.getOutgoing(nodeIDs, viewID));
+    }
+
+    @Path("/neighborhood")
+    @GET
+    @Produces({MediaType.APPLICATION_JSON, ColumnarGraphWriter.SMILE})
+    @Timed(name="neighborhood")
+    @Operation(summary = "Returns the neighborhood of the given nodes", description = "Returns all nodes reachable within 'depth' steps from the nodes 'id', up to 'budget' nodes, and the transitions between them")
+    public Response getNeighborhood(
+            @Parameter(description = "identifier of project") @PathParam("project_id") String projectID,
+            @Parameter(description = "Identifier of seed node", required = true) @QueryParam("id") List<String> nodeIDs,
+            @Parameter(description = "edges to follow: forward, backward or both") @QueryParam("direction") @DefaultValue("forward") String direction,
+            @Parameter(description = "maximal number of steps from the seed nodes") @QueryParam("depth") @DefaultValue("1") int depth,
+            @Parameter(description = "maximal number of nodes returned") @QueryParam("budget") @DefaultValue("1000") int budget,
             @QueryParam("view") List<Integer> viewID
     ) {
         refreshProject(projectID);
         if (!tasks.containsProject(projectID)) return error(String.format("project %s not open", projectID));
-        return ok(tasks.getProject(projectID).getOutgoing(nodeIDs, viewID));
+        Direction dir;
+        try {
+            dir = Direction.valueOf(direction.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return error(String.format("unknown direction %s", direction));
+        }
+        return conditional(projectID, project -> project.getNeighborhood(nodeIDs, dir, depth, budget, viewID), budget <= MAX_CACHED_STATES && viewID.isEmpty());
+    }
+
+    @Path("/incoming")
+    @GET
+    @Produces({MediaType.APPLICATION_JSON, ColumnarGraphWriter.SMILE})
+    @Timed(name="incoming")
+    @Operation(summary = "Returns all incoming edges", description = "Returns all edges that reach state 'id' with positive probability")
+    public Response getIncoming(
+            @Parameter(description = "identifier of project") @PathParam("project_id") String projectID,
+            @Parameter(description = "Identifier of target node", required = true) @QueryParam("id") List<String> nodeIDs
+    ) {
+        refreshProject(projectID);
+        if (!tasks.containsProject(projectID)) return error(String.format("project %s not open", projectID));
+        return conditional(projectID, project -> project.getIncoming(nodeIDs));
     }
 
     @Path("/initial")
     @GET
+    @Produces({MediaType.APPLICATION_JSON, ColumnarGraphWriter.SMILE})
     @Timed(name="initial")
     @Operation(summary = "Returns all initial nodes", description = "Returns all nodes that are marked as initial states")
     public Response getInitial(
@@ -106,7 +194,20 @@ public class ModelResource extends Resource {
             @QueryParam("view") List<Integer> viewID
     ) {
         refreshProject(projectID);
-        return ok(tasks.getProject(projectID).getInitialNodes(viewID));
+        return conditional(projectID, project -> project.getInitialNodes(viewID));
+    }
+
+    @Path("/sweep/results")
+    @GET
+    @Timed(name="sweep")
+    @Operation(summary = "Returns the results of the last sweep", description = "Returns the value in the initial state of every property and assignment of the last sweep over constants, as far as it has progressed")
+    public Response getSweepResults(
+            @Parameter(description = "identifier of project")
+            @PathParam("project_id") String projectID
+    ) {
+        refreshProject(projectID);
+        if (!tasks.containsProject(projectID)) return error(String.format("Project %s does not exist", projectID));
+        return ok(tasks.getProject(projectID).getSweepResults());
     }
 
     @Path("/files")
@@ -148,6 +249,10 @@ public class ModelResource extends Resource {
             @QueryParam("limit_data") String data
     ) {
         try {
+            if (expression != null && !expression.isEmpty()) {
+                parameters = new ArrayList<>(parameters);
+                parameters.add("limit_expression=" + expression);
+            }
             tasks.getProject(projectID).createView(type, parameters);
             return ok("Created View");
         } catch (Exception e) {
@@ -7,13 +7,16 @@ import prism.core.Project;
 import prism.server.PRISMServerConfiguration;
 import prism.server.TaskManager;
 
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
 import java.io.*;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 public abstract class Resource {
 
@@ -40,17 +43,80 @@ public abstract class Resource {
 
     private Map<String, Project> currModels;
 
+    @Context
+    protected Request request;
+
+    @Context
+    protected UriInfo uriInfo;
+
+    //Largest number of states of a response that is kept in memory
+    protected static final int MAX_CACHED_STATES = 10000;
+
+    //Recent responses by request and data version, only of requests whose size is bounded
+    private static final int RESPONSE_CACHE_SIZE = 32;
+    private final Map<String, Object> responses = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+            return size() > RESPONSE_CACHE_SIZE;
+        }
+    });
+
     protected static Response ok(Object o){
         return Response.ok(o).build();
     }
 
+    /**
+     * Reads from a project such that all database queries of the read see the same state, even while a task writes
+     */
+    protected <T> T snapshot(String projectID, Function<Project, T> read){
+        Project project = tasks.getProject(projectID);
+        return project.getDatabase().inSnapshot(() -> read.apply(project));
+    }
+
+    /**
+     * Reads from a project like {@link #snapshot(String, Function)}, tagged with the data version of the project.
+     * Answers 304 if the client sends the current tag in If-None-Match.
+     */
+    protected Response conditional(String projectID, Function<Project, ?> read){
+        return conditional(projectID, read, false);
+    }
+
+    /**
+     * Like {@link #conditional(String, Function)}, and repeats earlier responses to the same request at the same version
+     * from memory if remember is set. Only to be set for responses of bounded size (single nodes, pages and
+     * neighborhoods of at most {@link #MAX_CACHED_STATES} states), as the entities are kept as they are.
+     */
+    protected Response conditional(String projectID, Function<Project, ?> read, boolean remember){
+        Project project = tasks.getProject(projectID);
+        String version = project.getDataTag();
+        EntityTag tag = new EntityTag(version, true);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) {
+            return notModified.build();
+        }
+        if (!remember) {
+            return Response.ok(snapshot(projectID, read)).tag(tag).build();
+        }
+        String key = uriInfo.getRequestUri() + "@" + version;
+        Object entity = responses.get(key);
+        if (entity == null) {
+            entity = snapshot(projectID, read);
+            // Only keep responses that are known to belong to the version
+            if (entity != null && version.equals(project.getDataTag())) {
+                responses.put(key, entity);
+            }
+        }
+        return Response.ok(entity).tag(tag).build();
+    }
+
     protected static Response missing(Message m){
-        return Response.status(Response.Status.NOT_FOUND).entity(m).build();
+        return Response.status(Response.Status.NOT_FOUND).entity(m).type(MediaType.APPLICATION_JSON_TYPE).build();
     }
 
     protected static Response error(Object o){
         System.out.println(o);
-        return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(o).build();
+        // Errors are never graphs, so they are JSON even for clients that asked for Smile
+        return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(o).type(MediaType.APPLICATION_JSON_TYPE).build();
     }
 
     protected static Response abstractionMissing(long abstractionID){
@@ -6,7 +6,6 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
 import org.glassfish.jersey.media.multipart.FormDataParam;
-import prism.PrismException;
 import prism.api.Message;
 import prism.api.Pane;
 import prism.api.Status;
@@ -308,27 +307,45 @@ public class TaskResource extends Resource {
 
         Project p = tasks.getProject(projectID);
 
-        for (String propertyName : properties) {
-            try {
-            p.getProperty(propertyName).ifPresent(property -> {
-                try {
-                    p.checkProperty(propertyName);
-                    if (debug){
-                        System.out.println("Checking property " + propertyName);
-                    }
-                } catch (PrismException e) {
-                    throw new RuntimeException(e);
-                }
-            });
-            } catch (Exception e) {
-                return error(e);
+        try {
+            p.checkProperties(properties);
+            if (debug){
+                System.out.println("Checking properties " + String.join(", ", properties));
             }
-
+        } catch (Exception e) {
+            return error(e);
         }
 
         return ok(new Message(String.format("Started checking %s in project %s", String.join(", ", properties), projectID)));
     }
 
+    @Path("/sweep")
+    @GET
+    @Timed
+    @Operation(summary = "checks properties for a grid of constants", description = "Starts checking properties for every assignment of a grid of values to the undefined constants of the model. Results are returned by /sweep/results")
+    public Response sweepConstants(
+            @Parameter(description = "identifier of project")
+            @PathParam("project_id") String projectID,
+            @Parameter(description = "grid of values for the undefined constants, as for the -const switch of PRISM, e.g. N=1:5,p=0.1:0.1:0.5")
+            @QueryParam("const") String constants,
+            @Parameter(description = "properties that should be checked, all if none are given")
+            @QueryParam("property") List<String> properties
+    ){
+        if (!tasks.containsProject(projectID)) {
+            return error(String.format("Project %s does not exist", projectID));
+        }
+        if (constants == null || constants.isEmpty()) {
+            return error("No constants to sweep over given");
+        }
+
+        try {
+            int assignments = tasks.getProject(projectID).sweep(constants, properties);
+            return ok(new Message(String.format("Started sweep over %d assignments in project %s", assignments, projectID)));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
     @Path("/pane/all")
     @GET
     @Timed
@@ -0,0 +1,51 @@
+package prism.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import io.dropwizard.jackson.Jackson;
+import prism.api.ColumnarGraph;
+import prism.api.Graph;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+/**
+ * Writes graphs in their columnar form as Smile, the binary encoding of JSON, for clients accepting
+ * {@value #SMILE}. Smile refers back to property names and short strings it already wrote, so names shared by many
+ * nodes are sent once.
+ */
+@Provider
+@Produces(ColumnarGraphWriter.SMILE)
+public class ColumnarGraphWriter implements MessageBodyWriter<Graph> {
+
+    public static final String SMILE = "application/x-jackson-smile";
+
+    private final ObjectMapper mapper;
+
+    public ColumnarGraphWriter() {
+        SmileFactory factory = new SmileFactory();
+        factory.enable(SmileGenerator.Feature.CHECK_SHARED_NAMES);
+        factory.enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+        // Same modules as the JSON mapper of Dropwizard
+        this.mapper = Jackson.newObjectMapper(factory);
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return Graph.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public void writeTo(Graph graph, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException, WebApplicationException {
+        mapper.writeValue(entityStream, ColumnarGraph.of(graph));
+    }
+}
@@ -66,6 +66,7 @@ public class PRISMServerApplication extends Application<PRISMServerConfiguration
 		);
 
 		environment.jersey().register(MultiPartFeature.class);
+		environment.jersey().register(new ColumnarGraphWriter());
 		environment.jersey().register(modelResource);
 		environment.jersey().register(taskResource);
 
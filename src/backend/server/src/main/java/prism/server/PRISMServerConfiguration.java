@@ -7,6 +7,8 @@ import io.dropwizard.db.DataSourceFactory;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.List;
 
 import static java.lang.Runtime.getRuntime;
 
@@ -22,6 +24,22 @@ public class PRISMServerConfiguration extends Configuration {
 
     private String initModel = "0";
 
+    private boolean variableColumns = true;
+
+    private List<String> indexedVariables = new ArrayList<>();
+
+    private boolean sideTables = false;
+
+    private int checkWorkers = 1;
+
+    private boolean resultCache = true;
+
+    private long resultCacheBytes = 1L << 30;
+
+    private boolean engineSelection = false;
+
+    private long maxExplicitStates = 5000000;
+
     private int socketPort = 8082;
 
     private String socketHost = "0.0.0.0";
@@ -74,6 +92,86 @@ public class PRISMServerConfiguration extends Configuration {
         this.initModel = initModel;
     }
 
+    @JsonProperty
+    public boolean getVariableColumns() {
+        return variableColumns;
+    }
+
+    @JsonProperty
+    public void setVariableColumns(boolean variableColumns) {
+        this.variableColumns = variableColumns;
+    }
+
+    @JsonProperty
+    public List<String> getIndexedVariables() {
+        return indexedVariables;
+    }
+
+    @JsonProperty
+    public void setIndexedVariables(List<String> indexedVariables) {
+        this.indexedVariables = indexedVariables;
+    }
+
+    @JsonProperty
+    public boolean getSideTables() {
+        return sideTables;
+    }
+
+    @JsonProperty
+    public void setSideTables(boolean sideTables) {
+        this.sideTables = sideTables;
+    }
+
+    @JsonProperty
+    public int getCheckWorkers() {
+        return checkWorkers;
+    }
+
+    @JsonProperty
+    public void setCheckWorkers(int checkWorkers) {
+        this.checkWorkers = checkWorkers;
+    }
+
+    @JsonProperty
+    public boolean getResultCache() {
+        return resultCache;
+    }
+
+    @JsonProperty
+    public void setResultCache(boolean resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    @JsonProperty
+    public long getResultCacheBytes() {
+        return resultCacheBytes;
+    }
+
+    @JsonProperty
+    public void setResultCacheBytes(long resultCacheBytes) {
+        this.resultCacheBytes = resultCacheBytes;
+    }
+
+    @JsonProperty
+    public boolean getEngineSelection() {
+        return engineSelection;
+    }
+
+    @JsonProperty
+    public void setEngineSelection(boolean engineSelection) {
+        this.engineSelection = engineSelection;
+    }
+
+    @JsonProperty
+    public long getMaxExplicitStates() {
+        return maxExplicitStates;
+    }
+
+    @JsonProperty
+    public void setMaxExplicitStates(long maxExplicitStates) {
+        this.maxExplicitStates = maxExplicitStates;
+    }
+
     @JsonProperty
     public boolean getDebug() {
         return debug;
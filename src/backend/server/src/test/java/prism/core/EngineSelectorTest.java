@@ -0,0 +1,90 @@
+package prism.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import prism.Prism;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class EngineSelectorTest {
+
+    private static final String MODEL = "3:4:2";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private EngineSelector selector(String log) throws IOException {
+        File file = new File(folder.getRoot(), "engines.csv");
+        try (FileWriter write = new FileWriter(file)) {
+            write.write(log);
+        }
+        return new EngineSelector(file, 1000000, false);
+    }
+
+    @Test
+    public void readsSumAndCountPerEngine() throws Exception {
+        EngineSelector selector = selector(MODEL + ",4,100\n" + MODEL + ",4,300\n" + MODEL + ",1,50\n" + "1:2:3,4,7\n");
+        Map<Integer, double[]> past = selector.past(MODEL);
+        assertEquals(2, past.size());
+        assertArrayEquals(new double[]{400, 2}, past.get(Prism.EXPLICIT), 0);
+        assertArrayEquals(new double[]{50, 1}, past.get(Prism.MTBDD), 0);
+    }
+
+    @Test
+    public void skipsIncompleteLines() throws Exception {
+        EngineSelector selector = selector(MODEL + ",4,100\n" + MODEL + ",4\n" + MODEL + ",1,1x\n" + MODEL + ",");
+        Map<Integer, double[]> past = selector.past(MODEL);
+        assertEquals(1, past.size());
+        assertArrayEquals(new double[]{100, 1}, past.get(Prism.EXPLICIT), 0);
+    }
+
+    @Test
+    public void missingLogHasNoTimings() {
+        EngineSelector selector = new EngineSelector(new File(folder.getRoot(), "none.csv"), 1000000, false);
+        assertTrue(selector.past(MODEL).isEmpty());
+    }
+
+    @Test
+    public void withoutTimingsPrefersExplicitForSmallModels() throws Exception {
+        EngineSelector selector = selector("");
+        assertEquals(Prism.EXPLICIT, selector.select(MODEL, 5000, 500, Prism.MTBDD));
+    }
+
+    @Test
+    public void withoutTimingsPrefersSymbolicForCompressedModels() throws Exception {
+        EngineSelector selector = selector("");
+        assertEquals(Prism.MTBDD, selector.select(MODEL, 500000, 100, Prism.MTBDD));
+    }
+
+    @Test
+    public void largeModelsStaySymbolic() throws Exception {
+        EngineSelector selector = selector(MODEL + ",4,1\n" + MODEL + ",1,1000\n");
+        assertEquals(Prism.MTBDD, selector.select(MODEL, 2000000, 1000000, Prism.MTBDD));
+    }
+
+    @Test
+    public void triesTheEngineWithoutTimings() throws Exception {
+        assertEquals(Prism.MTBDD, selector(MODEL + ",4,100\n").select(MODEL, 5000, 500, Prism.MTBDD));
+        assertEquals(Prism.EXPLICIT, selector(MODEL + ",1,100\n").select(MODEL, 500000, 100, Prism.MTBDD));
+    }
+
+    @Test
+    public void picksTheFasterEngineOnAverage() throws Exception {
+        EngineSelector selector = selector(MODEL + ",4,100\n" + MODEL + ",4,300\n" + MODEL + ",1,150\n");
+        assertEquals(Prism.MTBDD, selector.select(MODEL, 5000, 500, Prism.MTBDD));
+    }
+
+    @Test
+    public void recordsUnderTheSelectedDescription() throws Exception {
+        EngineSelector selector = selector("");
+        selector.select(MODEL, 5000, 500, Prism.MTBDD);
+        selector.record(Prism.EXPLICIT, 42);
+        assertArrayEquals(new double[]{42, 1}, selector.past(MODEL).get(Prism.EXPLICIT), 0);
+    }
+}
@@ -0,0 +1,181 @@
+package prism.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import parser.State;
+import parser.ast.*;
+import parser.type.TypeInt;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the states selected by compiled predicates in SQLite with the states PRISM evaluates the expression to true
+ * in. The states are all valuations of x in 0..3 and y in 0..2, identified by 3x + y.
+ */
+public class ExpressionCompilerTest implements Namespace {
+
+    private static final int MAX_X = 3;
+    private static final int MAX_Y = 2;
+
+    // Only label of the model, true in the states with x = 3
+    private static final String GOAL = "goal";
+
+    private Connection connection;
+
+    private final ExpressionCompiler compiler = new ExpressionCompiler(true, true, name -> name.equals(GOAL) ? 0 : -1);
+
+    @Before
+    public void fill() throws Exception {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(String.format("CREATE TABLE states (%s INTEGER PRIMARY KEY, %s0 INTEGER, %s1 INTEGER, %s INTEGER)", ENTRY_S_ID, ENTRY_S_VAR, ENTRY_S_VAR, ENTRY_S_LABELS));
+        }
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO states VALUES (?, ?, ?, ?)")) {
+            for (int x = 0; x <= MAX_X; x++) {
+                for (int y = 0; y <= MAX_Y; y++) {
+                    insert.setLong(1, id(x, y));
+                    insert.setInt(2, x);
+                    insert.setInt(3, y);
+                    insert.setLong(4, labels(x, y));
+                    insert.executeUpdate();
+                }
+            }
+        }
+    }
+
+    @After
+    public void close() throws Exception {
+        connection.close();
+    }
+
+    private static long id(int x, int y) {
+        return (MAX_Y + 1) * x + y;
+    }
+
+    // Bit 0 is init, bit 1 deadlock, bit 2 the first label of the model
+    private static long labels(int x, int y) {
+        long bits = 0;
+        if (x == 0 && y == 0) bits |= 1;
+        if (x == MAX_X && y == MAX_Y) bits |= 2;
+        if (x == MAX_X) bits |= 4;
+        return bits;
+    }
+
+    private static Expression x() {
+        ExpressionVar var = new ExpressionVar("x", TypeInt.getInstance());
+        var.setIndex(0);
+        return var;
+    }
+
+    private static Expression y() {
+        ExpressionVar var = new ExpressionVar("y", TypeInt.getInstance());
+        var.setIndex(1);
+        return var;
+    }
+
+    private static Expression integer(int value) {
+        return new ExpressionLiteral(TypeInt.getInstance(), value);
+    }
+
+    private static Expression binary(int operator, Expression left, Expression right) {
+        return new ExpressionBinaryOp(operator, left, right);
+    }
+
+    private Set<Long> selected(Expression expression) throws Exception {
+        Optional<String> predicate = compiler.compile(expression);
+        assertTrue("not compiled: " + expression, predicate.isPresent());
+        Set<Long> ids = new HashSet<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(String.format("SELECT %s FROM states WHERE %s", ENTRY_S_ID, predicate.get()))) {
+            while (result.next()) {
+                ids.add(result.getLong(1));
+            }
+        }
+        return ids;
+    }
+
+    private static Set<Long> evaluated(Expression expression) throws Exception {
+        expression.typeCheck();
+        Set<Long> ids = new HashSet<>();
+        for (int x = 0; x <= MAX_X; x++) {
+            for (int y = 0; y <= MAX_Y; y++) {
+                if (expression.evaluateBoolean(new State(2).setValue(0, x).setValue(1, y))) {
+                    ids.add(id(x, y));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void assertSameStates(Expression expression) throws Exception {
+        Set<Long> expected = evaluated(expression);
+        assertFalse("trivial test: " + expression, expected.isEmpty());
+        assertEquals(expression.toString(), expected, selected(expression));
+    }
+
+    @Test
+    public void comparisonsAndArithmetic() throws Exception {
+        assertSameStates(binary(ExpressionBinaryOp.AND,
+                binary(ExpressionBinaryOp.GE, binary(ExpressionBinaryOp.PLUS, x(), y()), integer(3)),
+                binary(ExpressionBinaryOp.NE, x(), y())));
+        assertSameStates(binary(ExpressionBinaryOp.IMPLIES,
+                binary(ExpressionBinaryOp.GT, x(), integer(1)),
+                binary(ExpressionBinaryOp.LT, binary(ExpressionBinaryOp.TIMES, x(), y()), integer(4))));
+    }
+
+    @Test
+    public void divisionIsRealValued() throws Exception {
+        // 3/2 > 1 holds, but not with integer division
+        assertSameStates(binary(ExpressionBinaryOp.GT, binary(ExpressionBinaryOp.DIVIDE, x(), integer(2)), integer(1)));
+        assertSameStates(binary(ExpressionBinaryOp.LT, binary(ExpressionBinaryOp.DIVIDE, y(), new ExpressionUnaryOp(ExpressionUnaryOp.MINUS, integer(4))), integer(0)));
+    }
+
+    @Test
+    public void divisionByZeroIsLeftToPrism() throws Exception {
+        // PRISM divides by zero to infinity, where SQLite yields NULL and would drop these states
+        Expression ratio = binary(ExpressionBinaryOp.GT, binary(ExpressionBinaryOp.DIVIDE, x(), y()), integer(1));
+        assertTrue(evaluated(ratio).containsAll(Arrays.asList(id(1, 0), id(2, 0), id(3, 0))));
+        assertFalse(compiler.compile(ratio).isPresent());
+        assertFalse(compiler.compile(binary(ExpressionBinaryOp.GT, binary(ExpressionBinaryOp.DIVIDE, x(), integer(0)), integer(1))).isPresent());
+    }
+
+    @Test
+    public void ifThenElse() throws Exception {
+        Expression larger = new ExpressionITE(binary(ExpressionBinaryOp.GT, x(), y()), x(), y());
+        assertSameStates(binary(ExpressionBinaryOp.EQ, larger, integer(2)));
+        assertSameStates(new ExpressionITE(binary(ExpressionBinaryOp.EQ, y(), integer(0)),
+                binary(ExpressionBinaryOp.LE, x(), integer(1)),
+                binary(ExpressionBinaryOp.GE, x(), integer(2))));
+    }
+
+    @Test
+    public void labelBits() throws Exception {
+        assertEquals(new HashSet<>(Arrays.asList(id(0, 0))), selected(new ExpressionLabel("init")));
+        assertEquals(new HashSet<>(Arrays.asList(id(MAX_X, MAX_Y))), selected(new ExpressionLabel("deadlock")));
+        assertEquals(new HashSet<>(Arrays.asList(id(MAX_X, 0), id(MAX_X, 1), id(MAX_X, 2))), selected(new ExpressionLabel(GOAL)));
+        assertEquals(new HashSet<>(Arrays.asList(id(MAX_X, 0), id(MAX_X, 1))),
+                selected(binary(ExpressionBinaryOp.AND, new ExpressionLabel(GOAL), new ExpressionUnaryOp(ExpressionUnaryOp.NOT, new ExpressionLabel("deadlock")))));
+    }
+
+    @Test
+    public void unknownLabelsAreNotCompiled() {
+        assertFalse(compiler.compile(new ExpressionLabel("other")).isPresent());
+    }
+
+    @Test
+    public void missingColumnsAreNotCompiled() {
+        assertFalse(new ExpressionCompiler(false, true, name -> 0).compile(binary(ExpressionBinaryOp.EQ, x(), integer(1))).isPresent());
+        assertFalse(new ExpressionCompiler(true, false, name -> 0).compile(new ExpressionLabel(GOAL)).isPresent());
+    }
+}
@@ -0,0 +1,108 @@
+package prism.core;
+
+import org.junit.Test;
+import parser.State;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class StateEncodingTest {
+
+    // Variables x in 1..3, b boolean and y in -2..2, stored in the state as (b, x, y)
+    private static StateEncoding encoding() {
+        return new StateEncoding(new int[]{1, 0, 2}, new int[]{1, 0, -2}, new int[]{3, 2, 5}, new boolean[]{false, true, false});
+    }
+
+    private static State state(boolean b, int x, int y) {
+        State state = new State(3);
+        state.setValue(0, b);
+        state.setValue(1, x);
+        state.setValue(2, y);
+        return state;
+    }
+
+    @Test
+    public void encodesWithTheLastVariableFastest() {
+        StateEncoding encoding = encoding();
+        assertTrue(encoding.isCompact());
+        assertEquals(30, encoding.getNumValuations().longValueExact());
+        assertEquals(0, encoding.stateIdentifier(state(false, 1, -2)));
+        assertEquals(1, encoding.stateIdentifier(state(false, 1, -1)));
+        assertEquals(5, encoding.stateIdentifier(state(true, 1, -2)));
+        assertEquals(16, encoding.stateIdentifier(state(true, 2, -1)));
+        assertEquals(16, encoding.stateIdentifier(new int[]{1, 2, -1}));
+    }
+
+    @Test
+    public void decodesEveryIdentifier() {
+        StateEncoding encoding = encoding();
+        for (long id = 0; id < 30; id++) {
+            State state = encoding.translateStateIdentifier(id);
+            assertEquals(id, encoding.stateIdentifier(state));
+        }
+        assertArrayEquals(new Object[]{true, 2, -1}, encoding.translateStateIdentifier(16).varValues);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void rejectsValuesOutOfRange() {
+        encoding().stateIdentifier(new int[]{0, 4, 0});
+    }
+
+    @Test
+    public void transitionIdentifiersAreUnique() {
+        StateEncoding encoding = encoding();
+        assertTrue(encoding.hasCompactTransitionIdentifiers());
+        assertEquals(16, encoding.transitionIdentifier(state(true, 2, -1), 0));
+        assertEquals(76, encoding.transitionIdentifier(state(true, 2, -1), 2));
+        Set<Long> ids = new HashSet<>();
+        for (long id = 0; id < 30; id++) {
+            State state = encoding.translateStateIdentifier(id);
+            for (int choice = 0; choice < 4; choice++) {
+                assertTrue(ids.add(encoding.transitionIdentifier(state, choice)));
+            }
+        }
+    }
+
+    @Test
+    public void leavesRoomForChoices() {
+        StateEncoding fits = new StateEncoding(new int[]{0, 1}, new int[]{0, 0}, new int[]{1 << 23, 1 << 22}, new boolean[2]);
+        assertTrue(fits.hasCompactTransitionIdentifiers());
+        StateEncoding tight = new StateEncoding(new int[]{0, 1}, new int[]{0, 0}, new int[]{1 << 23, 1 << 23}, new boolean[2]);
+        assertTrue(tight.isCompact());
+        assertFalse(tight.hasCompactTransitionIdentifiers());
+    }
+
+    @Test
+    public void apiIdentifiersAreTheCompactOnes() {
+        StateEncoding encoding = encoding();
+        assertEquals("16", encoding.apiIdentifier(state(true, 2, -1)));
+        assertEquals("76", encoding.apiTransitionIdentifier(state(true, 2, -1), 2));
+        assertArrayEquals(new Object[]{true, 2, -1}, encoding.apiState("16").varValues);
+    }
+
+    // Three variables with 2^21 values each and a boolean, 2^64 valuations in total
+    private static StateEncoding large() {
+        int range = 1 << 21;
+        return new StateEncoding(new int[]{0, 1, 2, 3}, new int[]{0, -1, 0, 0}, new int[]{range, range, range, 2}, new boolean[]{false, false, false, true});
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void tooManyValuationsCannotBeEncoded() {
+        StateEncoding encoding = large();
+        assertFalse(encoding.isCompact());
+        encoding.stateIdentifier(new int[]{0, 0, 0, 0});
+    }
+
+    @Test
+    public void tooManyValuationsStillHaveApiIdentifiers() {
+        StateEncoding encoding = large();
+        State last = new State(4).setValue(0, (1 << 21) - 1).setValue(1, (1 << 21) - 2).setValue(2, (1 << 21) - 1).setValue(3, true);
+        assertEquals("18446744073709551615", encoding.apiIdentifier(last));
+        assertArrayEquals(last.varValues, encoding.apiState("18446744073709551615").varValues);
+        State first = new State(4).setValue(0, 0).setValue(1, -1).setValue(2, 0).setValue(3, false);
+        assertEquals("0", encoding.apiIdentifier(first));
+        assertEquals("36893488147419103232", encoding.apiTransitionIdentifier(first, 2));
+    }
+}
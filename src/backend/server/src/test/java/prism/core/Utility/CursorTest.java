@@ -0,0 +1,45 @@
+package prism.core.Utility;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.Assert.*;
+
+public class CursorTest {
+
+    @Test
+    public void roundTrip() {
+        for (long id : new long[]{0, 1, 42, -7, Long.MAX_VALUE, Long.MIN_VALUE + 1}) {
+            assertEquals(id, Cursor.decode(Cursor.encode(id)));
+        }
+    }
+
+    @Test
+    public void missingTokenStartsAtTheFirstPage() {
+        assertEquals(Cursor.START, Cursor.decode(null));
+        assertEquals(Cursor.START, Cursor.decode(""));
+    }
+
+    @Test
+    public void tokensAreUrlSafe() {
+        String token = Cursor.encode(Long.MAX_VALUE);
+        assertTrue(token, token.matches("[A-Za-z0-9_-]+"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTokensThatAreNotBase64() {
+        Cursor.decode("not a cursor!");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTokensWithoutPrefix() {
+        Cursor.decode(Base64.getUrlEncoder().withoutPadding().encodeToString("42".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTokensWithoutNumber() {
+        Cursor.decode(Base64.getUrlEncoder().withoutPadding().encodeToString("s:x".getBytes(StandardCharsets.UTF_8)));
+    }
+}
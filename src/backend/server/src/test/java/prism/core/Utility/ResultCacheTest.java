@@ -0,0 +1,77 @@
+package prism.core.Utility;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import prism.core.mdpgraph.CsrGraph;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class ResultCacheTest {
+
+    // Size of an entry of three states: header, identifiers and values
+    private static final long ENTRY_BYTES = 16 + 3 * (Long.BYTES + Double.BYTES);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // Graph of the given states without edges, the results only depend on the states
+    private static CsrGraph graph(long... stateIds) {
+        return CsrGraph.build(stateIds, null, new long[0], new int[0], new int[0], new double[0], new int[0], new int[0], 0, new String[0]);
+    }
+
+    private ResultCache cache(long maxBytes) {
+        return new ResultCache(folder.getRoot(), maxBytes, false);
+    }
+
+    private File entry(String key) {
+        return new File(folder.getRoot(), key + ".bin");
+    }
+
+    @Test
+    public void roundTrip() {
+        ResultCache cache = cache(Long.MAX_VALUE);
+        String key = ResultCache.key("model", "P=? [F goal]");
+        double[] values = {0.25, Double.NaN, 1.0};
+        cache.store(key, graph(10, 20, 30), values);
+        assertArrayEquals(values, cache.load(key, graph(10, 20, 30)), 0);
+        String[] files = folder.getRoot().list();
+        assertArrayEquals("no temporary file left behind", new String[]{key + ".bin"}, files);
+    }
+
+    @Test
+    public void keysSeparateParts() {
+        assertNotEquals(ResultCache.key("ab", "c"), ResultCache.key("a", "bc"));
+        assertEquals(ResultCache.key("a", "b"), ResultCache.key("a", "b"));
+    }
+
+    @Test
+    public void entriesOfOtherGraphsAreNotLoaded() {
+        ResultCache cache = cache(Long.MAX_VALUE);
+        String key = ResultCache.key("model");
+        cache.store(key, graph(10, 20, 30), new double[]{1, 2, 3});
+        assertNull(cache.load(key, graph(10, 20)));
+        assertNull(cache.load(key, graph(10, 20, 40)));
+        assertNull(cache.load(ResultCache.key("other"), graph(10, 20, 30)));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        ResultCache cache = cache(2 * ENTRY_BYTES);
+        CsrGraph csr = graph(10, 20, 30);
+        double[] values = {1, 2, 3};
+        cache.store("a", csr, values);
+        cache.store("b", csr, values);
+        assertEquals(ENTRY_BYTES, entry("a").length());
+        entry("a").setLastModified(1_000_000L);
+        entry("b").setLastModified(2_000_000L);
+        // Using a makes b the least recently used entry
+        assertNotNull(cache.load("a", csr));
+        cache.store("c", csr, values);
+        assertNull(cache.load("b", csr));
+        assertNotNull(cache.load("a", csr));
+        assertNotNull(cache.load("c", csr));
+    }
+}
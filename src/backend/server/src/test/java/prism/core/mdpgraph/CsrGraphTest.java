@@ -0,0 +1,160 @@
+package prism.core.mdpgraph;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class CsrGraphTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // States 10, 20, 30, 40 with edges 10->20, 10->30 (one choice), 20->40, 30->40, 40->40. Transition 5 has no edge.
+    private static CsrGraph graph() {
+        long[] stateIds = {10, 20, 30, 40};
+        long[] labels = {1, 2, 4, 8};
+        long[] transitionIds = {0, 1, 2, 3, 5};
+        // Given out of order, to be sorted by source
+        int[] sources = {3, 0, 1, 0, 2};
+        int[] targets = {3, 1, 3, 2, 3};
+        double[] probabilities = {1.0, 0.5, 1.0, 0.5, 1.0};
+        int[] actions = {1, 0, 1, 0, 1};
+        int[] transitions = {3, 0, 1, 0, 2};
+        return CsrGraph.build(stateIds, labels, transitionIds, sources, targets, probabilities, actions, transitions, 5, new String[]{"a", "b"});
+    }
+
+    @Test
+    public void sortsEdgesBySource() {
+        CsrGraph csr = graph();
+        assertEquals(4, csr.numStates());
+        assertEquals(5, csr.numEdges());
+        assertEquals(5, csr.numTransitions());
+        assertEquals(0, csr.outBegin(0));
+        assertEquals(2, csr.outEnd(0));
+        for (int e = csr.outBegin(0); e < csr.outEnd(0); e++) {
+            assertEquals(0, csr.source(e));
+            assertEquals(0.5, csr.probability(e), 0);
+            assertEquals("a", csr.actionName(csr.action(e)));
+            assertEquals(0, csr.transition(e));
+        }
+        assertEquals(1, csr.target(csr.outBegin(0)));
+        assertEquals(2, csr.target(csr.outBegin(0) + 1));
+        assertEquals(csr.numEdges(), csr.outEnd(3));
+    }
+
+    @Test
+    public void indexesIncomingEdges() {
+        CsrGraph csr = graph();
+        assertEquals(0, csr.inEnd(0) - csr.inBegin(0));
+        assertEquals(3, csr.inEnd(3) - csr.inBegin(3));
+        for (int i = csr.inBegin(3); i < csr.inEnd(3); i++) {
+            assertEquals(3, csr.target(csr.inEdge(i)));
+        }
+    }
+
+    @Test
+    public void mapsIdentifiersToIndices() {
+        CsrGraph csr = graph();
+        assertEquals(2, csr.index(30));
+        assertEquals(40, csr.stateId(3));
+        assertEquals(-1, csr.index(25));
+        assertEquals(-1, csr.index(0));
+        assertEquals(4, csr.transitionIndex(5));
+        assertEquals(5, csr.transitionId(4));
+        assertEquals(-1, csr.transitionIndex(4));
+        assertEquals(1, csr.actionIndex("b"));
+        assertEquals(-1, csr.actionIndex("c"));
+        assertTrue(csr.hasOutgoingAction(0, 0));
+        assertFalse(csr.hasOutgoingAction(0, 1));
+    }
+
+    @Test
+    public void sumsTransitionValuesOverEdges() {
+        double[] values = graph().transitionValues(new double[]{0, 1, 0.5, 2});
+        assertArrayEquals(new double[]{0.75, 2, 2, 2}, Arrays.copyOf(values, 4), 1e-12);
+        assertTrue("transition without edges", Double.isNaN(values[4]));
+    }
+
+    @Test
+    public void transitionsWithUnknownTargetsAreUnknown() {
+        double[] values = graph().transitionValues(new double[]{0, 1, Double.NaN, 2});
+        assertTrue(Double.isNaN(values[0]));
+        assertEquals(2, values[1], 0);
+    }
+
+    @Test
+    public void snapshotRoundTrip() throws Exception {
+        CsrGraph csr = graph();
+        File file = new File(folder.getRoot(), "graph.bin");
+        csr.write(file);
+        CsrGraph mapped = CsrGraph.map(file);
+
+        assertEquals(csr.numStates(), mapped.numStates());
+        assertEquals(csr.numEdges(), mapped.numEdges());
+        assertEquals(csr.numTransitions(), mapped.numTransitions());
+        assertEquals(csr.numActions(), mapped.numActions());
+        assertTrue(mapped.hasLabels());
+        for (int s = 0; s < csr.numStates(); s++) {
+            assertEquals(csr.stateId(s), mapped.stateId(s));
+            assertEquals(csr.labels(s), mapped.labels(s));
+            assertEquals(csr.outBegin(s), mapped.outBegin(s));
+            assertEquals(csr.inBegin(s), mapped.inBegin(s));
+        }
+        for (int e = 0; e < csr.numEdges(); e++) {
+            assertEquals(csr.source(e), mapped.source(e));
+            assertEquals(csr.target(e), mapped.target(e));
+            assertEquals(csr.probability(e), mapped.probability(e), 0);
+            assertEquals(csr.action(e), mapped.action(e));
+            assertEquals(csr.transition(e), mapped.transition(e));
+            assertEquals(csr.inEdge(e), mapped.inEdge(e));
+        }
+        for (int t = 0; t < csr.numTransitions(); t++) {
+            assertEquals(csr.transitionId(t), mapped.transitionId(t));
+        }
+        for (int a = 0; a < csr.numActions(); a++) {
+            assertEquals(csr.actionName(a), mapped.actionName(a));
+        }
+        assertEquals(4, mapped.transitionIndex(5));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedSnapshots() throws Exception {
+        File file = new File(folder.getRoot(), "graph.bin");
+        graph().write(file);
+        try (RandomAccessFile truncate = new RandomAccessFile(file, "rw")) {
+            truncate.setLength(64);
+        }
+        CsrGraph.map(file);
+    }
+
+    @Test
+    public void neighborhoodFollowsDirection() {
+        CsrGraph csr = graph();
+        assertArrayEquals(new long[]{10, 20, 30}, csr.neighborhood(Collections.singletonList(10L), Direction.FORWARD, 1, 100));
+        assertArrayEquals(new long[]{10, 20, 30, 40}, csr.neighborhood(Collections.singletonList(10L), Direction.FORWARD, 5, 100));
+        assertArrayEquals(new long[]{40, 20, 30}, csr.neighborhood(Collections.singletonList(40L), Direction.BACKWARD, 1, 100));
+        assertArrayEquals(new long[]{20, 40, 10}, csr.neighborhood(Collections.singletonList(20L), Direction.BOTH, 1, 100));
+    }
+
+    @Test
+    public void neighborhoodStopsAtBudget() {
+        CsrGraph csr = graph();
+        assertArrayEquals(new long[]{10, 20}, csr.neighborhood(Collections.singletonList(10L), Direction.FORWARD, 5, 2));
+        assertArrayEquals(new long[]{10}, csr.neighborhood(Arrays.asList(10L, 20L), Direction.FORWARD, 5, 1));
+        assertEquals(0, csr.neighborhood(Collections.singletonList(10L), Direction.FORWARD, 5, 0).length);
+    }
+
+    @Test
+    public void neighborhoodIgnoresUnknownSeeds() {
+        CsrGraph csr = graph();
+        assertArrayEquals(new long[]{30, 40}, csr.neighborhood(Arrays.asList(25L, 30L), Direction.FORWARD, 3, 100));
+    }
+}
@@ -522,6 +522,7 @@ function makeDetailCheckboxes() {
         ready: new Set(),
         computing: new Set(),
         missing: new Set(),
+        failed: new Set(),
       };
 
       keys.forEach((a) => statuses[options[k].metadata[a].status].add(a));
@@ -535,7 +536,7 @@ function makeDetailCheckboxes() {
           id: `trigger-button-${k}`,
         });
         $input_div.addEventListener('click', (e) => {
-          triggerModelCheckProperty(e, k, Array.from(statuses.missing));
+          triggerModelCheckProperty(e, k, [...statuses.missing, ...statuses.failed]);
           e.preventDefault();
         });
       }
@@ -13,6 +13,7 @@ const CONSTANTS = {
     ready: 'ready',
     computing: 'computing',
     missing: 'missing',
+    failed: 'failed',
   },
 
   MESSAGES: {